@@ -1,9 +1,145 @@
 package com.truerize.config;
 
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import com.truerize.service.InstrumentedExecutor;
+import com.truerize.service.InstrumentedExecutor.Rejection;
 
+/**
+ * One bounded {@link InstrumentedExecutor} per workload, sized from
+ * {@code executor.<name>.core-size}, {@code max-size}, {@code queue-capacity},
+ * {@code keep-alive-ms} and {@code rejection}. {@code @Async} methods run on
+ * the {@code async} executor instead of Spring's default, which queues
+ * without limit.
+ *
+ * <p>With {@code executor.virtual-threads=true} the pools start virtual
+ * threads where the runtime has them (Java 21+); the size limits still cap
+ * how many tasks run at once.
+ */
 @Configuration
 @EnableAsync
-public class AsyncConfig {
-}
\ No newline at end of file
+@EnableScheduling
+public class AsyncConfig implements AsyncConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncConfig.class);
+
+    @Autowired
+    private Environment environment;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public InstrumentedExecutor asyncExecutor() {
+        return executor("async", 2, 8, 500, Rejection.CALLER_RUNS);
+    }
+
+    /** Sends outbox batches; a batch that does not fit goes back to the outbox. */
+    @Bean(destroyMethod = "shutdownNow")
+    public InstrumentedExecutor mailExecutor() {
+        return executor("mail", 2, 2, 2, Rejection.SPILL);
+    }
+
+    /** Scores submission batches; when full, the submission pipeline's dispatcher scores the batch itself. */
+    @Bean(destroyMethod = "shutdownNow")
+    public InstrumentedExecutor scoringExecutor() {
+        return executor("scoring", 4, 4, 8, Rejection.CALLER_RUNS);
+    }
+
+    /**
+     * Grades coding submission batches; each thread runs one answer at a time
+     * through the code run scheduler, so the pool size caps grading's share of
+     * process slots. When full, the grading dispatcher grades the batch itself.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public InstrumentedExecutor gradingExecutor() {
+        return executor("grading", 2, 2, 2, Rejection.CALLER_RUNS);
+    }
+
+    /** Runs background bulk assignments; past the queue cap new jobs are refused. */
+    @Bean(destroyMethod = "shutdownNow")
+    public InstrumentedExecutor bulkAssignExecutor() {
+        return executor("bulk-assign", 2, 2, 20, Rejection.ABORT);
+    }
+
+    /** Runs result release jobs one at a time; past the queue cap new jobs are refused. */
+    @Bean(destroyMethod = "shutdownNow")
+    public InstrumentedExecutor releaseExecutor() {
+        return executor("release", 1, 1, 4, Rejection.ABORT);
+    }
+
+    /**
+     * Runs Spring MVC async work such as streamed downloads; when full, the
+     * request thread writes the response itself.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public InstrumentedExecutor streamingExecutor() {
+        return executor("streaming", 2, 4, 16, Rejection.CALLER_RUNS);
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return asyncExecutor();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (e, method, params) -> log.error("❌ Async {} failed", method.getName(), e);
+    }
+
+    private InstrumentedExecutor executor(String name, int coreSize, int maxSize, int queueCapacity,
+                                          Rejection rejection) {
+        String prefix = "executor." + name + ".";
+        int core = environment.getProperty(prefix + "core-size", Integer.class, coreSize);
+        int max = environment.getProperty(prefix + "max-size", Integer.class, maxSize);
+        int queue = environment.getProperty(prefix + "queue-capacity", Integer.class, queueCapacity);
+        long keepAlive = environment.getProperty(prefix + "keep-alive-ms", Long.class, 60000L);
+        Rejection policy = Rejection.valueOf(environment.getProperty(prefix + "rejection", rejection.name())
+                .trim().toUpperCase().replace('-', '_'));
+
+        ThreadFactory virtual = environment.getProperty("executor.virtual-threads", Boolean.class, false)
+                ? virtualThreadFactory(name) : null;
+        InstrumentedExecutor executor = new InstrumentedExecutor(name, core, max, queue, keepAlive, policy,
+                virtual != null ? virtual : platformThreadFactory(name), virtual != null);
+        executor.allowCoreThreadTimeOut(virtual != null);
+
+        log.info("Executor {}: {}-{} threads, queue {}, {} when full{}",
+                name, core, Math.max(core, max), queue, policy, virtual != null ? ", virtual threads" : "");
+        return executor;
+    }
+
+    private static ThreadFactory platformThreadFactory(String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** {@code Thread.ofVirtual().name(name + "-", 1).factory()}, looked up reflectively so Java 17 still builds. */
+    private static ThreadFactory virtualThreadFactory(String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Method naming = builderType.getMethod("name", String.class, long.class);
+            builder = naming.invoke(builder, name + "-", 1L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("⚠️ Virtual threads are not available on Java {}; executor {} uses platform threads",
+                    System.getProperty("java.version"), name);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.truerize.config;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.truerize.entity.PackedIntArrayConverter;
+
+/**
+ * One-time migration of question set ordering from the old
+ * {@code set_question_ids} element-collection table into the packed
+ * {@code exam_question_sets.question_order} column. The old table is dropped
+ * afterwards; its foreign key to {@code exam_question_sets} would otherwise
+ * block deleting regenerated sets.
+ *
+ * <p>The packed orders are written and committed in one transaction before
+ * the table is dropped, since {@code DROP TABLE} commits implicitly on MySQL
+ * and cannot be part of it. Each step can be re-run: only sets without an
+ * order are updated, so a restart between the commit and the drop just
+ * drops the table.
+ */
+@Component
+public class QuestionSetOrderMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionSetOrderMigration.class);
+
+    private static final String LEGACY_TABLE = "set_question_ids";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Boolean legacyExists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (ResultSet tables = connection.getMetaData()
+                    .getTables(connection.getCatalog(), null, LEGACY_TABLE, new String[] { "TABLE" })) {
+                return tables.next();
+            }
+        });
+
+        if (!Boolean.TRUE.equals(legacyExists)) {
+            return;
+        }
+
+        log.info("Migrating question set order from {} to packed column", LEGACY_TABLE);
+
+        Map<Long, List<Integer>> orderBySet = new LinkedHashMap<>();
+        jdbcTemplate.query(
+            "SELECT set_id, question_id FROM " + LEGACY_TABLE + " ORDER BY set_id, question_order",
+            rs -> {
+                orderBySet.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>())
+                        .add(Integer.parseInt(rs.getString(2).trim()));
+            });
+
+        List<Object[]> updates = new ArrayList<>(orderBySet.size());
+        for (Map.Entry<Long, List<Integer>> entry : orderBySet.entrySet()) {
+            int[] ids = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            updates.add(new Object[] { PackedIntArrayConverter.pack(ids), entry.getKey() });
+        }
+
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+            "UPDATE exam_question_sets SET question_order = ? WHERE id = ? AND question_order IS NULL",
+            updates));
+
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + LEGACY_TABLE);
+
+        log.info("✅ Migrated question order for {} sets", updates.size());
+    }
+}
@@ -1,13 +1,19 @@
 package com.truerize.controller;
 
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.truerize.entity.TestSubmission;
+import com.truerize.service.SubmissionPipeline;
 import com.truerize.service.TestSubmissionService;
 
 @RestController
@@ -15,11 +21,22 @@ import com.truerize.service.TestSubmissionService;
 @CrossOrigin(origins = "http://localhost:3000")
 public class CandidateTestController {
 
+    @Autowired
+    private SubmissionPipeline submissionPipeline;
+
     @Autowired
     private TestSubmissionService testSubmissionService;
 
     @PostMapping("/submit-exam")
-    public TestSubmission submitExam(@RequestBody TestSubmission submission) {
-        return testSubmissionService.submitTest(submission);
+    public ResponseEntity<?> submitExam(
+            @RequestBody TestSubmission submission,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null && idempotencyKey.length() > TestSubmissionService.MAX_CLIENT_KEY_LENGTH) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Idempotency-Key is too long"));
+        }
+        submission.setIdempotencyKey(testSubmissionService.idempotencyKey(
+            submission.getUser().getId(), submission.getExam().getId(), idempotencyKey));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(submissionPipeline.submit(submission));
     }
 }
\ No newline at end of file
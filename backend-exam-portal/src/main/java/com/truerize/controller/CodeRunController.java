@@ -0,0 +1,91 @@
+package com.truerize.controller;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.truerize.dto.RunMultipleRequestsDTO;
+import com.truerize.service.CodeExecutionService;
+import com.truerize.service.CodeRunScheduler;
+
+import jakarta.servlet.http.HttpSession;
+
+@RestController
+@RequestMapping("/api/code")
+public class CodeRunController {
+
+    private static final Logger log = LoggerFactory.getLogger(CodeRunController.class);
+
+    @Autowired
+    private CodeExecutionService codeExecutionService;
+
+    @Autowired
+    private CodeRunScheduler codeRunScheduler;
+
+    @Value("${code.exec.scheduler.staff-weight:4}")
+    private int staffWeight;
+
+    /**
+     * Runs the code through the fair-share scheduler. The servlet thread is
+     * released while the run waits for a slot.
+     */
+    @PostMapping("/run")
+    public CompletableFuture<ResponseEntity<?>> runCode(@RequestBody RunMultipleRequestsDTO request,
+                                                        HttpSession session) {
+        // Only signed-in users may run code; the session carries who to charge the run to
+        Object userId = session.getAttribute("userId");
+        if (userId == null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Please log in to run code")));
+        }
+
+        String problem = codeExecutionService.validate(request);
+        if (problem != null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", problem)));
+        }
+
+        // Runs are shared out per logged-in user
+        String caller = "user:" + userId;
+        Object role = session.getAttribute("role");
+        int weight = role != null && !"CANDIDATE".equalsIgnoreCase(role.toString()) ? staffWeight : 1;
+
+        try {
+            return codeRunScheduler.submit(caller, weight, () -> codeExecutionService.run(request))
+                    .handle((response, error) -> error == null
+                            ? ResponseEntity.ok(response)
+                            : failure(error instanceof CompletionException ? error.getCause() : error));
+
+        } catch (CodeRunScheduler.OverloadedException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("message", e.getMessage())));
+        }
+    }
+
+    private ResponseEntity<?> failure(Throwable error) {
+        if (error instanceof CodeExecutionService.ExecutionBusyException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "2")
+                    .body(Map.of("message", error.getMessage()));
+        }
+        if (error instanceof InterruptedException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("message", "Run interrupted"));
+        }
+        log.error("❌ Code run failed", error);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("message", "Failed to run code: " + error.getMessage()));
+    }
+}
@@ -1,6 +1,8 @@
 package com.truerize.controller;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +14,11 @@ import com.truerize.repository.ExamRepository;
 import com.truerize.repository.QuestionRepository;
 import com.truerize.repository.ResultRepository;
 import com.truerize.repository.UserRepository;
+import com.truerize.service.CodeExecutionService;
+import com.truerize.service.InstrumentedExecutor;
+import com.truerize.service.LocalSmtpServer;
+import com.truerize.service.MailOutboxService;
+import com.truerize.service.SubmissionPipeline;
 
 @RestController
 @RequestMapping("/api/admin/dashboard")
@@ -29,6 +36,21 @@ public class DashboardController {
     @Autowired
     private ResultRepository resultRepository;
 
+    @Autowired
+    private SubmissionPipeline submissionPipeline;
+
+    @Autowired
+    private CodeExecutionService codeExecutionService;
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    @Autowired(required = false)
+    private LocalSmtpServer localSmtpServer;
+
+    @Autowired
+    private List<InstrumentedExecutor> executors;
+
     @GetMapping("/stats")
     public Map<String, Long> getDashboardStats() {
         Map<String, Long> stats = new HashMap<>();
@@ -41,4 +63,32 @@ public class DashboardController {
 
         return stats;
     }
-}
\ No newline at end of file
+
+    @GetMapping("/submission-pipeline")
+    public Map<String, Object> getSubmissionPipelineStats() {
+        return submissionPipeline.getStats();
+    }
+
+    @GetMapping("/code-execution")
+    public Map<String, Object> getCodeExecutionStats() {
+        return codeExecutionService.getStats();
+    }
+
+    @GetMapping("/executors")
+    public Map<String, Object> getExecutorStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (InstrumentedExecutor executor : executors) {
+            stats.put(executor.getName(), executor.getStats());
+        }
+        return stats;
+    }
+
+    @GetMapping("/mail")
+    public Map<String, Object> getMailStats() {
+        Map<String, Object> stats = mailOutboxService.getStats();
+        if (localSmtpServer != null) {
+            stats.put("localSmtp", localSmtpServer.getStats());
+        }
+        return stats;
+    }
+}
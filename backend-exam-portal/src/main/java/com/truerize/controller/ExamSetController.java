@@ -85,6 +85,40 @@ public class ExamSetController {
         }
     }
 
+    /**
+     * Draws balanced sets from the exam's question bank. Body:
+     * {@code {"sectionCounts": {"A": 20, "B": 10}}}; sections left out are
+     * taken whole.
+     */
+    @PostMapping("/{examId}/generate-balanced")
+    public ResponseEntity<?> generateBalancedQuestionSets(@PathVariable Long examId,
+                                                          @RequestBody(required = false) Map<String, Object> request) {
+        try {
+            Map<String, Integer> sectionCounts = new HashMap<>();
+            Object counts = request == null ? null : request.get("sectionCounts");
+            if (counts instanceof Map<?, ?> map) {
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    sectionCounts.put(String.valueOf(entry.getKey()), Integer.parseInt(String.valueOf(entry.getValue())));
+                }
+            }
+
+            log.info(" Exam ID: {}, section counts: {}", examId, sectionCounts);
+
+            Map<String, Object> result = examSetService.generateBalancedQuestionSets(examId, sectionCounts);
+
+            if (Boolean.TRUE.equals(result.get("success"))) {
+                return ResponseEntity.ok(result);
+            } else {
+                log.error("❌ FAILED: Balanced question sets generation failed");
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+            }
+
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("success", false, "error", "sectionCounts values must be integers"));
+        }
+    }
+
     @GetMapping("/{examId}/sets")
     public ResponseEntity<?> getQuestionSets(@PathVariable Long examId) {
         try {
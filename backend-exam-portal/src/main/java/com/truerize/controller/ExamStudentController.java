@@ -2,21 +2,26 @@ package com.truerize.controller;
 
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.truerize.entity.Question;
+import com.truerize.dto.AnswerDeltaDTO;
+import com.truerize.service.AnswerKeyCache;
+import com.truerize.service.AttemptAutosaveService;
 import com.truerize.service.ExamSetService;
 
 import jakarta.servlet.http.HttpSession;
@@ -31,6 +36,12 @@ public class ExamStudentController {
     @Autowired
     private ExamSetService examSetService;
 
+    @Autowired
+    private AttemptAutosaveService attemptAutosaveService;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
     @GetMapping("/exams/{examId}/shuffled-questions")
     public ResponseEntity<?> getShuffledQuestions(
             @PathVariable String examId,
@@ -61,30 +72,31 @@ public class ExamStudentController {
                     .body(Map.of("error", "You are not assigned to this exam. Please contact administrator."));
             }
             
-            log.info("✅ Student is assigned to Set {}", assignment.get().getAssignedSetNumber());
+            var data = assignment.get();
+            log.info("✅ Student is assigned to Set {}", data.getAssignedSetNumber());
             
            
-            try {
-                examSetService.markExamStarted(studentId, examIdLong);
-                log.info("✅ Marked exam as started");
-            } catch (Exception e) {
-                log.warn("⚠️ Could not mark exam as started: {}", e.getMessage());
+            if (!Boolean.TRUE.equals(data.getHasStarted())) {
+                try {
+                    examSetService.markExamStarted(studentId, examIdLong);
+                    log.info("✅ Marked exam as started");
+                } catch (Exception e) {
+                    log.warn("⚠️ Could not mark exam as started: {}", e.getMessage());
+                }
             }
             
             
-            List<Question> questions = examSetService.getShuffledQuestionsForStudent(studentId, examIdLong);
+            byte[] payload = examSetService.getQuestionPayload(data);
             
-            if (questions == null || questions.isEmpty()) {
+            if (payload == null) {
                 log.error("❌ No questions returned from ExamSetService");
                 return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "No questions found for your assigned set. Please contact administrator."));
             }
-            
-            log.info("✅ Returning {} shuffled questions", questions.size());
-            log.info("   First question ID: {}", questions.get(0).getId());
-            log.info("   Last question ID: {}", questions.get(questions.size() - 1).getId());
            
-            return ResponseEntity.ok(questions);
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(payload);
             
         } catch (NumberFormatException e) {
             log.error("❌ Invalid exam ID format: {}", examId);
@@ -103,6 +115,122 @@ public class ExamStudentController {
         }
     }
 
+    @PostMapping("/exams/{examId}/bootstrap")
+    public ResponseEntity<?> bootstrapExam(
+            @PathVariable String examId,
+            HttpSession session) {
+        
+        try {
+            Object userIdObj = session.getAttribute("userId");
+            
+            if (userIdObj == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(Map.of("error", "Not authenticated. Please login first."));
+            }
+            
+            String studentId = String.valueOf(userIdObj);
+            Long examIdLong = Long.parseLong(examId);
+            
+            Map<String, Object> response = examSetService.bootstrapExam(studentId, examIdLong);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (NumberFormatException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", "Invalid exam ID format"));
+                
+        } catch (IllegalStateException e) {
+            log.error("❌ Bootstrap refused: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(Map.of("error", e.getMessage()));
+                
+        } catch (Exception e) {
+            log.error("❌ Error bootstrapping exam", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to start exam: " + e.getMessage()));
+        }
+    }
+
+    @PatchMapping("/exams/{examId}/answers")
+    public ResponseEntity<?> autosaveAnswer(
+            @PathVariable int examId,
+            @RequestBody AnswerDeltaDTO delta,
+            HttpSession session) {
+        
+        Object userIdObj = session.getAttribute("userId");
+        
+        if (userIdObj == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("error", "Not authenticated"));
+        }
+        
+        try {
+            var assignment = examSetService.getStudentAssignment(String.valueOf(userIdObj), (long) examId);
+
+            if (assignment.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "You are not assigned to this exam"));
+            }
+            if (Boolean.TRUE.equals(assignment.get().getHasCompleted())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Exam already completed"));
+            }
+
+            // Only questions of the candidate's own set can be answered
+            Integer setNumber = assignment.get().getAssignedSetNumber();
+            if (delta.getSeq() <= 0
+                    || answerKeyCache.get(examId).indexOf(delta.getQuestionId(), setNumber) < 0) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Map.of("error", "Invalid answer delta"));
+            }
+
+            int userId = Integer.parseInt(String.valueOf(userIdObj));
+            int lastSeq = attemptAutosaveService.recordAnswer(assignment.get().getId(),
+                userId, examId, delta.getSeq(), delta.getQuestionId(), delta.getAnswer());
+            
+            return ResponseEntity.ok(Map.of("seq", lastSeq));
+            
+        } catch (Exception e) {
+            log.error("❌ Error autosaving answer", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to save answer"));
+        }
+    }
+
+    @GetMapping("/exams/{examId}/answers")
+    public ResponseEntity<?> resumeAnswers(
+            @PathVariable int examId,
+            HttpSession session) {
+        
+        Object userIdObj = session.getAttribute("userId");
+        
+        if (userIdObj == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("error", "Not authenticated"));
+        }
+        
+        try {
+            var assignment = examSetService.getStudentAssignment(String.valueOf(userIdObj), (long) examId);
+
+            if (assignment.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "You are not assigned to this exam"));
+            }
+            if (Boolean.TRUE.equals(assignment.get().getHasCompleted())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(Map.of("error", "Exam already completed"));
+            }
+
+            int userId = Integer.parseInt(String.valueOf(userIdObj));
+            return ResponseEntity.ok(attemptAutosaveService.resume(assignment.get().getId(), userId, examId));
+            
+        } catch (Exception e) {
+            log.error("❌ Error loading saved answers", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to load saved answers"));
+        }
+    }
+
     @GetMapping("/exams/{examId}/assignment")
     public ResponseEntity<?> getExamAssignment(
             @PathVariable String examId,
@@ -1,13 +1,22 @@
 package com.truerize.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,12 +24,18 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.truerize.entity.Result;
 import com.truerize.repository.ResultRepository;
-import com.truerize.service.MailService;
+import com.truerize.service.ExportWriter;
+import com.truerize.service.ResultExportService;
+import com.truerize.service.ResultReleaseService;
+import com.truerize.service.ResultSearchService;
 import com.truerize.service.ResultService;
 
 @RestController
@@ -29,18 +44,131 @@ import com.truerize.service.ResultService;
 public class ResultController {
 
     private static final Logger log = LoggerFactory.getLogger(ResultController.class);
-    
-   
-    private static final int PASSING_SCORE = 20; 
 
     @Autowired
     private ResultRepository resultRepository;
 
     @Autowired
-    private MailService mailService;
+    private ResultService resultService;
 
     @Autowired
-    private ResultService resultService;
+    private ResultReleaseService resultReleaseService;
+
+    @Autowired
+    private ResultSearchService resultSearchService;
+
+    @Autowired
+    private ResultExportService resultExportService;
+
+    /**
+     * One page of results, filtered and sorted on the server. Pass the
+     * returned {@code nextCursor} as {@code after} for the next page.
+     */
+    @GetMapping("/results")
+    public ResponseEntity<?> searchResults(
+            @RequestParam(required = false) String exam,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String college,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer minScore,
+            @RequestParam(required = false) Integer maxScore,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String after) {
+        ResultSearchService.Sort sortBy;
+        try {
+            sortBy = ResultSearchService.Sort.valueOf(sort.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "sort must be one of id, score, name"));
+        }
+        try {
+            ResultSearchService.Filter filter =
+                new ResultSearchService.Filter(exam, status, college, q, minScore, maxScore);
+            return ResponseEntity.ok(resultSearchService.search(
+                filter, sortBy, "desc".equalsIgnoreCase(direction), size, after));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            log.error("❌ Error searching results", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Failed to fetch results"));
+        }
+    }
+
+    @GetMapping("/results/exams")
+    public ResponseEntity<List<String>> getResultExams() {
+        return ResponseEntity.ok(resultSearchService.findExams());
+    }
+
+    /**
+     * Downloads the results matching the same filters as {@link #searchResults}
+     * as CSV or XLSX, streamed from the database. CSV is gzip-encoded when
+     * the client accepts it.
+     */
+    @GetMapping("/results/export")
+    public ResponseEntity<StreamingResponseBody> exportResults(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String exam,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String college,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Integer minScore,
+            @RequestParam(required = false) Integer maxScore,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ResultSearchService.Filter filter = new ResultSearchService.Filter(exam, status, college, q, minScore, maxScore);
+        return export(format, "results", "Results", acceptEncoding,
+            writer -> resultExportService.exportResults(filter, writer));
+    }
+
+    /** Downloads test submissions, optionally of one exam, with per-section scores. */
+    @GetMapping("/submissions/export")
+    public ResponseEntity<StreamingResponseBody> exportSubmissions(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) Integer examId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        String name = examId != null ? "submissions-exam-" + examId : "submissions";
+        return export(format, name, "Submissions", acceptEncoding,
+            writer -> resultExportService.exportSubmissions(examId, writer));
+    }
+
+    private interface ExportBody {
+        void writeTo(ExportWriter writer) throws IOException;
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(String format, String name, String sheetName,
+                                                         String acceptEncoding, ExportBody body) {
+        ResultExportService.Format exportFormat;
+        try {
+            exportFormat = ResultExportService.Format.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            // Streaming handlers only take a streamed body, so the error is written as one
+            return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> out.write("{\"error\":\"format must be csv or xlsx\"}".getBytes(StandardCharsets.UTF_8)));
+        }
+        // XLSX is already a zip archive
+        boolean gzip = exportFormat == ResultExportService.Format.CSV
+            && acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        String fileName = name + "-" + LocalDate.now() + "." + exportFormat.extension;
+        StreamingResponseBody stream = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            try (ExportWriter writer = resultExportService.open(exportFormat, target, sheetName)) {
+                body.writeTo(writer);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName).build().toString())
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+            .contentType(MediaType.parseMediaType(exportFormat.contentType));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(stream);
+    }
 
     /**
      * Get all results
@@ -62,57 +190,14 @@ public class ResultController {
     @PutMapping("/results/{id}/release")
     public ResponseEntity<String> releaseResult(@PathVariable Long id) {
         try {
-           
-            
-            Optional<Result> optionalResult = resultRepository.findById(id);
-            
-            if (optionalResult.isEmpty()) {
+            if (!resultRepository.existsById(id)) {
                 log.warn("⚠️ Result not found: {}", id);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Result not found with ID: " + id);
             }
 
-            Result result = optionalResult.get();
-            
-            
-            if ("Result Released".equalsIgnoreCase(result.getStatus())) {
-                log.warn("⚠️ Result already released for: {}", result.getEmail());
-                return ResponseEntity.ok("Result already released for " + result.getEmail());
-            }
-            
-            
-            boolean passed = result.getScore() >= PASSING_SCORE;
-            String originalStatus = passed ? "Pass" : "Failed";
-            
-            log.info("📊 Score: {} | Passing Score: {} | Status: {}", 
-                result.getScore(), PASSING_SCORE, originalStatus);
-            
-            
-            result.setStatus("Result Released");
-            resultRepository.save(result);
-           
-            try {
-                if (passed) {
-                    log.info("✅ PASS - Sending congratulatory email to: {}", result.getEmail());
-                    mailService.sendResultReleasedEmail(result.getEmail());
-                    return ResponseEntity.ok(
-                        String.format("✅ Result released! Congratulations email sent to %s (Score: %d)", 
-                            result.getEmail(), result.getScore())
-                    );
-                } else {
-                    log.info("❌ FAIL - Sending regret email to: {}", result.getEmail());
-                    mailService.sendRegretEmail(result.getEmail());
-                    return ResponseEntity.ok(
-                        String.format("✅ Result released! Regret email sent to %s (Score: %d)", 
-                            result.getEmail(), result.getScore())
-                    );
-                }
-            } catch (Exception emailError) {
-                log.error("❌ Failed to send email to {}", result.getEmail(), emailError);
-                return ResponseEntity.ok(
-                    "Result released but email sending failed: " + emailError.getMessage()
-                );
-            }
+            // Status change and email row commit together; the outbox sends the email
+            return ResponseEntity.ok(resultService.releaseResult(id));
             
         } catch (Exception e) {
             log.error("❌ Error releasing result", e);
@@ -121,65 +206,19 @@ public class ResultController {
         }
     }
 
+    /**
+     * Starts the background release of all unreleased results and returns at
+     * once; progress is at {@code /results/release-jobs/{jobId}}.
+     */
     @PutMapping("/results/send-mails")
     public ResponseEntity<String> sendAutomaticMails() {
         try {
-           
-            
-            List<Result> results = resultRepository.findAll();
-            int passed = 0, failed = 0, errors = 0, alreadyReleased = 0;
-
-            for (Result result : results) {
-                try {
-                  
-                    if ("Result Released".equalsIgnoreCase(result.getStatus())) {
-                        alreadyReleased++;
-                        continue;
-                    }
-                    
-                    boolean didPass = result.getScore() >= PASSING_SCORE;
-                    
-                    if (didPass) {
-                        log.info("✅ PASS - Sending congratulatory email to: {} (Score: {})", 
-                            result.getEmail(), result.getScore());
-                        mailService.sendResultReleasedEmail(result.getEmail());
-                        passed++;
-                    } else {
-                        log.info("❌ FAIL - Sending regret email to: {} (Score: {})", 
-                            result.getEmail(), result.getScore());
-                        mailService.sendRegretEmail(result.getEmail());
-                        failed++;
-                    }
-                    
- 
-                    result.setStatus("Result Released");
-                    resultRepository.save(result);
-                    
-                } catch (Exception e) {
-                    log.error("❌ Error sending mail to {}: {}", result.getEmail(), e.getMessage());
-                    errors++;
-                }
-            }
-
-            log.info("========================================");
-            log.info("✅ EMAIL SENDING COMPLETE");
-            log.info("   Passed (Score >= {}): {}", PASSING_SCORE, passed);
-            log.info("   Failed (Score < {}): {}", PASSING_SCORE, failed);
-            log.info("   Already Released: {}", alreadyReleased);
-            log.info("   Errors: {}", errors);
-            log.info("========================================");
-
-            if (errors == results.size() && results.size() > 0) {
-                return ResponseEntity.ok(
-                    "⚠️ Email service not configured. Please check application.properties for SMTP settings."
-                );
-            }
-            
-            return ResponseEntity.ok(
-                String.format("✅ Emails sent! Pass: %d, Fail: %d, Already Released: %d, Errors: %d", 
-                    passed, failed, alreadyReleased, errors)
-            );
-            
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(resultService.sendMailsAutomatically());
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ Result release refused: too many jobs waiting");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body("Too many release jobs are waiting, please retry shortly");
         } catch (Exception e) {
             log.error("❌ Error in automatic email sending", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -187,6 +226,22 @@ public class ResultController {
         }
     }
 
+    @GetMapping("/results/release-jobs/latest")
+    public ResponseEntity<?> getLatestReleaseJob() {
+        return resultReleaseService.findLatestJob()
+            .<ResponseEntity<?>>map(job -> ResponseEntity.ok(resultReleaseService.toMap(job)))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "No result release job has been started")));
+    }
+
+    @GetMapping("/results/release-jobs/{jobId}")
+    public ResponseEntity<?> getReleaseJob(@PathVariable Long jobId) {
+        return resultReleaseService.findJob(jobId)
+            .<ResponseEntity<?>>map(job -> ResponseEntity.ok(resultReleaseService.toMap(job)))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "Result release job not found: " + jobId)));
+    }
+
     @DeleteMapping("/results/{id}")
     public ResponseEntity<?> deleteResult(@PathVariable Long id) {
         try {
@@ -200,6 +255,7 @@ public class ResultController {
             }
             
             resultRepository.deleteById(id);
+            resultSearchService.invalidateCounts();
             
             log.info("✅ Result deleted successfully: {}", id);
           
@@ -240,6 +296,7 @@ public class ResultController {
             }
             
             resultRepository.save(result);
+            resultSearchService.invalidateCounts();
             
             log.info("✅ Result updated successfully: {}", id);
             
@@ -1,22 +1,32 @@
 package com.truerize.controller;
 
-import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.truerize.dto.TestSubmissionDTO;
 import com.truerize.dto.TestSubmissionResponseDTO;
 import com.truerize.entity.Exam;
+import com.truerize.entity.StudentExamAssignment;
 import com.truerize.entity.TestSubmission;
 import com.truerize.entity.User;
 import com.truerize.repository.ExamRepository;
 import com.truerize.repository.UserRepository;
+import com.truerize.service.AttemptAutosaveService;
+import com.truerize.service.ExamSetService;
+import com.truerize.service.SubmissionPipeline;
 import com.truerize.service.TestSubmissionService;
 
 import jakarta.servlet.http.HttpSession;
@@ -25,6 +35,8 @@ import jakarta.servlet.http.HttpSession;
 @RequestMapping("/api/candidate")
 public class TestSubmissionController {
 
+    private static final Logger log = LoggerFactory.getLogger(TestSubmissionController.class);
+
     @Autowired
     private UserRepository userRepository;
 
@@ -34,9 +46,19 @@ public class TestSubmissionController {
     @Autowired
     private TestSubmissionService testSubmissionService;
 
+    @Autowired
+    private SubmissionPipeline submissionPipeline;
+
+    @Autowired
+    private AttemptAutosaveService attemptAutosaveService;
+
+    @Autowired
+    private ExamSetService examSetService;
+
     @PostMapping("/submit")
-    public ResponseEntity<TestSubmissionResponseDTO> submitExam(
+    public ResponseEntity<?> submitExam(
             @RequestBody TestSubmissionDTO dto,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             HttpSession session) {
 
         System.out.println("========== 📝 EXAM SUBMISSION REQUEST ==========");
@@ -67,6 +89,11 @@ public class TestSubmissionController {
 
             System.out.println("✅ User found: " + user.getName());
 
+            if (idempotencyKey != null && idempotencyKey.length() > TestSubmissionService.MAX_CLIENT_KEY_LENGTH) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(Map.of("error", "Idempotency-Key is too long"));
+            }
+
             int examId = dto.getExam().getId();
             Exam exam = examRepository.findById(examId)
                     .orElseThrow(() -> new RuntimeException("Exam not found with ID: " + examId));
@@ -77,6 +104,24 @@ public class TestSubmissionController {
             String answersJson = dto.getAnswersJson();
             String videoUrl = dto.getVideoUrl();
 
+            StudentExamAssignment attempt = examSetService
+                    .getStudentAssignment(String.valueOf(userId), (long) examId)
+                    .orElse(null);
+            // A completed attempt's log is already cleared; its retry is answered by the idempotency key
+            boolean retry = attempt != null && Boolean.TRUE.equals(attempt.getHasCompleted());
+
+            // Autosaving clients send only their last sequence number
+            if ((answersJson == null || answersJson.isBlank()) && dto.getLastSeq() != null
+                    && attempt != null && !retry) {
+                int savedSeq = attemptAutosaveService.flushAttempt(attempt.getId(), userId, examId);
+                if (savedSeq < dto.getLastSeq()) {
+                    log.warn("⚠️ Autosave log behind client: saved={}, client={}", savedSeq, dto.getLastSeq());
+                    return ResponseEntity.status(HttpStatus.CONFLICT)
+                            .body(Map.of("error", "Saved answers are behind the client", "savedSeq", savedSeq));
+                }
+                answersJson = attemptAutosaveService.buildAnswersJson(attempt.getId(), userId, examId);
+            }
+
             
             if (answersJson == null || answersJson.trim().isEmpty()) {
                 answersJson = "{}";
@@ -91,16 +136,19 @@ public class TestSubmissionController {
             submission.setExam(exam);
             submission.setAnswersJson(answersJson);
             submission.setVideoUrl(videoUrl); 
-            submission.setStatus("Completed");
-            submission.setSubmittedAt(LocalDateTime.now());
-            submission.setScore(0); 
+            submission.setIdempotencyKey(testSubmissionService.idempotencyKey(userId, examId, idempotencyKey));
 
-            System.out.println("🔄 Saving submission to database...");
+            System.out.println("🔄 Queueing submission for scoring...");
 
            
-            TestSubmission savedSubmission = testSubmissionService.submitTest(submission);
+            TestSubmission savedSubmission = submissionPipeline.submit(submission);
+
+            if (attempt != null && !retry) {
+                examSetService.markExamCompleted(String.valueOf(userId), (long) examId);
+                attemptAutosaveService.clearAttempt(attempt.getId());
+            }
 
-            System.out.println("========== ✅ EXAM SUBMITTED SUCCESSFULLY ==========");
+            System.out.println("========== ✅ EXAM SUBMISSION ACCEPTED ==========");
             System.out.println("Submission ID: " + savedSubmission.getId());
             System.out.println("Video URL Saved: " + savedSubmission.getVideoUrl());
 
@@ -116,7 +164,7 @@ public class TestSubmissionController {
             responseDTO.setSubmittedAt(savedSubmission.getSubmittedAt());
             responseDTO.setVideoUrl(savedSubmission.getVideoUrl());
 
-            return ResponseEntity.ok(responseDTO);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(responseDTO);
 
         } catch (Exception e) {
             System.err.println("❌ ERROR: Failed to submit exam");
@@ -124,4 +172,29 @@ public class TestSubmissionController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
+
+    @GetMapping("/submissions/{submissionId}/status")
+    public ResponseEntity<?> getSubmissionStatus(@PathVariable int submissionId, HttpSession session) {
+        Object sessionUserId = session.getAttribute("userId");
+        if (sessionUserId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Unauthorized"));
+        }
+
+        return testSubmissionService.getSubmissionById(submissionId)
+                .filter(submission -> String.valueOf(submission.getUser().getId()).equals(sessionUserId.toString()))
+                .<ResponseEntity<?>>map(submission -> {
+                    boolean completed = TestSubmissionService.STATUS_COMPLETED.equals(submission.getStatus());
+
+                    Map<String, Object> status = new LinkedHashMap<>();
+                    status.put("submissionId", submission.getId());
+                    status.put("status", submission.getStatus());
+                    status.put("completed", completed);
+                    status.put("score", completed ? submission.getScore() : null);
+                    status.put("codingUngraded", Boolean.TRUE.equals(submission.getCodingUngraded()));
+                    status.put("submittedAt", submission.getSubmittedAt());
+                    return ResponseEntity.ok(status);
+                })
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Submission not found")));
+    }
 }
@@ -4,10 +4,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -21,6 +23,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.truerize.entity.User;
+import com.truerize.service.BulkAssignmentService;
 import com.truerize.service.UserService;
 
 @RestController
@@ -33,6 +36,9 @@ public class UserController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private BulkAssignmentService bulkAssignmentService;
+
     @GetMapping
     public ResponseEntity<List<User>> getAllUsers() {
         try {
@@ -129,15 +135,33 @@ public class UserController {
             log.info("📋 Exam ID: {}", request.getExamId());
             log.info("👥 User IDs: {}", request.getUserIds());
             
-            userService.assignExamToUsers(request.getExamId(), request.getUserIds());
+            BulkAssignmentService.Job job = userService.assignExamToUsers(request.getExamId(), request.getUserIds());
+            Map<String, Object> report = job.toMap();
+            int assigned = (Integer) report.get("assigned") + (Integer) report.get("alreadyAssigned");
             
             Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Exam assigned successfully to " + request.getUserIds().size() + " user(s)");
             response.put("examId", request.getExamId());
-            response.put("assignedUsers", request.getUserIds().size());
+            response.put("assignedUsers", assigned);
+            response.put("report", report);
+
+            if (job.hasFailures()) {
+                // Failed chunks are a server fault; otherwise some of the listed users do not exist
+                HttpStatus status = assigned > 0 ? HttpStatus.MULTI_STATUS
+                    : job.getChunksFailed() > 0 ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.BAD_REQUEST;
+                response.put("success", false);
+                response.put("message", "Exam assigned to " + assigned + " user(s); "
+                    + job.getFailureCount() + " user(s) could not be assigned");
+
+                log.warn("⚠️ PARTIAL: Exam assigned to {} users, {} failures, {} failed chunks",
+                    assigned, job.getFailureCount(), job.getChunksFailed());
+
+                return ResponseEntity.status(status).body(response);
+            }
+
+            response.put("success", true);
+            response.put("message", "Exam assigned successfully to " + assigned + " user(s)");
             
-            log.info("✅ SUCCESS: Exam assigned to {} users", request.getUserIds().size());
+            log.info("✅ SUCCESS: Exam assigned to {} users", assigned);
             
             return ResponseEntity.ok(response);
             
@@ -152,6 +176,45 @@ public class UserController {
         }
     }
 
+    /**
+     * Starts assigning the exam in the background, for cohorts too large to
+     * wait on. Progress is read from {@code GET /assign-exam/jobs/{jobId}}.
+     */
+    @PostMapping("/assign-exam/jobs")
+    public ResponseEntity<?> startBulkAssignment(@RequestBody AssignExamRequest request) {
+        if (request.getExamId() == null || request.getExamId() <= 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", "Valid examId is required"));
+        }
+        if (request.getUserIds() == null || request.getUserIds().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", "userIds list cannot be empty"));
+        }
+
+        BulkAssignmentService.Job job;
+        try {
+            job = bulkAssignmentService.submit(request.getExamId(), request.getUserIds());
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ Bulk assignment refused for exam {}: too many jobs waiting", request.getExamId());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(Map.of("error", "Too many assignment jobs are waiting, please retry shortly"));
+        }
+        log.info("📋 Bulk assignment {} queued: exam {}, {} users",
+            job.getId(), request.getExamId(), request.getUserIds().size());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toMap());
+    }
+
+    @GetMapping("/assign-exam/jobs/{jobId}")
+    public ResponseEntity<?> getBulkAssignment(@PathVariable String jobId) {
+        BulkAssignmentService.Job job = bulkAssignmentService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(Map.of("error", "Assignment job not found: " + jobId));
+        }
+        return ResponseEntity.ok(job.toMap());
+    }
+
     
     @PostMapping("/addCandidate")
     public ResponseEntity<?> addCandidate(@RequestBody User user) {
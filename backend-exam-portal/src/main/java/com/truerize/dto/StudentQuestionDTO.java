@@ -0,0 +1,55 @@
+package com.truerize.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Candidate-facing view of a question. Built directly by a JPQL projection so
+ * the answer key never leaves the database and the exam proxy is never loaded.
+ */
+public class StudentQuestionDTO {
+
+    private int id;
+    private String section;
+    private String type;
+    private String questionText;
+    private Integer marks;
+    private Integer qNo;
+    private List<String> options;
+
+    public StudentQuestionDTO() {}
+
+    public StudentQuestionDTO(int id, String section, String type, String questionText,
+                              Integer marks, Integer qNo, List<String> options) {
+        this.id = id;
+        this.section = section;
+        this.type = type;
+        this.questionText = questionText;
+        this.marks = marks;
+        this.qNo = qNo;
+        this.options = options;
+    }
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public String getSection() { return section; }
+    public void setSection(String section) { this.section = section; }
+
+    public String getType() { return type; }
+    public void setType(String type) { this.type = type; }
+
+    public String getQuestionText() { return questionText; }
+    public void setQuestionText(String questionText) { this.questionText = questionText; }
+
+    public Integer getMarks() { return marks; }
+    public void setMarks(Integer marks) { this.marks = marks; }
+
+    @JsonProperty("qNo")
+    public Integer getqNo() { return qNo; }
+    public void setqNo(Integer qNo) { this.qNo = qNo; }
+
+    public List<String> getOptions() { return options; }
+    public void setOptions(List<String> options) { this.options = options; }
+}
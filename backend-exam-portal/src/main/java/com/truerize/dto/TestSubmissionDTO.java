@@ -6,6 +6,8 @@ public class TestSubmissionDTO {
     private ExamIdDTO exam;
     private String answersJson;
     private String videoUrl;
+    // Last autosave sequence number; lets the client omit answersJson
+    private Integer lastSeq;
 
     public static class UserIdDTO {
         private int id;
@@ -62,4 +64,12 @@ public class TestSubmissionDTO {
     public void setVideoUrl(String videoUrl) {
         this.videoUrl = videoUrl;
     }
-}
\ No newline at end of file
+
+    public Integer getLastSeq() {
+        return lastSeq;
+    }
+
+    public void setLastSeq(Integer lastSeq) {
+        this.lastSeq = lastSeq;
+    }
+}
@@ -0,0 +1,118 @@
+package com.truerize.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Append-only log of autosaved answers. Each row is the latest answer to one
+ * question as of client sequence number {@code seq}; replaying an attempt's
+ * rows in seq order rebuilds its answer sheet. An attempt is one
+ * {@link StudentExamAssignment}, so a retake never replays an earlier one.
+ */
+@Entity
+@Table(name = "attempt_answer_log",
+       indexes = {
+           @Index(name = "idx_attempt_log_attempt", columnList = "attempt_id, seq"),
+           @Index(name = "idx_attempt_log_user_exam", columnList = "user_id, exam_id")
+       })
+public class AttemptAnswerLog {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "attempt_id")
+    private Long attemptId;
+
+    @Column(name = "user_id", nullable = false)
+    private int userId;
+
+    @Column(name = "exam_id", nullable = false)
+    private int examId;
+
+    @Column(nullable = false)
+    private int seq;
+
+    @Column(name = "question_id", nullable = false)
+    private int questionId;
+
+    @Column(columnDefinition = "TEXT")
+    private String answer;
+
+    @Column(name = "recorded_at", nullable = false)
+    private LocalDateTime recordedAt;
+
+    public AttemptAnswerLog() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getAttemptId() {
+        return attemptId;
+    }
+
+    public void setAttemptId(Long attemptId) {
+        this.attemptId = attemptId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public int getExamId() {
+        return examId;
+    }
+
+    public void setExamId(int examId) {
+        this.examId = examId;
+    }
+
+    public int getSeq() {
+        return seq;
+    }
+
+    public void setSeq(int seq) {
+        this.seq = seq;
+    }
+
+    public int getQuestionId() {
+        return questionId;
+    }
+
+    public void setQuestionId(int questionId) {
+        this.questionId = questionId;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    public void setAnswer(String answer) {
+        this.answer = answer;
+    }
+
+    public LocalDateTime getRecordedAt() {
+        return recordedAt;
+    }
+
+    public void setRecordedAt(LocalDateTime recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+}
@@ -5,28 +5,48 @@ import java.util.List;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PrePersist;
 
 @Entity
 public class Exam {
 
+    public static final int DEFAULT_NUMBER_OF_SETS = 5;
+    public static final int MAX_NUMBER_OF_SETS = 500;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private int id;
     private String title;
     private int duration; 
 
+    // Per-candidate seeded question/option order instead of shared sets
+    @Column(columnDefinition = "boolean default false")
+    private boolean perCandidateShuffle;
+
+    // Number of shared question sets generated for the exam
+    @Column(columnDefinition = "int default " + DEFAULT_NUMBER_OF_SETS)
+    private Integer numberOfSets;
+
     @OneToMany(mappedBy = "exam", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     @JsonManagedReference
     private List<Question> questions;
 
     public Exam() {}
 
+    @PrePersist
+    protected void onCreate() {
+        if (numberOfSets == null) {
+            numberOfSets = DEFAULT_NUMBER_OF_SETS;
+        }
+    }
+
     public int getId() {
         return id;
     }
@@ -51,6 +71,27 @@ public class Exam {
         this.duration = duration;
     }
 
+    public boolean isPerCandidateShuffle() {
+        return perCandidateShuffle;
+    }
+
+    public void setPerCandidateShuffle(boolean perCandidateShuffle) {
+        this.perCandidateShuffle = perCandidateShuffle;
+    }
+
+    public Integer getNumberOfSets() {
+        return numberOfSets;
+    }
+
+    /** Configured set count, or the default for exams created before it existed. */
+    public int resolveNumberOfSets() {
+        return numberOfSets != null ? numberOfSets : DEFAULT_NUMBER_OF_SETS;
+    }
+
+    public void setNumberOfSets(Integer numberOfSets) {
+        this.numberOfSets = numberOfSets;
+    }
+
     public List<Question> getQuestions() {
         return questions;
     }
@@ -1,18 +1,13 @@
 package com.truerize.entity;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 
-import jakarta.persistence.CollectionTable;
 import jakarta.persistence.Column;
-import jakarta.persistence.ElementCollection;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.JoinColumn;
-import jakarta.persistence.OrderColumn;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 
@@ -30,11 +25,10 @@ public class ExamQuestionSet {
     @Column(nullable = false)
     private Integer setNumber;
 
-    @ElementCollection
-    @CollectionTable(name = "set_question_ids", joinColumns = @JoinColumn(name = "set_id"))
-    @Column(name = "question_id")
-    @OrderColumn(name = "question_order")
-    private List<String> questionIds = new ArrayList<>();
+    // Question ids in delivery order, packed as little-endian ints
+    @Convert(converter = PackedIntArrayConverter.class)
+    @Column(name = "question_order", columnDefinition = "MEDIUMBLOB")
+    private int[] questionIds = new int[0];
 
     @Column(nullable = false)
     private LocalDateTime createdAt;
@@ -71,11 +65,11 @@ public class ExamQuestionSet {
         this.setNumber = setNumber;
     }
 
-    public List<String> getQuestionIds() {
+    public int[] getQuestionIds() {
         return questionIds;
     }
 
-    public void setQuestionIds(List<String> questionIds) {
+    public void setQuestionIds(int[] questionIds) {
         this.questionIds = questionIds;
     }
 
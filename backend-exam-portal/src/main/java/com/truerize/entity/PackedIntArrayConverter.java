@@ -0,0 +1,43 @@
+package com.truerize.entity;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores an {@code int[]} as a single binary column of little-endian 32-bit
+ * integers, so an ordered id list is one row value instead of one row per id.
+ */
+@Converter
+public class PackedIntArrayConverter implements AttributeConverter<int[], byte[]> {
+
+    private static final int[] EMPTY = new int[0];
+
+    @Override
+    public byte[] convertToDatabaseColumn(int[] attribute) {
+        return attribute == null ? null : pack(attribute);
+    }
+
+    @Override
+    public int[] convertToEntityAttribute(byte[] dbData) {
+        return dbData == null ? EMPTY : unpack(dbData);
+    }
+
+    public static byte[] pack(int[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asIntBuffer().put(values);
+        return buffer.array();
+    }
+
+    public static int[] unpack(byte[] data) {
+        if (data.length % Integer.BYTES != 0) {
+            throw new IllegalArgumentException("Packed int data has invalid length: " + data.length);
+        }
+        int[] values = new int[data.length / Integer.BYTES];
+        ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values);
+        return values;
+    }
+}
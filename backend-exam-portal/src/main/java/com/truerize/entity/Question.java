@@ -5,6 +5,7 @@ import java.util.List;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.truerize.dto.RunMultipleRequestsDTO;
 
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Column;
@@ -46,6 +47,32 @@ class StringListConverter implements AttributeConverter<List<String>, String> {
     }
 }
 
+@Converter
+class TestCaseListConverter implements AttributeConverter<List<RunMultipleRequestsDTO.TestCase>, String> {
+
+    private final com.fasterxml.jackson.databind.ObjectMapper mapper =
+            new com.fasterxml.jackson.databind.ObjectMapper();
+
+    @Override
+    public String convertToDatabaseColumn(List<RunMultipleRequestsDTO.TestCase> attribute) {
+        try {
+            return attribute == null ? null : mapper.writeValueAsString(attribute);
+        } catch (Exception e) {
+            throw new RuntimeException("Error converting test cases to JSON string", e);
+        }
+    }
+
+    @Override
+    public List<RunMultipleRequestsDTO.TestCase> convertToEntityAttribute(String dbData) {
+        try {
+            return dbData == null ? null :
+                    mapper.readValue(dbData, new TypeReference<List<RunMultipleRequestsDTO.TestCase>>() {});
+        } catch (Exception e) {
+            throw new RuntimeException("Error converting JSON string to test cases", e);
+        }
+    }
+}
+
 @Entity
 @Table(name = "question")
 public class Question {
@@ -76,6 +103,10 @@ public class Question {
     @NotNull
     private Integer marks;
 
+    // Free-form tag such as EASY / MEDIUM / HARD; balanced set generation spreads it evenly
+    @Column(length = 20)
+    private String difficulty;
+
     @NotNull
     private Integer qNo;
 
@@ -83,6 +114,11 @@ public class Question {
     @Column(columnDefinition = "TEXT")
     private List<String> options;
 
+    // Hidden test cases used to auto-grade coding answers; never sent to candidates
+    @Convert(converter = TestCaseListConverter.class)
+    @Column(name = "test_cases", columnDefinition = "TEXT")
+    private List<RunMultipleRequestsDTO.TestCase> testCases;
+
     public Question() {}
 
     public int getId() { return id; }
@@ -106,12 +142,18 @@ public class Question {
     public Integer getMarks() { return marks; }
     public void setMarks(Integer marks) { this.marks = marks; }
 
+    public String getDifficulty() { return difficulty; }
+    public void setDifficulty(String difficulty) { this.difficulty = difficulty; }
+
     public Integer getqNo() { return qNo; }
     public void setqNo(Integer qNo) { this.qNo = qNo; }
 
     public List<String> getOptions() { return options; }
     public void setOptions(List<String> options) { this.options = options; }
 
+    public List<RunMultipleRequestsDTO.TestCase> getTestCases() { return testCases; }
+    public void setTestCases(List<RunMultipleRequestsDTO.TestCase> testCases) { this.testCases = testCases; }
+
     @Override
     public String toString() {
         return "Question{id=" + id + ", type='" + type + 
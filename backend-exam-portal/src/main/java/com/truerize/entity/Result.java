@@ -5,8 +5,17 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 
 @Entity
+@Table(name = "result", indexes = {
+    @Index(name = "idx_result_score", columnList = "score, id"),
+    @Index(name = "idx_result_name", columnList = "name, id"),
+    @Index(name = "idx_result_exam_score", columnList = "exam, score, id"),
+    @Index(name = "idx_result_status_score", columnList = "status, score, id"),
+    @Index(name = "idx_result_college", columnList = "college_name, id")
+})
 public class Result {
 	
 	@Id
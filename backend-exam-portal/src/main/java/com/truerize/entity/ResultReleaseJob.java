@@ -0,0 +1,180 @@
+package com.truerize.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Checkpoint of a bulk result release. {@code lastResultId} and the counters
+ * are written in the same transaction as each released chunk, so after a
+ * crash the job carries on from the first result it had not yet released.
+ */
+@Entity
+@Table(name = "result_release_jobs")
+public class ResultReleaseJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    /** Unreleased results when the job was created. */
+    @Column(name = "total_results", nullable = false)
+    private int totalResults;
+
+    @Column(name = "last_result_id", nullable = false)
+    private int lastResultId;
+
+    @Column(nullable = false)
+    private int released;
+
+    @Column(nullable = false)
+    private int passed;
+
+    @Column(nullable = false)
+    private int regretted;
+
+    /** Released results that had no email address to notify. */
+    @Column(name = "without_email", nullable = false)
+    private int withoutEmail;
+
+    @Column(nullable = false)
+    private int chunks;
+
+    @Column(nullable = false)
+    private int resumes;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    public ResultReleaseJob() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getTotalResults() {
+        return totalResults;
+    }
+
+    public void setTotalResults(int totalResults) {
+        this.totalResults = totalResults;
+    }
+
+    public int getLastResultId() {
+        return lastResultId;
+    }
+
+    public void setLastResultId(int lastResultId) {
+        this.lastResultId = lastResultId;
+    }
+
+    public int getReleased() {
+        return released;
+    }
+
+    public void setReleased(int released) {
+        this.released = released;
+    }
+
+    public int getPassed() {
+        return passed;
+    }
+
+    public void setPassed(int passed) {
+        this.passed = passed;
+    }
+
+    public int getRegretted() {
+        return regretted;
+    }
+
+    public void setRegretted(int regretted) {
+        this.regretted = regretted;
+    }
+
+    public int getWithoutEmail() {
+        return withoutEmail;
+    }
+
+    public void setWithoutEmail(int withoutEmail) {
+        this.withoutEmail = withoutEmail;
+    }
+
+    public int getChunks() {
+        return chunks;
+    }
+
+    public void setChunks(int chunks) {
+        this.chunks = chunks;
+    }
+
+    public int getResumes() {
+        return resumes;
+    }
+
+    public void setResumes(int resumes) {
+        this.resumes = resumes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
@@ -7,11 +7,14 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "student_exam_assignments")
+@Table(name = "student_exam_assignments",
+       indexes = @Index(name = "idx_assignment_exam_set",
+                        columnList = "exam_id, assigned_set_number, has_started, has_completed"))
 public class StudentExamAssignment {
     
     @Id
@@ -43,6 +46,9 @@ public class StudentExamAssignment {
     
     private LocalDateTime completedAt;
     
+    // Set only for exams with per-candidate shuffle; drives question and option order
+    private Long permutationSeed;
+    
     @PrePersist
     protected void onCreate() {
         assignedAt = LocalDateTime.now();
@@ -128,4 +134,12 @@ public class StudentExamAssignment {
     public void setCompletedAt(LocalDateTime completedAt) {
         this.completedAt = completedAt;
     }
+    
+    public Long getPermutationSeed() {
+        return permutationSeed;
+    }
+    
+    public void setPermutationSeed(Long permutationSeed) {
+        this.permutationSeed = permutationSeed;
+    }
 }
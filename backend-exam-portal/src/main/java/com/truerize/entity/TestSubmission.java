@@ -40,6 +40,18 @@ public class TestSubmission {
 
     private String videoUrl;
 
+    // One submission per attempt (user, exam and assignment); retries with the same key return the original row
+    @Column(name = "idempotency_key", unique = true, length = 160)
+    private String idempotencyKey;
+
+    // Failed test-case grading runs; grading is abandoned after code.grading.max-attempts
+    @Column(name = "grading_attempts")
+    private Integer gradingAttempts;
+
+    // Completed with its objective score only: the coding answers could not be graded
+    @Column(name = "coding_ungraded")
+    private Boolean codingUngraded;
+
     // 🗑️ Removed ProctoringEvent relationship
 
     public TestSubmission() {
@@ -109,4 +121,28 @@ public class TestSubmission {
     public void setVideoUrl(String videoUrl) {
         this.videoUrl = videoUrl;
     }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public Integer getGradingAttempts() {
+        return gradingAttempts;
+    }
+
+    public void setGradingAttempts(Integer gradingAttempts) {
+        this.gradingAttempts = gradingAttempts;
+    }
+
+    public Boolean getCodingUngraded() {
+        return codingUngraded;
+    }
+
+    public void setCodingUngraded(Boolean codingUngraded) {
+        this.codingUngraded = codingUngraded;
+    }
 }
@@ -0,0 +1,31 @@
+package com.truerize.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.truerize.entity.AttemptAnswerLog;
+
+@Repository
+public interface AttemptAnswerLogRepository extends JpaRepository<AttemptAnswerLog, Long> {
+
+    List<AttemptAnswerLog> findByAttemptIdOrderBySeqAsc(Long attemptId);
+
+    @Query("SELECT COALESCE(MAX(l.seq), 0) FROM AttemptAnswerLog l WHERE l.attemptId = :attemptId")
+    int findLastSeq(@Param("attemptId") Long attemptId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AttemptAnswerLog l WHERE l.attemptId = :attemptId")
+    int deleteByAttemptId(@Param("attemptId") Long attemptId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AttemptAnswerLog l WHERE l.examId = :examId")
+    int deleteByExamId(@Param("examId") int examId);
+}
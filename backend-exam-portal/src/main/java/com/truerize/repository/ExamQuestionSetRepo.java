@@ -22,6 +22,8 @@ public interface ExamQuestionSetRepo extends JpaRepository<ExamQuestionSet, Long
     Optional<ExamQuestionSet> findByExamIdAndSetNumberAndIsActiveTrue(Integer examId, Integer setNumber);
     
     long countByExamIdAndIsActiveTrue(Integer examId);
+
+    long countByExamId(Integer examId);
     
     @Transactional
     @Modifying
@@ -0,0 +1,12 @@
+package com.truerize.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.truerize.entity.MailOutbox;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+
+    long countByStatus(String status);
+}
@@ -1,13 +1,41 @@
 package com.truerize.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.truerize.dto.StudentQuestionDTO;
 import com.truerize.entity.Question;
 
 public interface QuestionRepository extends JpaRepository<Question, Integer> {
+
+    // mcq -> single/multiple (by answer shape), verbal -> read-speak; evaluated by MySQL
+    String STUDENT_TYPE =
+            "CASE WHEN LOWER(q.type) = 'mcq' THEN "
+          + "(CASE WHEN LOCATE(',', q.answer) > 0 THEN 'multiple' ELSE 'single' END) "
+          + "WHEN LOWER(q.type) = 'verbal' THEN 'read-speak' "
+          + "WHEN LOWER(q.type) = 'coding' THEN 'coding' "
+          + "ELSE q.type END";
+
+    String STUDENT_VIEW =
+            "SELECT new com.truerize.dto.StudentQuestionDTO("
+          + "q.id, q.section, " + STUDENT_TYPE + ", q.questionText, q.marks, q.qNo, q.options) "
+          + "FROM Question q ";
+
     List<Question> findByExam_IdOrderByQNoAsc(int examId);
 
 	List<Question> findByExamId(int id);
+
+    /** Rows of {@code [id, section]}; enough to validate sets without loading questions. */
+    @Query("SELECT q.id, q.section FROM Question q WHERE q.exam.id = :examId")
+    List<Object[]> findIdsAndSectionsByExamId(@Param("examId") int examId);
+
+    @Query(STUDENT_VIEW + "WHERE q.exam.id = :examId ORDER BY q.qNo ASC")
+    List<StudentQuestionDTO> findStudentViewsByExamId(@Param("examId") int examId);
+
+    @Query(STUDENT_VIEW + "WHERE q.id IN :ids")
+    List<StudentQuestionDTO> findStudentViewsByIdIn(@Param("ids") Collection<Integer> ids);
 }
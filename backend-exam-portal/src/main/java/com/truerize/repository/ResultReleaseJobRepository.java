@@ -0,0 +1,17 @@
+package com.truerize.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.truerize.entity.ResultReleaseJob;
+
+@Repository
+public interface ResultReleaseJobRepository extends JpaRepository<ResultReleaseJob, Long> {
+
+    List<ResultReleaseJob> findByStatusOrderByIdAsc(String status);
+
+    Optional<ResultReleaseJob> findFirstByOrderByIdDesc();
+}
@@ -4,6 +4,8 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.truerize.entity.StudentExamAssignment;
@@ -18,6 +20,18 @@ public interface StudentExamAssignmentRepo extends JpaRepository<StudentExamAssi
     long countByExamId(int examId);
     
     long countByExamIdAndAssignedSetNumber(int examId, int setNumber);
+
+    /** Rows of {@code [setNumber, students]} for the exam. */
+    @Query("SELECT a.assignedSetNumber, COUNT(a) FROM StudentExamAssignment a "
+            + "WHERE a.examId = :examId GROUP BY a.assignedSetNumber")
+    List<Object[]> countBySetNumber(@Param("examId") int examId);
+
+    /** Rows of {@code [setNumber, assigned, started, completed]} for the exam. */
+    @Query("SELECT a.assignedSetNumber, COUNT(a), "
+            + "SUM(CASE WHEN a.hasStarted = true THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN a.hasCompleted = true THEN 1 ELSE 0 END) "
+            + "FROM StudentExamAssignment a WHERE a.examId = :examId GROUP BY a.assignedSetNumber")
+    List<Object[]> summarizeBySetNumber(@Param("examId") int examId);
     
     int deleteByExamId(int examId);
 }
\ No newline at end of file
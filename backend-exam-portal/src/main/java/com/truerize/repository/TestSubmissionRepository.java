@@ -1,8 +1,12 @@
 package com.truerize.repository;
 
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.truerize.entity.TestSubmission;
@@ -13,4 +17,9 @@ public interface TestSubmissionRepository extends JpaRepository<TestSubmission,
     List<TestSubmission> findByUserId(int userId);
     List<TestSubmission> findByExamId(int examId);
 	TestSubmission save(TestSubmission submission);
+
+    Optional<TestSubmission> findByIdempotencyKey(String idempotencyKey);
+
+    @Query("SELECT s.id FROM TestSubmission s WHERE s.status = :status ORDER BY s.id")
+    List<Integer> findIdsByStatus(@Param("status") String status, Pageable pageable);
 }
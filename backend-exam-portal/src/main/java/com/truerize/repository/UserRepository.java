@@ -1,9 +1,12 @@
 package com.truerize.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.truerize.entity.User;
@@ -22,4 +25,8 @@ public interface UserRepository extends JpaRepository<User, Integer> {
     long countByStatus(String status);
    
     Optional<User> findByEmailAndPassword(String email, String password);
+
+    /** Rows of {@code [id, email]}; skips the eagerly fetched roles of a full load. */
+    @Query("SELECT u.id, u.email FROM User u WHERE u.id IN :ids")
+    List<Object[]> findEmailsByIdIn(@Param("ids") Collection<Integer> ids);
 }
\ No newline at end of file
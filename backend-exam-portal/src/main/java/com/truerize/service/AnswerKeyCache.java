@@ -0,0 +1,90 @@
+package com.truerize.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.truerize.entity.Exam;
+import com.truerize.repository.ExamQuestionSetRepo;
+import com.truerize.repository.ExamRepository;
+import com.truerize.repository.QuestionRepository;
+
+/**
+ * Compiled answer keys keyed by exam id. A key is built from the question bank
+ * on first use and reused for every submission until a question or the exam
+ * changes or its question sets are regenerated, so scoring at the submission
+ * deadline does not touch the database.
+ */
+@Service
+public class AnswerKeyCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerKeyCache.class);
+
+    private final Map<Integer, CompiledAnswerKey> keys = new ConcurrentHashMap<>();
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private ExamQuestionSetRepo examQuestionSetRepo;
+
+    /**
+     * Returns the exam's answer key, compiling it once on a miss. Keys of
+     * exams without questions (or that do not exist) are not cached, so
+     * requests for arbitrary exam ids cannot grow the map.
+     */
+    public CompiledAnswerKey get(int examId) {
+        CompiledAnswerKey[] uncached = new CompiledAnswerKey[1];
+        CompiledAnswerKey key = keys.computeIfAbsent(examId, id -> {
+            CompiledAnswerKey compiled = compile(id);
+            if (compiled.size() > 0) {
+                return compiled;
+            }
+            uncached[0] = compiled;
+            return null;
+        });
+        return key != null ? key : uncached[0];
+    }
+
+    private CompiledAnswerKey compile(int examId) {
+        boolean perCandidateShuffle = examRepository.findById(examId)
+                .map(Exam::isPerCandidateShuffle)
+                .orElse(false);
+
+        CompiledAnswerKey key = CompiledAnswerKey.compile(
+                examId, perCandidateShuffle, questionRepository.findByExamId(examId),
+                examQuestionSetRepo.findByExamIdAndIsActiveTrue(examId));
+
+        if (key.size() > 0) {
+            log.info("Compiled answer key for exam {} ({} questions{})", examId, key.size(),
+                    key.hasSets() ? ", scored per question set" : "");
+        }
+        return key;
+    }
+
+    /**
+     * Drops the exam's key. Inside a transaction the eviction is repeated
+     * after commit so a concurrent compile cannot cache the old questions.
+     */
+    public void invalidate(int examId) {
+        keys.remove(examId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    keys.remove(examId);
+                }
+            });
+        }
+    }
+}
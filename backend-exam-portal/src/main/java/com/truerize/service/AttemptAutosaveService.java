@@ -0,0 +1,283 @@
+package com.truerize.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.truerize.entity.AttemptAnswerLog;
+import com.truerize.repository.AttemptAnswerLogRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Per-question answer autosave. Deltas are buffered per attempt (the
+ * candidate's {@code StudentExamAssignment} id); within one flush window only
+ * the newest answer to each question is kept, and all attempts are written to
+ * the append-only {@code attempt_answer_log} in a single JDBC batch. An
+ * attempt's log is cleared once it is submitted or the candidate is
+ * reassigned.
+ *
+ * <p>Clients send deltas one at a time with a strictly increasing
+ * {@code seq}; a delta whose seq is not above the last accepted one is a
+ * retry and is acknowledged without being stored again.
+ */
+@Service
+public class AttemptAutosaveService {
+
+    private static final Logger log = LoggerFactory.getLogger(AttemptAutosaveService.class);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO attempt_answer_log (attempt_id, user_id, exam_id, seq, question_id, answer, recorded_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AttemptAnswerLogRepository attemptAnswerLogRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${autosave.idle-eviction-ms:600000}")
+    private long idleEvictionMillis;
+
+    private final Map<Long, PendingAttempt> attempts = new ConcurrentHashMap<>();
+
+    /** Serializes flushes so a resume never reads the log while rows are still on their way. */
+    private final Object flushLock = new Object();
+
+    private static final class Delta {
+        final int seq;
+        final String answer;
+        final LocalDateTime recordedAt;
+
+        Delta(int seq, String answer, LocalDateTime recordedAt) {
+            this.seq = seq;
+            this.answer = answer;
+            this.recordedAt = recordedAt;
+        }
+    }
+
+    private static final class PendingAttempt {
+        final long attemptId;
+        final int userId;
+        final int examId;
+        int lastSeq;
+        int persistedSeq;
+        long lastTouched = System.currentTimeMillis();
+        boolean evicted;
+        Map<Integer, Delta> deltas = new HashMap<>();
+
+        PendingAttempt(long attemptId, int userId, int examId, int persistedSeq) {
+            this.attemptId = attemptId;
+            this.userId = userId;
+            this.examId = examId;
+            this.lastSeq = persistedSeq;
+            this.persistedSeq = persistedSeq;
+        }
+    }
+
+    private PendingAttempt attempt(long attemptId, int userId, int examId) {
+        PendingAttempt attempt = attempts.get(attemptId);
+        if (attempt != null) {
+            return attempt;
+        }
+        int persistedSeq = attemptAnswerLogRepository.findLastSeq(attemptId);
+        return attempts.computeIfAbsent(attemptId, k -> new PendingAttempt(attemptId, userId, examId, persistedSeq));
+    }
+
+    /**
+     * Buffers one answer delta and returns the last accepted sequence number
+     * of the attempt.
+     */
+    public int recordAnswer(long attemptId, int userId, int examId, int seq, int questionId, String answer) {
+        while (true) {
+            PendingAttempt attempt = attempt(attemptId, userId, examId);
+            synchronized (attempt) {
+                if (attempt.evicted) {
+                    continue;
+                }
+                if (seq > attempt.lastSeq) {
+                    attempt.deltas.put(questionId, new Delta(seq, answer, LocalDateTime.now()));
+                    attempt.lastSeq = seq;
+                }
+                attempt.lastTouched = System.currentTimeMillis();
+                return attempt.lastSeq;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${autosave.flush-interval-ms:2000}")
+    public void flush() {
+        synchronized (flushLock) {
+            long idleBefore = System.currentTimeMillis() - idleEvictionMillis;
+            List<PendingAttempt> drained = new ArrayList<>();
+            List<Map<Integer, Delta>> batches = new ArrayList<>();
+
+            for (Map.Entry<Long, PendingAttempt> entry : attempts.entrySet()) {
+                PendingAttempt attempt = entry.getValue();
+                synchronized (attempt) {
+                    if (!attempt.deltas.isEmpty()) {
+                        drained.add(attempt);
+                        batches.add(attempt.deltas);
+                        attempt.deltas = new HashMap<>();
+                    } else if (attempt.lastTouched < idleBefore) {
+                        attempt.evicted = true;
+                        attempts.remove(entry.getKey(), attempt);
+                    }
+                }
+            }
+            write(drained, batches);
+        }
+    }
+
+    /** Flushes one attempt immediately and returns its last persisted sequence number. */
+    public int flushAttempt(long attemptId, int userId, int examId) {
+        synchronized (flushLock) {
+            PendingAttempt attempt = attempt(attemptId, userId, examId);
+            Map<Integer, Delta> batch;
+            synchronized (attempt) {
+                batch = attempt.deltas;
+                attempt.deltas = new HashMap<>();
+            }
+            if (!batch.isEmpty()) {
+                write(List.of(attempt), List.of(batch));
+            }
+            synchronized (attempt) {
+                return attempt.persistedSeq;
+            }
+        }
+    }
+
+    private void write(List<PendingAttempt> drained, List<Map<Integer, Delta>> batches) {
+        if (drained.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < drained.size(); i++) {
+            PendingAttempt attempt = drained.get(i);
+            for (Map.Entry<Integer, Delta> delta : batches.get(i).entrySet()) {
+                rows.add(new Object[] {
+                    attempt.attemptId, attempt.userId, attempt.examId, delta.getValue().seq, delta.getKey(),
+                    delta.getValue().answer, Timestamp.valueOf(delta.getValue().recordedAt)
+                });
+            }
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        } catch (RuntimeException e) {
+            log.error("Autosave flush of {} answers failed; keeping them buffered", rows.size(), e);
+            for (int i = 0; i < drained.size(); i++) {
+                restore(drained.get(i), batches.get(i));
+            }
+            return;
+        }
+
+        for (int i = 0; i < drained.size(); i++) {
+            PendingAttempt attempt = drained.get(i);
+            int maxSeq = batches.get(i).values().stream().mapToInt(d -> d.seq).max().orElse(0);
+            synchronized (attempt) {
+                attempt.persistedSeq = Math.max(attempt.persistedSeq, maxSeq);
+            }
+        }
+    }
+
+    private void restore(PendingAttempt attempt, Map<Integer, Delta> batch) {
+        synchronized (attempt) {
+            batch.forEach((questionId, delta) -> attempt.deltas.merge(questionId, delta,
+                (newer, older) -> newer.seq >= older.seq ? newer : older));
+            if (attempt.evicted) {
+                attempt.evicted = false;
+                attempts.putIfAbsent(attempt.attemptId, attempt);
+            }
+        }
+    }
+
+    /**
+     * Drops the attempt's autosaved answers, buffered and persisted. Called
+     * once the attempt is submitted or replaced by a new assignment.
+     */
+    public void clearAttempt(long attemptId) {
+        synchronized (flushLock) {
+            discard(attempt -> attempt.attemptId == attemptId);
+            attemptAnswerLogRepository.deleteByAttemptId(attemptId);
+        }
+    }
+
+    /** Drops the autosaved answers of every candidate of the exam, e.g. when its set assignments are reset. */
+    public void clearExam(int examId) {
+        synchronized (flushLock) {
+            discard(attempt -> attempt.examId == examId);
+            attemptAnswerLogRepository.deleteByExamId(examId);
+        }
+    }
+
+    private void discard(Predicate<PendingAttempt> matches) {
+        for (PendingAttempt attempt : attempts.values()) {
+            if (matches.test(attempt)) {
+                synchronized (attempt) {
+                    attempt.evicted = true;
+                    attempt.deltas = new HashMap<>();
+                    attempts.remove(attempt.attemptId, attempt);
+                }
+            }
+        }
+    }
+
+    /** Latest answer per question of the attempt, keyed by question id as in {@code answersJson}. */
+    public Map<String, String> latestAnswers(long attemptId, int userId, int examId) {
+        flushAttempt(attemptId, userId, examId);
+
+        Map<String, String> answers = new LinkedHashMap<>();
+        for (AttemptAnswerLog row : attemptAnswerLogRepository.findByAttemptIdOrderBySeqAsc(attemptId)) {
+            // A null answer records a cleared response
+            if (row.getAnswer() == null) {
+                answers.remove(String.valueOf(row.getQuestionId()));
+            } else {
+                answers.put(String.valueOf(row.getQuestionId()), row.getAnswer());
+            }
+        }
+        return answers;
+    }
+
+    /** Answer sheet and sequence number a reconnecting client resumes from. */
+    public Map<String, Object> resume(long attemptId, int userId, int examId) {
+        Map<String, String> answers = latestAnswers(attemptId, userId, examId);
+
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("examId", examId);
+        state.put("lastSeq", flushAttempt(attemptId, userId, examId));
+        state.put("answers", answers);
+        return state;
+    }
+
+    public String buildAnswersJson(long attemptId, int userId, int examId) throws JsonProcessingException {
+        return objectMapper.writer()
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .writeValueAsString(latestAnswers(attemptId, userId, examId));
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,303 @@
+package com.truerize.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Draws question sets from a larger bank so that every set is equally hard.
+ * Within each section a set takes a fixed number of questions, an even share
+ * of every difficulty tag (in proportion to the bank) and, where the bank
+ * allows it, the same total marks as every other set.
+ *
+ * <p>Each section is solved independently: a random draw meets the
+ * difficulty quotas by construction, then random swaps between a drawn and
+ * an undrawn question of the same difficulty walk the marks total to its
+ * target, accepting only swaps that get closer. Draws whose question
+ * selection repeats an earlier set are retried, so sets are distinct
+ * whenever the bank is large enough.
+ */
+public final class BalancedSetSolver {
+
+    /** Difficulty bucket for questions without a tag. */
+    public static final String UNTAGGED = "UNTAGGED";
+
+    private static final int DISTINCT_RETRIES = 20;
+    private static final int SWAPS_PER_QUESTION = 64;
+
+    /** Questions of one section and how many of them each set takes. */
+    public static final class Section {
+        final String name;
+        final int[] ids;
+        final int[] marks;
+        /** Question indices grouped by difficulty; names in {@link #difficultyNames}. */
+        final int[][] byDifficulty;
+        final String[] difficultyNames;
+        final int count;
+        final int[] quotas;
+        final int targetMarks;
+
+        public Section(String name, int[] ids, int[] marks, String[] difficulties, int count) {
+            if (count < 0 || count > ids.length) {
+                throw new IllegalArgumentException("Section " + name + " has " + ids.length
+                        + " questions, cannot draw " + count);
+            }
+            this.name = name;
+            this.ids = ids;
+            this.marks = marks;
+            this.count = count;
+
+            Map<String, List<Integer>> groups = new LinkedHashMap<>();
+            for (int i = 0; i < ids.length; i++) {
+                String tag = difficulties[i] == null || difficulties[i].isBlank()
+                        ? UNTAGGED : difficulties[i].trim().toUpperCase();
+                groups.computeIfAbsent(tag, t -> new ArrayList<>()).add(i);
+            }
+            difficultyNames = groups.keySet().toArray(new String[0]);
+            byDifficulty = groups.values().stream()
+                    .map(list -> list.stream().mapToInt(Integer::intValue).toArray())
+                    .toArray(int[][]::new);
+
+            quotas = quotas(byDifficulty, count);
+            targetMarks = targetMarks(byDifficulty, marks, quotas);
+        }
+
+        /** Largest-remainder split of {@code count} in proportion to each difficulty's share of the bank. */
+        private static int[] quotas(int[][] groups, int count) {
+            int total = 0;
+            for (int[] group : groups) {
+                total += group.length;
+            }
+            int[] quotas = new int[groups.length];
+            double[] remainders = new double[groups.length];
+            int assigned = 0;
+            for (int d = 0; d < groups.length; d++) {
+                double exact = total == 0 ? 0 : (double) count * groups[d].length / total;
+                quotas[d] = (int) exact;
+                remainders[d] = exact - quotas[d];
+                assigned += quotas[d];
+            }
+            while (assigned < count) {
+                int best = -1;
+                for (int d = 0; d < groups.length; d++) {
+                    if (quotas[d] < groups[d].length && (best < 0 || remainders[d] > remainders[best])) {
+                        best = d;
+                    }
+                }
+                quotas[best]++;
+                remainders[best] = -1;
+                assigned++;
+            }
+            return quotas;
+        }
+
+        /** Expected marks of a draw meeting the quotas, clamped to what the bank can actually reach. */
+        private static int targetMarks(int[][] groups, int[] marks, int[] quotas) {
+            double expected = 0;
+            long lowest = 0;
+            long highest = 0;
+            for (int d = 0; d < groups.length; d++) {
+                int[] sorted = new int[groups[d].length];
+                long sum = 0;
+                for (int i = 0; i < sorted.length; i++) {
+                    sorted[i] = marks[groups[d][i]];
+                    sum += sorted[i];
+                }
+                Arrays.sort(sorted);
+                for (int i = 0; i < quotas[d]; i++) {
+                    lowest += sorted[i];
+                    highest += sorted[sorted.length - 1 - i];
+                }
+                expected += sorted.length == 0 ? 0 : (double) sum * quotas[d] / sorted.length;
+            }
+            return (int) Math.max(lowest, Math.min(highest, Math.round(expected)));
+        }
+    }
+
+    /** One generated set: question ids in section order, plus the balance it achieved. */
+    public static final class DrawnSet {
+        final int[] order;
+        final Map<String, Object> balance;
+        final boolean balanced;
+        final boolean distinct;
+
+        DrawnSet(int[] order, Map<String, Object> balance, boolean balanced, boolean distinct) {
+            this.order = order;
+            this.balance = balance;
+            this.balanced = balanced;
+            this.distinct = distinct;
+        }
+
+        public int[] getOrder() {
+            return order;
+        }
+
+        public Map<String, Object> getBalance() {
+            return balance;
+        }
+
+        public boolean isBalanced() {
+            return balanced;
+        }
+
+        public boolean isDistinct() {
+            return distinct;
+        }
+    }
+
+    private BalancedSetSolver() {}
+
+    /** Target total marks of every set. */
+    public static int targetMarks(List<Section> sections) {
+        int total = 0;
+        for (Section section : sections) {
+            total += section.targetMarks;
+        }
+        return total;
+    }
+
+    public static List<DrawnSet> solve(List<Section> sections, int numberOfSets, SplittableRandom random) {
+        int setSize = 0;
+        for (Section section : sections) {
+            setSize += section.count;
+        }
+
+        // Per-section scratch: positions [0, quota) of each difficulty row are the drawn questions
+        int[][][] scratch = new int[sections.size()][][];
+        for (int s = 0; s < sections.size(); s++) {
+            Section section = sections.get(s);
+            scratch[s] = new int[section.byDifficulty.length][];
+            for (int d = 0; d < section.byDifficulty.length; d++) {
+                scratch[s][d] = section.byDifficulty[d].clone();
+            }
+        }
+
+        Set<Long> seen = new HashSet<>();
+        List<DrawnSet> sets = new ArrayList<>(numberOfSets);
+        int[] sums = new int[sections.size()];
+
+        for (int setNum = 0; setNum < numberOfSets; setNum++) {
+            int[] order = new int[setSize];
+            boolean distinct = false;
+
+            for (int attempt = 0; attempt < DISTINCT_RETRIES && !distinct; attempt++) {
+                int position = 0;
+                for (int s = 0; s < sections.size(); s++) {
+                    Section section = sections.get(s);
+                    sums[s] = draw(section, scratch[s], random);
+                    int from = position;
+                    for (int d = 0; d < scratch[s].length; d++) {
+                        for (int i = 0; i < section.quotas[d]; i++) {
+                            order[position++] = section.ids[scratch[s][d][i]];
+                        }
+                    }
+                    shuffle(order, from, position, random);
+                }
+                distinct = seen.add(fingerprint(order));
+            }
+
+            sets.add(describe(sections, scratch, sums, order, distinct));
+        }
+        return sets;
+    }
+
+    /**
+     * Draws one section into {@code rows} and repairs its marks total.
+     * Returns the total reached.
+     */
+    private static int draw(Section section, int[][] rows, SplittableRandom random) {
+        int sum = 0;
+        for (int d = 0; d < rows.length; d++) {
+            int[] row = rows[d];
+            // Partial Fisher-Yates: a uniform sample of quota questions lands in row[0, quota)
+            for (int i = 0; i < section.quotas[d]; i++) {
+                int j = i + random.nextInt(row.length - i);
+                int swap = row[i];
+                row[i] = row[j];
+                row[j] = swap;
+                sum += section.marks[row[i]];
+            }
+        }
+
+        int steps = SWAPS_PER_QUESTION * Math.max(1, section.count);
+        for (int step = 0; step < steps && sum != section.targetMarks; step++) {
+            int d = random.nextInt(rows.length);
+            int quota = section.quotas[d];
+            int[] row = rows[d];
+            if (quota == 0 || quota == row.length) {
+                continue;
+            }
+            int in = random.nextInt(quota);
+            int out = quota + random.nextInt(row.length - quota);
+            int next = sum - section.marks[row[in]] + section.marks[row[out]];
+            if (Math.abs(section.targetMarks - next) < Math.abs(section.targetMarks - sum)) {
+                int swap = row[in];
+                row[in] = row[out];
+                row[out] = swap;
+                sum = next;
+            }
+        }
+        return sum;
+    }
+
+    private static void shuffle(int[] order, int from, int to, SplittableRandom random) {
+        for (int i = to - 1; i > from; i--) {
+            int j = from + random.nextInt(i - from + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+
+    /** Order-independent 64-bit fingerprint of the drawn question ids. */
+    private static long fingerprint(int[] order) {
+        long sum = 0;
+        long xor = 0;
+        for (int id : order) {
+            long mixed = QuestionPermutation.mix(id);
+            sum += mixed;
+            xor ^= QuestionPermutation.mix(mixed);
+        }
+        return QuestionPermutation.mix(sum ^ Long.rotateLeft(xor, 32));
+    }
+
+    private static DrawnSet describe(List<Section> sections, int[][][] scratch, int[] sums,
+                                     int[] order, boolean distinct) {
+        Map<String, Object> perSection = new LinkedHashMap<>();
+        int totalMarks = 0;
+        boolean balanced = true;
+
+        for (int s = 0; s < sections.size(); s++) {
+            Section section = sections.get(s);
+            Map<String, Integer> difficulty = new LinkedHashMap<>();
+            for (int d = 0; d < section.difficultyNames.length; d++) {
+                if (section.quotas[d] > 0) {
+                    difficulty.put(section.difficultyNames[d], section.quotas[d]);
+                }
+            }
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("questions", section.count);
+            stats.put("marks", sums[s]);
+            stats.put("targetMarks", section.targetMarks);
+            stats.put("difficulty", difficulty);
+            perSection.put(section.name, stats);
+
+            totalMarks += sums[s];
+            balanced &= sums[s] == section.targetMarks;
+        }
+
+        Map<String, Object> balance = new LinkedHashMap<>();
+        balance.put("totalMarks", totalMarks);
+        balance.put("marksDeviation", totalMarks - targetMarks(sections));
+        balance.put("balanced", balanced);
+        balance.put("distinct", distinct);
+        balance.put("sections", perSection);
+        return new DrawnSet(order, balance, balanced, distinct);
+    }
+}
@@ -0,0 +1,339 @@
+package com.truerize.service;
+
+import java.security.SecureRandom;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.truerize.entity.Exam;
+import com.truerize.repository.ExamRepository;
+import com.truerize.repository.UserRepository;
+
+/**
+ * Assigns an exam to a large cohort of candidates. User ids are processed in
+ * chunks, one transaction per chunk: the chunk's users are read with one
+ * query, sets and slots are taken from {@link SetLoadBalancer} in memory, and
+ * the exam links, status updates, set assignments and invitation emails (to
+ * the {@link MailOutboxService outbox}) are written as JDBC batches.
+ *
+ * <p>A failing chunk is rolled back and reported without stopping the job.
+ * Jobs run on a small dedicated pool and report their progress through
+ * {@link #getJob}.
+ */
+@Service
+public class BulkAssignmentService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkAssignmentService.class);
+
+    private static final String INSERT_LINK_SQL =
+            "INSERT INTO user_assigned_exams (user_id, exam_id) VALUES (?, ?)";
+    private static final String UPDATE_STATUS_SQL =
+            "UPDATE user SET status = ? WHERE id = ?";
+    private static final String INSERT_ASSIGNMENT_SQL =
+            "INSERT INTO student_exam_assignments (student_id, exam_id, assigned_set_number, slot_number, "
+            + "assigned_at, has_started, has_completed, permutation_seed) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String ASSIGNED_STATUS = "Assigned Exam";
+    private static final int MAX_REPORTED_FAILURES = 1000;
+    private static final int MAX_JOBS_KEPT = 100;
+
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private ExamSetService examSetService;
+
+    @Autowired
+    private SetLoadBalancer setLoadBalancer;
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${assignment.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    @Autowired
+    @Qualifier("bulkAssignExecutor")
+    private InstrumentedExecutor workers;
+
+    /** Recent jobs by id, oldest evicted first. */
+    private final Map<String, Job> jobs = Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > MAX_JOBS_KEPT;
+        }
+    });
+
+    /** Progress of one bulk assignment; counters are updated as chunks complete. */
+    public static class Job {
+        private final String id = UUID.randomUUID().toString();
+        private final int examId;
+        private final int totalUsers;
+        private final int totalChunks;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicInteger chunksCompleted = new AtomicInteger();
+        private final AtomicInteger chunksFailed = new AtomicInteger();
+        private final AtomicInteger assigned = new AtomicInteger();
+        private final AtomicInteger alreadyAssigned = new AtomicInteger();
+        private final AtomicInteger emailsQueued = new AtomicInteger();
+        private final List<Map<String, Object>> failures = new ArrayList<>();
+        private volatile String status = "QUEUED";
+        private volatile String error;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+
+        Job(int examId, int totalUsers, int totalChunks) {
+            this.examId = examId;
+            this.totalUsers = totalUsers;
+            this.totalChunks = totalChunks;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public int getFailureCount() {
+            synchronized (failures) {
+                return failures.size();
+            }
+        }
+
+        public int getChunksFailed() {
+            return chunksFailed.get();
+        }
+
+        /** Whether any chunk failed or any user could not be assigned. */
+        public boolean hasFailures() {
+            return chunksFailed.get() > 0 || getFailureCount() > 0;
+        }
+
+        void fail(Object userId, String reason) {
+            synchronized (failures) {
+                if (failures.size() < MAX_REPORTED_FAILURES) {
+                    Map<String, Object> failure = new LinkedHashMap<>();
+                    failure.put("userId", userId);
+                    failure.put("reason", reason);
+                    failures.add(failure);
+                }
+            }
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("jobId", id);
+            report.put("examId", examId);
+            report.put("status", status);
+            report.put("totalUsers", totalUsers);
+            report.put("totalChunks", totalChunks);
+            report.put("chunksCompleted", chunksCompleted.get());
+            report.put("chunksFailed", chunksFailed.get());
+            report.put("assigned", assigned.get());
+            report.put("alreadyAssigned", alreadyAssigned.get());
+            report.put("emailsQueued", emailsQueued.get());
+            synchronized (failures) {
+                report.put("failureCount", failures.size());
+                report.put("failures", new ArrayList<>(failures));
+            }
+            report.put("error", error);
+            report.put("createdAt", createdAt);
+            report.put("startedAt", startedAt);
+            report.put("finishedAt", finishedAt);
+            return report;
+        }
+    }
+
+    /**
+     * Queues a bulk assignment and returns immediately; poll {@link #getJob}
+     * for progress. Throws {@link RejectedExecutionException} when too many
+     * jobs are already waiting.
+     */
+    public Job submit(int examId, List<Integer> userIds) {
+        Job job = createJob(examId, userIds);
+        List<Integer> ids = List.copyOf(new LinkedHashSet<>(userIds));
+        try {
+            workers.execute(() -> run(job, ids));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        return job;
+    }
+
+    /** Runs a bulk assignment on the calling thread. */
+    public Job assign(int examId, List<Integer> userIds) {
+        Job job = createJob(examId, userIds);
+        run(job, List.copyOf(new LinkedHashSet<>(userIds)));
+        return job;
+    }
+
+    public Job getJob(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    private Job createJob(int examId, List<Integer> userIds) {
+        int distinct = new HashSet<>(userIds).size();
+        Job job = new Job(examId, distinct, (distinct + chunkSize - 1) / chunkSize);
+        jobs.put(job.id, job);
+        return job;
+    }
+
+    private void run(Job job, List<Integer> userIds) {
+        job.startedAt = LocalDateTime.now();
+        job.status = "RUNNING";
+        log.info("📋 Bulk assignment {}: exam {}, {} users in {} chunks",
+                job.id, job.examId, job.totalUsers, job.totalChunks);
+
+        try {
+            Exam exam = examRepository.findById(job.examId)
+                    .orElseThrow(() -> new IllegalArgumentException("Exam not found with id: " + job.examId));
+
+            if (!exam.isPerCandidateShuffle() && !examSetService.hasQuestionSets((long) job.examId)) {
+                log.info("⚠️ Question sets not found, generating...");
+                Map<String, Object> generated = examSetService.generateQuestionSets((long) job.examId);
+                if (!Boolean.TRUE.equals(generated.get("success"))) {
+                    throw new IllegalStateException("Failed to generate question sets: " + generated.get("error"));
+                }
+            }
+
+            for (int from = 0; from < userIds.size(); from += chunkSize) {
+                List<Integer> chunk = userIds.subList(from, Math.min(userIds.size(), from + chunkSize));
+                try {
+                    ChunkResult result = transactionTemplate.execute(status -> assignChunk(exam, chunk));
+                    job.assigned.addAndGet(result.assigned());
+                    job.alreadyAssigned.addAndGet(result.alreadyAssigned());
+                    job.emailsQueued.addAndGet(result.emailsQueued());
+                    for (Integer userId : result.missing()) {
+                        job.fail(userId, "User not found");
+                    }
+                    job.chunksCompleted.incrementAndGet();
+                } catch (Exception e) {
+                    job.chunksFailed.incrementAndGet();
+                    log.error("❌ Bulk assignment {}: chunk at {} failed", job.id, from, e);
+                    for (Integer userId : chunk) {
+                        job.fail(userId, "Chunk failed: " + e.getMessage());
+                    }
+                }
+            }
+
+            job.status = "COMPLETED";
+            log.info("✅ Bulk assignment {} done: {} assigned, {} already assigned, {} failures",
+                    job.id, job.assigned.get(), job.alreadyAssigned.get(), job.getFailureCount());
+
+        } catch (Exception e) {
+            job.status = "FAILED";
+            job.error = e.getMessage();
+            log.error("❌ Bulk assignment {} failed", job.id, e);
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    private record ChunkResult(int assigned, int alreadyAssigned, int emailsQueued, List<Integer> missing) {
+    }
+
+    private ChunkResult assignChunk(Exam exam, List<Integer> chunk) {
+        int examId = exam.getId();
+
+        Map<Integer, String> emails = new LinkedHashMap<>();
+        for (Object[] row : userRepository.findEmailsByIdIn(chunk)) {
+            emails.put((Integer) row[0], (String) row[1]);
+        }
+        Set<Integer> linked = new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT user_id FROM user_assigned_exams WHERE exam_id = :examId AND user_id IN (:ids)",
+                new MapSqlParameterSource("examId", examId).addValue("ids", chunk), Integer.class));
+        Set<String> placed = new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT student_id FROM student_exam_assignments WHERE exam_id = :examId AND student_id IN (:ids)",
+                new MapSqlParameterSource("examId", examId)
+                        .addValue("ids", chunk.stream().map(String::valueOf).toList()), String.class));
+
+        int numberOfSets = examSetService.getActiveSetCount(examId);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> links = new ArrayList<>();
+        List<Object[]> statuses = new ArrayList<>();
+        List<Object[]> assignments = new ArrayList<>();
+        List<Object[]> invitations = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        int alreadyAssigned = 0;
+
+        for (Integer userId : chunk) {
+            if (!emails.containsKey(userId)) {
+                missing.add(userId);
+                continue;
+            }
+            statuses.add(new Object[] { ASSIGNED_STATUS, userId });
+
+            boolean newLink = !linked.contains(userId);
+            if (newLink) {
+                links.add(new Object[] { userId, examId });
+                invitations.add(new Object[] { userId, emails.get(userId) });
+            }
+
+            if (placed.contains(String.valueOf(userId))) {
+                if (!newLink) {
+                    alreadyAssigned++;
+                }
+                continue;
+            }
+            SetLoadBalancer.Allocation allocation = setLoadBalancer.allocate(examId, numberOfSets);
+            assignments.add(new Object[] {
+                    String.valueOf(userId), examId, allocation.setNumber(), allocation.slotNumber(), now,
+                    false, false, exam.isPerCandidateShuffle() ? SEED_SOURCE.nextLong() : null });
+        }
+
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_LINK_SQL, links);
+        }
+        if (!statuses.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, statuses);
+        }
+        if (!assignments.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ASSIGNMENT_SQL, assignments);
+        }
+        int queued = mailOutboxService.enqueueExamAssigned(examId, invitations);
+
+        return new ChunkResult(statuses.size() - alreadyAssigned, alreadyAssigned, queued, missing);
+    }
+}
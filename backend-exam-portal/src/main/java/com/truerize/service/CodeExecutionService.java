@@ -0,0 +1,483 @@
+package com.truerize.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.truerize.dto.RunMultipleRequestsDTO;
+import com.truerize.dto.RunMultipleResponseDTO;
+import com.truerize.dto.RunMultipleResponseDTO.TestCaseResult;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Compiles and runs candidate code in short-lived local processes. Every
+ * process (compile or test case) runs on a fixed-size pool, so at most
+ * {@code code.exec.max-processes} programs execute at once no matter how many
+ * candidates press "Run"; excess work waits in a bounded queue and is refused
+ * once that is full.
+ *
+ * <p>Each run gets its own scratch directory and a scrubbed environment, and
+ * every process is started through {@link ProcessSandbox}: no network, a
+ * private file system view, an unprivileged uid, and CPU-time, file-size,
+ * process-count and (for native and Python code) address-space limits. The
+ * wall-clock limit is enforced here, and a process that exceeds it is killed
+ * with everything it started.
+ *
+ * <p>Java is run on the warm {@link JavaWorkerPool} when it is up, and falls
+ * back to {@code javac} plus a fresh JVM otherwise.
+ */
+@Service
+public class CodeExecutionService {
+
+    private static final Logger log = LoggerFactory.getLogger(CodeExecutionService.class);
+
+    private static final boolean POSIX = new File("/bin/bash").canExecute();
+
+    private static final int MAX_ERROR_CHARS = 2000;
+
+    @Value("${code.exec.max-processes:0}")
+    private int maxProcesses;
+
+    @Value("${code.exec.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${code.exec.cpu-seconds:2}")
+    private int cpuSeconds;
+
+    @Value("${code.exec.wall-ms:5000}")
+    private long wallMillis;
+
+    @Value("${code.exec.compile-timeout-ms:20000}")
+    private long compileTimeoutMillis;
+
+    @Value("${code.exec.memory-mb:256}")
+    private int memoryMb;
+
+    @Value("${code.exec.max-output-bytes:65536}")
+    private int maxOutputBytes;
+
+    @Value("${code.exec.max-test-cases:20}")
+    private int maxTestCases;
+
+    @Value("${code.exec.max-source-bytes:65536}")
+    private int maxSourceBytes;
+
+    @Autowired
+    private JavaWorkerPool javaWorkerPool;
+
+    @Autowired
+    private CodeRunCache codeRunCache;
+
+    @Autowired
+    private CodeRunScheduler codeRunScheduler;
+
+    @Autowired
+    private ProcessSandbox processSandbox;
+
+    private ThreadPoolExecutor processPool;
+
+    /** Error reported for a test case killed by the wall-clock or CPU limit. */
+    public static final String TIME_LIMIT_EXCEEDED = "Time limit exceeded";
+
+    /** Thrown when the process pool and its queue are full. */
+    public static class ExecutionBusyException extends RuntimeException {
+        public ExecutionBusyException(String message) {
+            super(message);
+        }
+    }
+
+    /** Exit status and captured output of one process. */
+    static final class ProcessOutcome {
+        final int exitCode;
+        final String stdout;
+        final String stderr;
+        final boolean timedOut;
+        /** Reason reported instead of the exit code, e.g. a sandbox violation in a warm worker. */
+        final String failure;
+
+        ProcessOutcome(int exitCode, String stdout, String stderr, boolean timedOut) {
+            this(exitCode, stdout, stderr, timedOut, null);
+        }
+
+        ProcessOutcome(int exitCode, String stdout, String stderr, boolean timedOut, String failure) {
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+            this.timedOut = timedOut;
+            this.failure = failure;
+        }
+
+        boolean succeeded() {
+            return !timedOut && failure == null && exitCode == 0;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        int size = maxProcesses > 0 ? maxProcesses : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        processPool = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "code-exec-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Code execution engine started: {} process slots, queue capacity {}", size, queueCapacity);
+    }
+
+    @PreDestroy
+    void stop() {
+        processPool.shutdownNow();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("processSlots", processPool.getMaximumPoolSize());
+        stats.put("activeProcesses", processPool.getActiveCount());
+        stats.put("queuedProcesses", processPool.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("javaWorkers", javaWorkerPool.getStats());
+        stats.put("cache", codeRunCache.getStats());
+        stats.put("scheduler", codeRunScheduler.getStats());
+        return stats;
+    }
+
+    /**
+     * Whether every process slot is taken and work is waiting, either here or
+     * in the scheduler. Runs that time out under these conditions may have
+     * been starved of CPU rather than being slow themselves.
+     */
+    public boolean isSaturated() {
+        return !processPool.getQueue().isEmpty()
+                || processPool.getActiveCount() >= processPool.getMaximumPoolSize()
+                || codeRunScheduler.isSaturated();
+    }
+
+    /** Returns a message describing why the request cannot be run, or {@code null} if it is valid. */
+    public String validate(RunMultipleRequestsDTO request) {
+        if (request.getSource() == null || request.getSource().isBlank()) {
+            return "Source code cannot be blank";
+        }
+        if (request.getSource().getBytes(StandardCharsets.UTF_8).length > maxSourceBytes) {
+            return "Source code exceeds " + maxSourceBytes + " bytes";
+        }
+        if (CodeLanguage.from(request.getLanguage()) == null) {
+            return "Unsupported language: " + request.getLanguage();
+        }
+        if (request.getTestCases() == null || request.getTestCases().isEmpty()) {
+            return "At least one test case is required";
+        }
+        if (request.getTestCases().size() > maxTestCases) {
+            return "At most " + maxTestCases + " test cases are allowed";
+        }
+        return null;
+    }
+
+    /**
+     * Compiles the source once and runs every test case in parallel.
+     * Compilation failures are reported on each test case. Cases already run
+     * with the same source and input are answered from {@link CodeRunCache}.
+     */
+    public RunMultipleResponseDTO run(RunMultipleRequestsDTO request) throws IOException, InterruptedException {
+        if (processSandbox.isBroken()) {
+            throw new IOException("Code execution sandbox is not available on this host");
+        }
+        CodeLanguage language = CodeLanguage.from(request.getLanguage());
+        String source = request.getSource();
+        List<RunMultipleRequestsDTO.TestCase> testCases = request.getTestCases();
+        String sourceKey = CodeRunCache.sourceKey(language, source);
+
+        String knownCompileError = codeRunCache.getCompileError(sourceKey);
+        if (knownCompileError != null) {
+            return compileFailure(testCases, knownCompileError);
+        }
+
+        ProcessOutcome[] outcomes = new ProcessOutcome[testCases.size()];
+        List<Integer> pending = new ArrayList<>();
+        List<String> pendingInputs = new ArrayList<>();
+        for (int i = 0; i < testCases.size(); i++) {
+            outcomes[i] = codeRunCache.getOutput(sourceKey, testCases.get(i).getInput());
+            if (outcomes[i] == null) {
+                pending.add(i);
+                pendingInputs.add(testCases.get(i).getInput());
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            List<ProcessOutcome> executed = new ArrayList<>(pending.size());
+            String compileError = runCases(language, source, sourceKey, pendingInputs, executed);
+            if (compileError != null) {
+                return compileFailure(testCases, compileError);
+            }
+            for (int i = 0; i < pending.size(); i++) {
+                outcomes[pending.get(i)] = executed.get(i);
+                codeRunCache.putOutput(sourceKey, pendingInputs.get(i), executed.get(i));
+            }
+        }
+
+        List<TestCaseResult> results = new ArrayList<>(testCases.size());
+        for (int i = 0; i < testCases.size(); i++) {
+            results.add(evaluate(testCases.get(i), outcomes[i]));
+        }
+        return response(results);
+    }
+
+    /**
+     * Runs the source on each input, appending one outcome per input. Returns
+     * the message to report if the source does not compile.
+     */
+    private String runCases(CodeLanguage language, String source, String sourceKey, List<String> inputs,
+                            List<ProcessOutcome> outcomes) throws IOException, InterruptedException {
+        if (language == CodeLanguage.JAVA && javaWorkerPool.isEnabled()) {
+            JavaWorkerPool.Result warm = javaWorkerPool.run(CodeLanguage.javaClassName(source), source, inputs);
+            if (warm != null) {
+                if (warm.compileError != null) {
+                    String error = "Compilation error:\n" + truncate(warm.compileError);
+                    codeRunCache.putCompileError(sourceKey, error);
+                    return error;
+                }
+                outcomes.addAll(warm.outcomes);
+                return null;
+            }
+        }
+
+        int uid = processSandbox.acquireUid();
+        Path workDir;
+        try {
+            workDir = Files.createTempDirectory("code-run-");
+        } catch (IOException e) {
+            processSandbox.releaseUid(uid);
+            throw e;
+        }
+        try {
+            if (codeRunCache.restoreArtifact(sourceKey, workDir)) {
+                processSandbox.prepare(workDir, uid);
+            } else {
+                Files.writeString(workDir.resolve(language.sourceFileName(source)), source);
+                processSandbox.prepare(workDir, uid);
+
+                ProcessOutcome compiled = await(submit(workDir, uid, language.compileCommand(source), null, "compile",
+                        compileTimeoutMillis, TimeUnit.MILLISECONDS.toSeconds(compileTimeoutMillis), 0));
+
+                if (compiled.timedOut) {
+                    return "Compilation timed out";
+                }
+                if (!compiled.succeeded()) {
+                    String error = "Compilation error:\n"
+                            + truncate(compiled.stderr.isEmpty() ? compiled.stdout : compiled.stderr);
+                    codeRunCache.putCompileError(sourceKey, error);
+                    return error;
+                }
+                codeRunCache.storeArtifact(sourceKey, workDir);
+            }
+
+            List<Future<ProcessOutcome>> runs = new ArrayList<>(inputs.size());
+            try {
+                for (int i = 0; i < inputs.size(); i++) {
+                    runs.add(submit(workDir, uid, language.runCommand(source, memoryMb), inputs.get(i),
+                            "case-" + i, wallMillis, cpuSeconds, language.limitsAddressSpace() ? memoryMb : 0));
+                }
+                for (Future<ProcessOutcome> run : runs) {
+                    outcomes.add(await(run));
+                }
+            } finally {
+                runs.forEach(run -> run.cancel(true));
+            }
+            return null;
+
+        } finally {
+            processSandbox.releaseUid(uid);
+            deleteRecursively(workDir);
+        }
+    }
+
+    private static RunMultipleResponseDTO compileFailure(List<RunMultipleRequestsDTO.TestCase> testCases, String error) {
+        List<TestCaseResult> results = new ArrayList<>(testCases.size());
+        for (RunMultipleRequestsDTO.TestCase testCase : testCases) {
+            results.add(result(testCase, "", false, error));
+        }
+        return response(results);
+    }
+
+    private Future<ProcessOutcome> submit(Path workDir, int uid, List<String> command, String input, String name,
+                                          long timeoutMillis, long cpuLimitSeconds, int addressSpaceMb) {
+        try {
+            return processPool.submit(() ->
+                    execute(workDir, uid, command, input, name, timeoutMillis, cpuLimitSeconds, addressSpaceMb));
+        } catch (RejectedExecutionException e) {
+            throw new ExecutionBusyException("Code execution is busy, please retry shortly");
+        }
+    }
+
+    private static ProcessOutcome await(Future<ProcessOutcome> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    private ProcessOutcome execute(Path workDir, int uid, List<String> command, String input, String name,
+                                   long timeoutMillis, long cpuLimitSeconds, int addressSpaceMb)
+            throws IOException, InterruptedException {
+        Path stdin = workDir.resolve(name + ".in");
+        Path stdout = workDir.resolve(name + ".out");
+        Path stderr = workDir.resolve(name + ".err");
+        Files.writeString(stdin, input == null ? "" : input);
+
+        ProcessBuilder builder = new ProcessBuilder(limited(command, workDir, uid, cpuLimitSeconds, addressSpaceMb))
+                .directory(workDir.toFile())
+                .redirectInput(stdin.toFile())
+                .redirectOutput(stdout.toFile())
+                .redirectError(stderr.toFile());
+        processSandbox.environment(builder.environment(), workDir);
+
+        Process process = builder.start();
+        boolean finished;
+        try {
+            finished = process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            if (process.isAlive()) {
+                processSandbox.kill(process);
+            }
+        }
+        if (!finished) {
+            process.waitFor(1, TimeUnit.SECONDS);
+        }
+
+        return new ProcessOutcome(finished ? process.exitValue() : -1,
+                readCapped(stdout), readCapped(stderr), !finished);
+    }
+
+    private List<String> limited(List<String> command, Path workDir, int uid, long cpuLimitSeconds,
+                                 int addressSpaceMb) {
+        // ulimit -f counts KiB: twice the captured output, leaving room for compiled binaries
+        long fileSizeKb = Math.max(1, maxOutputBytes / 512);
+        if (processSandbox.isEnabled()) {
+            return processSandbox.command(command, workDir, uid, Math.max(1, cpuLimitSeconds), fileSizeKb,
+                    addressSpaceMb);
+        }
+        if (!POSIX) {
+            return command;
+        }
+
+        StringBuilder script = new StringBuilder()
+                .append("ulimit -t ").append(Math.max(1, cpuLimitSeconds))
+                .append("; ulimit -f ").append(fileSizeKb);
+        if (addressSpaceMb > 0) {
+            script.append("; ulimit -v ").append(addressSpaceMb * 1024L);
+        }
+        script.append("; exec \"$@\"");
+
+        List<String> wrapped = new ArrayList<>(command.size() + 4);
+        wrapped.add("/bin/bash");
+        wrapped.add("-c");
+        wrapped.add(script.toString());
+        wrapped.add("run");
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    private String readCapped(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] bytes = in.readNBytes(maxOutputBytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private TestCaseResult evaluate(RunMultipleRequestsDTO.TestCase testCase, ProcessOutcome outcome) {
+        if (outcome.timedOut) {
+            return result(testCase, outcome.stdout, false, TIME_LIMIT_EXCEEDED);
+        }
+        if (outcome.failure != null) {
+            return result(testCase, outcome.stdout, false, outcome.failure);
+        }
+        switch (outcome.exitCode) {
+            case 0:
+                boolean passed = normalize(outcome.stdout).equals(normalize(testCase.getExpectedOutput()));
+                return result(testCase, outcome.stdout, passed, null);
+            case 128 + 9:
+            case 128 + 24:
+                // SIGKILL / SIGXCPU from the CPU-time limit
+                return result(testCase, outcome.stdout, false, TIME_LIMIT_EXCEEDED);
+            case 128 + 25:
+                // SIGXFSZ from the output size limit
+                return result(testCase, outcome.stdout, false, "Output limit exceeded");
+            default:
+                return result(testCase, outcome.stdout, false,
+                        "Runtime error (exit code " + outcome.exitCode + "):\n" + truncate(outcome.stderr));
+        }
+    }
+
+    /** Output comparison ignoring line endings, trailing spaces and trailing blank lines. */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String[] lines = text.replace("\r\n", "\n").split("\n", -1);
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (String line : lines) {
+            normalized.append(line.stripTrailing()).append('\n');
+        }
+        int end = normalized.length();
+        while (end > 0 && normalized.charAt(end - 1) == '\n') {
+            end--;
+        }
+        return normalized.substring(0, end);
+    }
+
+    private static TestCaseResult result(RunMultipleRequestsDTO.TestCase testCase, String output,
+                                         boolean passed, String error) {
+        TestCaseResult result = new TestCaseResult();
+        result.setInput(testCase.getInput());
+        result.setExpected(testCase.getExpectedOutput());
+        result.setOutput(output);
+        result.setPassed(passed);
+        result.setError(error);
+        return result;
+    }
+
+    private static RunMultipleResponseDTO response(List<TestCaseResult> results) {
+        RunMultipleResponseDTO response = new RunMultipleResponseDTO();
+        response.setResults(results);
+        return response;
+    }
+
+    private static String truncate(String text) {
+        return text.length() <= MAX_ERROR_CHARS ? text : text.substring(0, MAX_ERROR_CHARS) + "\n...";
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Could not clean up {}", dir, e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.truerize.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Languages accepted by the code-run endpoint and how to build and start a
+ * program in each of them inside a scratch directory.
+ */
+public enum CodeLanguage {
+
+    JAVA {
+        @Override
+        public String sourceFileName(String source) {
+            return javaClassName(source) + ".java";
+        }
+
+        @Override
+        public List<String> compileCommand(String source) {
+            return List.of("javac", "-encoding", "UTF-8", "-nowarn", sourceFileName(source));
+        }
+
+        @Override
+        public List<String> runCommand(String source, int memoryMb) {
+            return List.of("java", "-Xmx" + memoryMb + "m", "-Xss64m", "-XX:+UseSerialGC",
+                    "-XX:TieredStopAtLevel=1", "-Dfile.encoding=UTF-8", "-cp", ".", javaClassName(source));
+        }
+
+        @Override
+        public boolean limitsAddressSpace() {
+            // The JVM reserves far more virtual memory than it uses; -Xmx bounds the heap instead
+            return false;
+        }
+    },
+
+    PYTHON {
+        @Override
+        public String sourceFileName(String source) {
+            return "main.py";
+        }
+
+        @Override
+        public List<String> compileCommand(String source) {
+            return List.of("python3", "-m", "py_compile", "main.py");
+        }
+
+        @Override
+        public List<String> runCommand(String source, int memoryMb) {
+            return List.of("python3", "-I", "-S", "main.py");
+        }
+    },
+
+    CPP {
+        @Override
+        public String sourceFileName(String source) {
+            return "main.cpp";
+        }
+
+        @Override
+        public List<String> compileCommand(String source) {
+            return List.of("g++", "-O2", "-std=c++17", "-o", "main", "main.cpp");
+        }
+
+        @Override
+        public List<String> runCommand(String source, int memoryMb) {
+            return List.of("./main");
+        }
+    };
+
+    private static final Pattern PUBLIC_CLASS = Pattern.compile("public\\s+(?:final\\s+|abstract\\s+)*class\\s+([A-Za-z_$][\\w$]*)");
+
+    public abstract String sourceFileName(String source);
+
+    public abstract List<String> compileCommand(String source);
+
+    public abstract List<String> runCommand(String source, int memoryMb);
+
+    /** Whether the memory limit can be enforced with {@code ulimit -v}. */
+    public boolean limitsAddressSpace() {
+        return true;
+    }
+
+    static String javaClassName(String source) {
+        Matcher matcher = PUBLIC_CLASS.matcher(source);
+        return matcher.find() ? matcher.group(1) : "Main";
+    }
+
+    /** Parses the language names used by the editor; returns {@code null} if unsupported. */
+    public static CodeLanguage from(String name) {
+        if (name == null) {
+            return null;
+        }
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "java":
+                return JAVA;
+            case "python":
+            case "python3":
+            case "py":
+                return PYTHON;
+            case "cpp":
+            case "c++":
+                return CPP;
+            default:
+                return null;
+        }
+    }
+}
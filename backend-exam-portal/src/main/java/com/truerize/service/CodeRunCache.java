@@ -0,0 +1,291 @@
+package com.truerize.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.truerize.service.CodeExecutionService.ProcessOutcome;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Content-addressed caches for the code-run endpoint. Candidates mostly press
+ * "Run" again on unchanged code, so both caches are keyed by hashes of what
+ * determines the result rather than by user or request:
+ *
+ * <ul>
+ *   <li>build artifacts (or the compiler error) by hash(language, source);</li>
+ *   <li>program output by hash(language, source, input).</li>
+ * </ul>
+ *
+ * Both are bounded LRU maps. Outcomes that depend on machine load, such as
+ * time-limit kills, are never cached.
+ */
+@Component
+public class CodeRunCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CodeRunCache.class);
+
+    @Value("${code.exec.cache.max-artifacts:256}")
+    private int maxArtifacts;
+
+    @Value("${code.exec.cache.max-outputs:10000}")
+    private int maxOutputs;
+
+    @Value("${code.exec.cache.max-output-mb:64}")
+    private int maxOutputMb;
+
+    /** Compiler stdio captured in the work directory; not part of the build. */
+    private static final Set<String> COMPILE_LOGS = Set.of("compile.in", "compile.out", "compile.err");
+
+    private Path artifactRoot;
+
+    /** Compiled output directory, or the compiler error for sources that do not build. */
+    private static final class Artifact {
+        final Path dir;
+        final String compileError;
+
+        Artifact(Path dir, String compileError) {
+            this.dir = dir;
+            this.compileError = compileError;
+        }
+    }
+
+    private final LinkedHashMap<String, Artifact> artifacts = new LinkedHashMap<>(64, 0.75f, true);
+    private final LinkedHashMap<String, ProcessOutcome> outputs = new LinkedHashMap<>(1024, 0.75f, true);
+    private long outputChars;
+
+    private final LongAdder artifactHits = new LongAdder();
+    private final LongAdder artifactMisses = new LongAdder();
+    private final LongAdder outputHits = new LongAdder();
+    private final LongAdder outputMisses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @PostConstruct
+    void start() throws IOException {
+        artifactRoot = Files.createTempDirectory("code-cache-");
+    }
+
+    @PreDestroy
+    void stop() {
+        deleteRecursively(artifactRoot);
+    }
+
+    static String sourceKey(CodeLanguage language, String source) {
+        return sha256(language.name(), source);
+    }
+
+    private static String outputKey(String sourceKey, String input) {
+        return sha256(sourceKey, input == null ? "" : input);
+    }
+
+    private static String sha256(String first, String second) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(first.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(second.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ---------------------------------------------------------------- outputs
+
+    /** Returns the stored outcome of running this source on this input, or {@code null}. */
+    ProcessOutcome getOutput(String sourceKey, String input) {
+        ProcessOutcome outcome;
+        synchronized (outputs) {
+            outcome = outputs.get(outputKey(sourceKey, input));
+        }
+        (outcome != null ? outputHits : outputMisses).increment();
+        return outcome;
+    }
+
+    void putOutput(String sourceKey, String input, ProcessOutcome outcome) {
+        if (!isDeterministic(outcome) || maxOutputs <= 0) {
+            return;
+        }
+        long limit = maxOutputMb * 1024L * 1024L / 2;
+        synchronized (outputs) {
+            ProcessOutcome previous = outputs.put(outputKey(sourceKey, input), outcome);
+            if (previous != null) {
+                outputChars -= size(previous);
+            }
+            outputChars += size(outcome);
+
+            Iterator<ProcessOutcome> eldest = outputs.values().iterator();
+            while (eldest.hasNext() && (outputs.size() > maxOutputs || outputChars > limit)) {
+                outputChars -= size(eldest.next());
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private static boolean isDeterministic(ProcessOutcome outcome) {
+        // Timeouts and CPU-limit kills depend on load, not only on the program
+        return !outcome.timedOut
+                && outcome.exitCode != 128 + 9
+                && outcome.exitCode != 128 + 24
+                && !JavaWorkerPool.WORKER_LOST.equals(outcome.failure);
+    }
+
+    private static long size(ProcessOutcome outcome) {
+        return outcome.stdout.length() + outcome.stderr.length();
+    }
+
+    // -------------------------------------------------------------- artifacts
+
+    /** Returns the cached compiler error for this source, or {@code null}. */
+    String getCompileError(String sourceKey) {
+        String compileError;
+        synchronized (artifacts) {
+            Artifact artifact = artifacts.get(sourceKey);
+            compileError = artifact == null ? null : artifact.compileError;
+        }
+        if (compileError != null) {
+            artifactHits.increment();
+        }
+        return compileError;
+    }
+
+    void putCompileError(String sourceKey, String compileError) {
+        put(sourceKey, new Artifact(null, compileError));
+    }
+
+    /**
+     * Copies the cached build of this source into {@code workDir}. Returns
+     * {@code false} on a miss, in which case the caller compiles as usual.
+     */
+    boolean restoreArtifact(String sourceKey, Path workDir) {
+        Artifact artifact;
+        synchronized (artifacts) {
+            artifact = artifacts.get(sourceKey);
+        }
+        if (artifact == null || artifact.dir == null) {
+            artifactMisses.increment();
+            return false;
+        }
+
+        try {
+            copyFiles(artifact.dir, workDir);
+            artifactHits.increment();
+            return true;
+        } catch (IOException e) {
+            // Evicted while being copied; rebuild instead
+            artifactMisses.increment();
+            return false;
+        }
+    }
+
+    /** Stores the freshly compiled contents of {@code workDir} (before any test case has run). */
+    void storeArtifact(String sourceKey, Path workDir) {
+        if (maxArtifacts <= 0) {
+            return;
+        }
+        synchronized (artifacts) {
+            if (artifacts.containsKey(sourceKey)) {
+                return;
+            }
+        }
+
+        Path dir = artifactRoot.resolve(sourceKey);
+        try {
+            Files.createDirectories(dir);
+            copyFiles(workDir, dir);
+        } catch (IOException e) {
+            log.warn("Could not cache build artifact {}", sourceKey, e);
+            deleteRecursively(dir);
+            return;
+        }
+        put(sourceKey, new Artifact(dir, null));
+    }
+
+    private void put(String sourceKey, Artifact artifact) {
+        List<Artifact> evicted = new ArrayList<>();
+        synchronized (artifacts) {
+            artifacts.put(sourceKey, artifact);
+            Iterator<Artifact> eldest = artifacts.values().iterator();
+            while (artifacts.size() > maxArtifacts && eldest.hasNext()) {
+                evicted.add(eldest.next());
+                eldest.remove();
+            }
+        }
+        for (Artifact old : evicted) {
+            evictions.increment();
+            if (old.dir != null) {
+                deleteRecursively(old.dir);
+            }
+        }
+    }
+
+    private static void copyFiles(Path from, Path to) throws IOException {
+        try (Stream<Path> files = Files.walk(from)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (COMPILE_LOGS.contains(file.getFileName().toString())) {
+                    continue;
+                }
+                Path target = to.resolve(from.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (artifacts) {
+            stats.put("artifacts", artifacts.size());
+        }
+        synchronized (outputs) {
+            stats.put("outputs", outputs.size());
+            stats.put("outputChars", outputChars);
+        }
+        stats.put("artifactHits", artifactHits.sum());
+        stats.put("artifactMisses", artifactMisses.sum());
+        stats.put("artifactHitRate", rate(artifactHits.sum(), artifactMisses.sum()));
+        stats.put("outputHits", outputHits.sum());
+        stats.put("outputMisses", outputMisses.sum());
+        stats.put("outputHitRate", rate(outputHits.sum(), outputMisses.sum()));
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    private static double rate(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : Math.round(hits * 1000.0 / total) / 1000.0;
+    }
+}
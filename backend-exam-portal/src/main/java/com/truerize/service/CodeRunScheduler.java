@@ -0,0 +1,266 @@
+package com.truerize.service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Fair-share admission in front of the code execution engine. Every caller
+ * (session {@code userId}) gets its own FIFO queue, and a fixed number of
+ * slots take work from those queues in weighted round-robin: each caller in
+ * turn may start up to its weight in runs before the next caller is served.
+ * One candidate pressing "Run" in a loop therefore only ever competes for
+ * its own share of the slots.
+ *
+ * <p>A caller may have at most {@code max-queued-per-user} runs waiting or
+ * running, and all callers together at most {@code max-queued} waiting;
+ * beyond that {@link OverloadedException} tells the client when to retry.
+ */
+@Service
+public class CodeRunScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(CodeRunScheduler.class);
+
+    @Value("${code.exec.scheduler.slots:0}")
+    private int slotCount;
+
+    @Value("${code.exec.scheduler.max-queued-per-user:3}")
+    private int maxQueuedPerUser;
+
+    @Value("${code.exec.scheduler.max-queued:200}")
+    private int maxQueued;
+
+    /** Thrown when a run cannot be queued; carries the suggested Retry-After. */
+    public static class OverloadedException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public OverloadedException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    private static final class Job<T> {
+        final String caller;
+        final Callable<T> task;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final long enqueuedAt = System.nanoTime();
+
+        Job(String caller, Callable<T> task) {
+            this.caller = caller;
+            this.task = task;
+        }
+
+        /** Runs the task; {@code release} is called before the result is published so the caller can submit again at once. */
+        void run(Runnable release) {
+            T value;
+            try {
+                value = task.call();
+            } catch (Throwable e) {
+                release.run();
+                result.completeExceptionally(e);
+                return;
+            }
+            release.run();
+            result.complete(value);
+        }
+    }
+
+    /** Pending runs of one caller and what is left of its current round-robin turn. */
+    private static final class CallerQueue {
+        final String caller;
+        final ArrayDeque<Job<?>> jobs = new ArrayDeque<>();
+        int weight;
+        int turnsLeft;
+
+        CallerQueue(String caller, int weight) {
+            this.caller = caller;
+            this.weight = weight;
+            this.turnsLeft = weight;
+        }
+    }
+
+    private final Object lock = new Object();
+    /** Callers with pending work, in round-robin order; the head is served next. */
+    private final ArrayDeque<CallerQueue> ring = new ArrayDeque<>();
+    private final Map<String, CallerQueue> queues = new HashMap<>();
+    /** Runs per caller that are queued or running, for the per-user limit. */
+    private final Map<String, Integer> pending = new HashMap<>();
+    private int queued;
+
+    private ExecutorService slots;
+    private volatile boolean running;
+    private int slotsStarted;
+
+    private final AtomicInteger busySlots = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+
+    @PostConstruct
+    void start() {
+        slotsStarted = slotCount > 0 ? slotCount : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        slots = Executors.newFixedThreadPool(slotsStarted, runnable -> {
+            Thread thread = new Thread(runnable, "code-run-slot-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        running = true;
+        for (int i = 0; i < slotsStarted; i++) {
+            slots.execute(this::slotLoop);
+        }
+        log.info("Code run scheduler started: {} slots, {} queued per user, {} queued in total",
+                slotsStarted, maxQueuedPerUser, maxQueued);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        slots.shutdownNow();
+    }
+
+    /**
+     * Queues a run for {@code caller}. The returned future completes with the
+     * task's result once a slot has run it.
+     *
+     * @throws OverloadedException if the caller has too many runs pending or the global queue is full
+     */
+    public <T> CompletableFuture<T> submit(String caller, int weight, Callable<T> task) {
+        Job<T> job = new Job<>(caller, task);
+        synchronized (lock) {
+            int callerPending = pending.getOrDefault(caller, 0);
+            if (callerPending >= maxQueuedPerUser) {
+                rejected.increment();
+                throw new OverloadedException("Too many runs pending, wait for the previous ones to finish",
+                        retryAfterSeconds(callerPending));
+            }
+            if (queued >= maxQueued) {
+                rejected.increment();
+                throw new OverloadedException("Code execution is busy, please retry shortly",
+                        retryAfterSeconds(queued));
+            }
+
+            CallerQueue queue = queues.get(caller);
+            if (queue == null) {
+                queue = new CallerQueue(caller, Math.max(1, weight));
+                queues.put(caller, queue);
+                ring.addLast(queue);
+            }
+            queue.jobs.addLast(job);
+            pending.put(caller, callerPending + 1);
+            queued++;
+            lock.notify();
+        }
+        admitted.increment();
+        return job.result;
+    }
+
+    /** Rough wait for {@code ahead} runs to clear the slots, from the mean run time so far. */
+    private long retryAfterSeconds(int ahead) {
+        long meanMillis = Math.max(100, runTime.meanMillis());
+        long waitMillis = meanMillis * (ahead + 1) / Math.max(1, slotsStarted);
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(waitMillis + 999));
+    }
+
+    private Job<?> next() throws InterruptedException {
+        synchronized (lock) {
+            while (ring.isEmpty()) {
+                lock.wait();
+            }
+
+            CallerQueue queue = ring.peekFirst();
+            Job<?> job = queue.jobs.pollFirst();
+            queued--;
+
+            if (queue.jobs.isEmpty()) {
+                ring.pollFirst();
+                queues.remove(queue.caller);
+            } else if (--queue.turnsLeft == 0) {
+                queue.turnsLeft = queue.weight;
+                ring.addLast(ring.pollFirst());
+            }
+            return job;
+        }
+    }
+
+    private void slotLoop() {
+        while (running) {
+            Job<?> job;
+            try {
+                job = next();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            long started = System.nanoTime();
+            queueWait.record(TimeUnit.NANOSECONDS.toMillis(started - job.enqueuedAt));
+            busySlots.incrementAndGet();
+            try {
+                job.run(() -> release(job.caller));
+            } finally {
+                busySlots.decrementAndGet();
+                completed.increment();
+                runTime.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            }
+        }
+    }
+
+    private void release(String caller) {
+        synchronized (lock) {
+            pending.computeIfPresent(caller, (k, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /** Whether all slots are busy or runs are waiting for one. */
+    public boolean isSaturated() {
+        synchronized (lock) {
+            if (queued > 0) {
+                return true;
+            }
+        }
+        return busySlots.get() >= slotsStarted;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("queued", queued);
+            stats.put("waitingCallers", queues.size());
+        }
+        stats.put("slots", slotsStarted);
+        stats.put("busySlots", busySlots.get());
+        stats.put("maxQueuedPerUser", maxQueuedPerUser);
+        stats.put("maxQueued", maxQueued);
+        stats.put("admitted", admitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("completed", completed.sum());
+        stats.put("queueWait", queueWait.snapshot());
+        stats.put("runTime", runTime.snapshot());
+        return stats;
+    }
+}
@@ -0,0 +1,341 @@
+package com.truerize.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.truerize.dto.RunMultipleRequestsDTO;
+import com.truerize.dto.RunMultipleResponseDTO;
+import com.truerize.entity.StudentExamAssignment;
+import com.truerize.entity.TestSubmission;
+import com.truerize.repository.TestSubmissionRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Grades coding answers by running them against the question's hidden test
+ * cases. Submissions arrive here in {@code Grading} state from
+ * {@link SubmissionPipeline} with their objective score already set; a
+ * dispatcher drains them in batches onto the {@code gradingExecutor}, runs
+ * each coding answer through {@link CodeRunScheduler} as its own low-weight
+ * tenant, and completes the submission with partial marks per passed test
+ * case.
+ *
+ * <p>Batches are grouped by exam so the answer key is looked up once per
+ * exam. Rows left in {@code Grading} by a restart or a busy engine are picked
+ * up again by the periodic sweep. Any other failure counts as an attempt;
+ * after {@code code.grading.max-attempts} the submission is completed with its
+ * objective score and flagged {@code codingUngraded} for manual review.
+ */
+@Service
+public class CodingGrader {
+
+    private static final Logger log = LoggerFactory.getLogger(CodingGrader.class);
+
+    private static final TypeReference<Map<String, String>> ANSWERS_TYPE = new TypeReference<>() {};
+
+    /** Scheduler tenant that all grading runs are charged to. */
+    private static final String SCHEDULER_CALLER = "grader";
+
+    @Autowired
+    private TestSubmissionService testSubmissionService;
+
+    @Autowired
+    private TestSubmissionRepository testSubmissionRepository;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private CodeExecutionService codeExecutionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CodeRunScheduler codeRunScheduler;
+
+    @Autowired
+    @Qualifier("gradingExecutor")
+    private InstrumentedExecutor gradingExecutor;
+
+    @Value("${code.grading.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${code.grading.batch-size:20}")
+    private int batchSize;
+
+    @Value("${code.grading.default-language:java}")
+    private String defaultLanguage;
+
+    @Value("${code.grading.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${code.grading.scheduler-weight:1}")
+    private int schedulerWeight;
+
+    private BlockingQueue<Integer> queue;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    /** Ids currently queued or being graded, so the sweep never enqueues them twice. */
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder graded = new LongAdder();
+    private final LongAdder answersRun = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder abandoned = new LongAdder();
+    private final LongAdder deferredTimeouts = new LongAdder();
+    private final LatencyHistogram gradingLatency = new LatencyHistogram();
+    private final LatencyHistogram answerLatency = new LatencyHistogram();
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "grading-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("Coding grader started: {} grading threads, batch size {}, scheduler weight {}",
+                gradingExecutor.getMaximumPoolSize(), batchSize, schedulerWeight);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /** Hands a submission in {@code Grading} state to the workers; the sweep retries if the queue is full. */
+    public void enqueue(int submissionId) {
+        if (inFlight.add(submissionId) && !queue.offer(submissionId)) {
+            inFlight.remove(submissionId);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${submission.pipeline.sweep-interval-ms:15000}",
+               fixedDelayString = "${submission.pipeline.sweep-interval-ms:15000}")
+    public void sweepGrading() {
+        int room = queue.remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        for (Integer id : testSubmissionService.findGradingSubmissionIds(Math.min(room, 1000))) {
+            if (!inFlight.contains(id)) {
+                enqueue(id);
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                Integer first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Integer> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                // When the grading executor is full the dispatcher grades the batch itself
+                gradingExecutor.execute(() -> {
+                    try {
+                        gradeBatch(batch);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        inFlight.removeAll(batch);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void gradeBatch(List<Integer> batch) throws InterruptedException {
+        Map<Integer, List<TestSubmission>> byExam = new LinkedHashMap<>();
+        for (TestSubmission submission : testSubmissionRepository.findAllById(batch)) {
+            if (TestSubmissionService.STATUS_GRADING.equals(submission.getStatus())) {
+                byExam.computeIfAbsent(submission.getExam().getId(), id -> new ArrayList<>()).add(submission);
+            }
+        }
+
+        for (Map.Entry<Integer, List<TestSubmission>> exam : byExam.entrySet()) {
+            CompiledAnswerKey key = answerKeyCache.get(exam.getKey());
+            for (TestSubmission submission : exam.getValue()) {
+                try {
+                    TestSubmission completed = testSubmissionService.completeGrading(submission.getId(), grade(submission, key));
+                    if (completed != null) {
+                        graded.increment();
+                        if (submission.getSubmittedAt() != null) {
+                            gradingLatency.record(Duration.between(submission.getSubmittedAt(), LocalDateTime.now()).toMillis());
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (CodeExecutionService.ExecutionBusyException e) {
+                    // A saturated engine is not the submission's fault; the sweep retries without counting it
+                    failures.increment();
+                    log.warn("Execution engine busy grading submission {}; left for retry: {}",
+                            submission.getId(), e.getMessage());
+                } catch (Exception e) {
+                    failures.increment();
+                    if (testSubmissionService.recordGradingFailure(submission.getId(), maxAttempts) != null) {
+                        abandoned.increment();
+                        log.error("❌ Gave up grading submission {} after {} attempts; completed with its objective score, coding answers ungraded",
+                                submission.getId(), maxAttempts, e);
+                    } else {
+                        log.warn("Failed to grade submission {}; left for retry", submission.getId(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Marks earned by the submission's test-case-graded coding answers in the candidate's set. */
+    private int grade(TestSubmission submission, CompiledAnswerKey key) throws Exception {
+        Map<String, String> answers = objectMapper.readValue(submission.getAnswersJson(), ANSWERS_TYPE);
+        Integer setNumber = testSubmissionService.findAssignment(submission, key)
+                .map(StudentExamAssignment::getAssignedSetNumber)
+                .orElse(null);
+        int marks = 0;
+
+        for (Map.Entry<String, String> entry : answers.entrySet()) {
+            int index = TestSubmissionService.indexOfQuestion(key, setNumber, entry.getKey());
+            if (index < 0 || !key.isTestCaseGraded(index) || entry.getValue() == null || entry.getValue().isBlank()) {
+                continue;
+            }
+
+            RunMultipleRequestsDTO request = toRunRequest(entry.getValue());
+            if (request == null) {
+                continue;
+            }
+            request.setTestCases(key.testCases(index));
+            String invalid = codeExecutionService.validate(request);
+            if (invalid != null) {
+                log.warn("Coding answer to question {} of submission {} not run: {}",
+                        entry.getKey(), submission.getId(), invalid);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            RunMultipleResponseDTO response = run(request);
+            answerLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            answersRun.increment();
+
+            int passed = 0;
+            for (RunMultipleResponseDTO.TestCaseResult result : response.getResults()) {
+                if (result.isPassed()) {
+                    passed++;
+                }
+            }
+            marks += key.marks(index) * passed / key.testCases(index).size();
+        }
+        return marks;
+    }
+
+    /**
+     * Runs one answer as the grader's own tenant of {@link CodeRunScheduler},
+     * so grading takes a weighted share of the slots instead of crowding out
+     * candidates' live runs. A wall-clock timeout while the engine is
+     * saturated says more about the load than about the program, so it is
+     * reported as busy and the submission is graded again later.
+     */
+    private RunMultipleResponseDTO run(RunMultipleRequestsDTO request) throws Exception {
+        boolean saturated = codeExecutionService.isSaturated();
+        RunMultipleResponseDTO response;
+        try {
+            response = codeRunScheduler.submit(SCHEDULER_CALLER, schedulerWeight,
+                    () -> codeExecutionService.run(request)).get();
+        } catch (CodeRunScheduler.OverloadedException e) {
+            throw new CodeExecutionService.ExecutionBusyException(e.getMessage());
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+
+        saturated |= codeExecutionService.isSaturated();
+        if (saturated) {
+            for (RunMultipleResponseDTO.TestCaseResult result : response.getResults()) {
+                if (CodeExecutionService.TIME_LIMIT_EXCEEDED.equals(result.getError())) {
+                    deferredTimeouts.increment();
+                    throw new CodeExecutionService.ExecutionBusyException("Test case timed out while code execution was saturated");
+                }
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Reads a coding answer, either {@code {"language": "...", "source": "..."}}
+     * or bare source in the default language. Returns {@code null} if it
+     * cannot be run.
+     */
+    private RunMultipleRequestsDTO toRunRequest(String answer) {
+        String language = defaultLanguage;
+        String source = answer;
+
+        if (answer.trim().startsWith("{")) {
+            try {
+                JsonNode node = objectMapper.readTree(answer);
+                if (node.hasNonNull("source")) {
+                    source = node.get("source").asText();
+                    if (node.hasNonNull("language")) {
+                        language = node.get("language").asText();
+                    }
+                }
+            } catch (Exception e) {
+                // Not JSON after all: grade it as source
+            }
+        }
+
+        if (CodeLanguage.from(language) == null || source.isBlank()) {
+            return null;
+        }
+        RunMultipleRequestsDTO request = new RunMultipleRequestsDTO();
+        request.setLanguage(language);
+        request.setSource(source);
+        return request;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("inFlight", inFlight.size());
+        stats.put("workers", gradingExecutor.getMaximumPoolSize());
+        stats.put("busyWorkers", gradingExecutor.getActiveCount());
+        stats.put("graded", graded.sum());
+        stats.put("answersRun", answersRun.sum());
+        stats.put("failures", failures.sum());
+        stats.put("abandoned", abandoned.sum());
+        stats.put("deferredTimeouts", deferredTimeouts.sum());
+        stats.put("gradingLatency", gradingLatency.snapshot());
+        stats.put("answerLatency", answerLatency.snapshot());
+        return stats;
+    }
+}
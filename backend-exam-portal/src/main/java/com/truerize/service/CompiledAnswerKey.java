@@ -0,0 +1,175 @@
+package com.truerize.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.truerize.dto.RunMultipleRequestsDTO;
+import com.truerize.entity.ExamQuestionSet;
+import com.truerize.entity.Question;
+
+/**
+ * Immutable, pre-normalized answer key of one exam. Questions are held in
+ * parallel primitive arrays sorted by id, so scoring a submission is a binary
+ * search per answered question with no database access.
+ *
+ * <p>When the exam has question sets, the key also records which questions
+ * each active set holds, so a candidate is only scored on the questions of
+ * the set they were assigned.
+ */
+public final class CompiledAnswerKey {
+
+    public enum Kind { MCQ, CODING, VERBAL, OTHER }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private final int examId;
+    private final boolean perCandidateShuffle;
+    private final int[] questionIds;
+    private final int[] marks;
+    private final byte[] kinds;
+    private final int[] optionCounts;
+    private final int[] answerMasks;
+    private final String[] normalizedAnswers;
+    private final String[] sections;
+    private final List<List<RunMultipleRequestsDTO.TestCase>> testCases;
+    private final Map<Integer, BitSet> setMembers = new HashMap<>();
+    private boolean hasTestCases;
+
+    private CompiledAnswerKey(int examId, boolean perCandidateShuffle, int size) {
+        this.examId = examId;
+        this.perCandidateShuffle = perCandidateShuffle;
+        this.questionIds = new int[size];
+        this.marks = new int[size];
+        this.kinds = new byte[size];
+        this.optionCounts = new int[size];
+        this.answerMasks = new int[size];
+        this.normalizedAnswers = new String[size];
+        this.sections = new String[size];
+        this.testCases = new ArrayList<>(size);
+    }
+
+    public static CompiledAnswerKey compile(int examId, boolean perCandidateShuffle, List<Question> questions,
+                                            List<ExamQuestionSet> sets) {
+        Question[] sorted = questions.toArray(new Question[0]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.getId(), b.getId()));
+
+        CompiledAnswerKey key = new CompiledAnswerKey(examId, perCandidateShuffle, sorted.length);
+
+        for (int i = 0; i < sorted.length; i++) {
+            Question q = sorted[i];
+            String answer = q.getAnswer();
+
+            key.questionIds[i] = q.getId();
+            key.marks[i] = q.getMarks() != null ? q.getMarks() : 0;
+            key.kinds[i] = (byte) kindOf(q.getType()).ordinal();
+            key.optionCounts[i] = q.getOptions() != null ? q.getOptions().size() : 0;
+            key.answerMasks[i] = answer != null ? letterMask(answer) : 0;
+            key.normalizedAnswers[i] = answer != null ? answer.trim().toLowerCase(Locale.ROOT) : null;
+            key.sections[i] = q.getSection();
+
+            List<RunMultipleRequestsDTO.TestCase> cases = q.getTestCases() != null ? List.copyOf(q.getTestCases()) : List.of();
+            key.testCases.add(cases);
+            key.hasTestCases |= key.kind(i) == Kind.CODING && !cases.isEmpty();
+        }
+
+        for (ExamQuestionSet set : sets) {
+            BitSet members = new BitSet(sorted.length);
+            for (int questionId : set.getQuestionIds()) {
+                int index = key.indexOf(questionId);
+                if (index >= 0) {
+                    members.set(index);
+                }
+            }
+            key.setMembers.put(set.getSetNumber(), members);
+        }
+        return key;
+    }
+
+    private static Kind kindOf(String type) {
+        if (type == null) {
+            return Kind.OTHER;
+        }
+        switch (type.trim().toLowerCase(Locale.ROOT)) {
+            case "mcq":    return Kind.MCQ;
+            case "coding": return Kind.CODING;
+            case "verbal": return Kind.VERBAL;
+            default:       return Kind.OTHER;
+        }
+    }
+
+    /**
+     * Bitmask of option letters in an answer such as "B" or "A, C"
+     * (bit 0 = A). Returns 0 when the text is not a pure letter list.
+     */
+    public static int letterMask(CharSequence answer) {
+        int mask = 0;
+        boolean expectLetter = true;
+
+        for (int i = 0; i < answer.length(); i++) {
+            char c = answer.charAt(i);
+
+            if (c == ',' ) {
+                if (expectLetter) {
+                    return 0;
+                }
+                expectLetter = true;
+            } else if (Character.isWhitespace(c)) {
+                continue;
+            } else {
+                int bit = Character.toUpperCase(c) - 'A';
+                if (!expectLetter || bit < 0 || bit >= 26) {
+                    return 0;
+                }
+                mask |= 1 << bit;
+                expectLetter = false;
+            }
+        }
+        return expectLetter ? 0 : mask;
+    }
+
+    /** Position of the question in this key, or a negative value if absent. */
+    public int indexOf(int questionId) {
+        return Arrays.binarySearch(questionIds, questionId);
+    }
+
+    /**
+     * Position of the question in this key if it belongs to question set
+     * {@code setNumber}, or a negative value. Exams without sets accept
+     * every question; exams with sets accept none without a set number.
+     */
+    public int indexOf(int questionId, Integer setNumber) {
+        int index = indexOf(questionId);
+        if (index < 0 || setMembers.isEmpty()) {
+            return index;
+        }
+        BitSet members = setNumber != null ? setMembers.get(setNumber) : null;
+        return members != null && members.get(index) ? index : -1;
+    }
+
+    public int getExamId() { return examId; }
+    public boolean isPerCandidateShuffle() { return perCandidateShuffle; }
+    public int size() { return questionIds.length; }
+    public boolean hasSets() { return !setMembers.isEmpty(); }
+
+    public int questionId(int index) { return questionIds[index]; }
+    public int marks(int index) { return marks[index]; }
+    public Kind kind(int index) { return KINDS[kinds[index]]; }
+    public int optionCount(int index) { return optionCounts[index]; }
+    public int answerMask(int index) { return answerMasks[index]; }
+    public String normalizedAnswer(int index) { return normalizedAnswers[index]; }
+    public String section(int index) { return sections[index]; }
+    public List<RunMultipleRequestsDTO.TestCase> testCases(int index) { return testCases.get(index); }
+
+    /** Whether the question is graded by running its hidden test cases. */
+    public boolean isTestCaseGraded(int index) {
+        return kind(index) == Kind.CODING && !testCases.get(index).isEmpty();
+    }
+
+    /** Whether any coding question of the exam is graded by test cases. */
+    public boolean hasTestCaseGradedQuestions() { return hasTestCases; }
+}
@@ -0,0 +1,62 @@
+package com.truerize.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 4180 CSV in UTF-8, with a byte order mark so Excel detects the
+ * encoding. Text starting with {@code = + - @} is prefixed with a quote so
+ * spreadsheets do not evaluate it as a formula.
+ */
+public class CsvExportWriter implements ExportWriter {
+
+    private final Writer out;
+
+    public CsvExportWriter(OutputStream stream) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 16 * 1024);
+        out.write('\uFEFF');
+    }
+
+    @Override
+    public void row(Object... cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            Object cell = cells[i];
+            if (cell instanceof Number) {
+                out.write(cell.toString());
+            } else if (cell != null) {
+                writeText(cell.toString());
+            }
+        }
+        out.write("\r\n");
+    }
+
+    private void writeText(String text) throws IOException {
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+            text = "'" + text;
+        }
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        out.write(text.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
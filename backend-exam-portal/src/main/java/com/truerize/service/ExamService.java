@@ -14,14 +14,36 @@ public class ExamService {
 
     @Autowired
     private ExamRepository examRepo;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private QuestionBankIndex questionBankIndex;
+
+    @Autowired
+    private QuestionPayloadCache questionPayloadCache;
  
    public Exam createExam(Exam exam){
+	 if (exam.getNumberOfSets() != null) {
+		 validNumberOfSets(exam.getNumberOfSets());
+	 }
 	 return  examRepo.save(exam);
    }
+
+	private static int validNumberOfSets(int numberOfSets) {
+		if (numberOfSets < 1 || numberOfSets > Exam.MAX_NUMBER_OF_SETS) {
+			throw new IllegalArgumentException("Number of sets must be between 1 and " + Exam.MAX_NUMBER_OF_SETS);
+		}
+		return numberOfSets;
+	}
 	
 
 	public void deleteExam(int id) {
 		examRepo.deleteById(id);
+		answerKeyCache.invalidate(id);
+		questionBankIndex.invalidate(id);
+		questionPayloadCache.invalidateExam(id);
 		
 	}
 
@@ -38,8 +60,14 @@ public class ExamService {
 		Exam existingExam = examRepo.findById(id).orElseThrow(()-> new RuntimeException("the exam is not found"));
 		existingExam.setDuration(examDetails.getDuration());
 		existingExam.setTitle(examDetails.getTitle());
+		existingExam.setPerCandidateShuffle(examDetails.isPerCandidateShuffle());
+		if (examDetails.getNumberOfSets() != null) {
+			existingExam.setNumberOfSets(validNumberOfSets(examDetails.getNumberOfSets()));
+		}
 		
-		return examRepo.save(existingExam);
+		Exam saved = examRepo.save(existingExam);
+		answerKeyCache.invalidate(id);
+		return saved;
 	}
 
 }
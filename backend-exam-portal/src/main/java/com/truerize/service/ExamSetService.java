@@ -1,27 +1,48 @@
 package com.truerize.service;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.security.SecureRandom;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.truerize.dto.StudentQuestionDTO;
+import com.truerize.entity.Exam;
 import com.truerize.entity.ExamQuestionSet;
+import com.truerize.entity.PackedIntArrayConverter;
 import com.truerize.entity.Question;
 import com.truerize.entity.StudentExamAssignment;
 import com.truerize.repository.ExamQuestionSetRepo;
+import com.truerize.repository.ExamRepository;
 import com.truerize.repository.QuestionRepository;
 import com.truerize.repository.StudentExamAssignmentRepo;
 
@@ -29,7 +50,10 @@ import com.truerize.repository.StudentExamAssignmentRepo;
 public class ExamSetService {
 
     private static final Logger log = LoggerFactory.getLogger(ExamSetService.class);
-    private static final int NUMBER_OF_SETS = 5;
+    private static final String INSERT_SET_SQL =
+            "INSERT INTO exam_question_sets (exam_id, set_number, question_order, created_at, is_active) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    private static final SecureRandom SEED_SOURCE = new SecureRandom();
 
     @Autowired
     private ExamQuestionSetRepo examQuestionSetRepo;
@@ -40,12 +64,52 @@ public class ExamSetService {
     @Autowired
     private QuestionRepository questionRepository;
 
+    @Autowired
+    private ExamRepository examRepository;
+
+    @Autowired
+    private QuestionPayloadCache questionPayloadCache;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private AttemptAutosaveService attemptAutosaveService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SetLoadBalancer setLoadBalancer;
+
+    @Autowired
+    private QuestionBankIndex questionBankIndex;
+
+    @Value("${exam.stats.cache-ttl-ms:2000}")
+    private long statsTtlMs;
+
+    private record CachedStats(Map<String, Object> stats, long loadedAt) {
+    }
+
+    /** Last statistics per exam; entries are simply replaced once older than the TTL. */
+    private final Map<Integer, CachedStats> statsCache = new ConcurrentHashMap<>();
+
+    /**
+     * Regenerates the exam's question sets: within each section (sections in
+     * name order) every set gets its own shuffle of the questions. All
+     * orderings are drawn from one RNG and written with a single JDBC batch
+     * in this transaction, replacing the previous sets and assignments.
+     */
     @Transactional
     public Map<String, Object> generateQuestionSets(Long examId) {
        
         log.info("Exam ID: {}", examId);
 
         try {
+            long start = System.nanoTime();
             int examIdInt = examId.intValue();
           
             List<Question> questions = questionRepository.findByExamId(examIdInt);
@@ -54,88 +118,66 @@ public class ExamSetService {
                 throw new IllegalStateException("No questions found for exam: " + examId);
             }
 
-            log.info("✓ Found {} questions", questions.size());
-
-            try {
-                int deletedAssignments = studentExamAssignmentRepo.deleteByExamId(examIdInt);
-                log.info("✓ Deleted {} existing assignments", deletedAssignments);
-            } catch (Exception e) {
-                log.warn("⚠️ Could not delete assignments: {}", e.getMessage());
-            }
-           
-            List<ExamQuestionSet> existingSets = examQuestionSetRepo.findByExamId(examIdInt);
-            
-            if (!existingSets.isEmpty()) {
-                log.info("✓ Found {} existing question sets to delete", existingSets.size());
-             
-                for (ExamQuestionSet set : existingSets) {
-                    if (set.getQuestionIds() != null && !set.getQuestionIds().isEmpty()) {
-                        set.getQuestionIds().clear();
-                        examQuestionSetRepo.save(set);
-                        log.info("✓ Cleared question IDs for Set {}", set.getSetNumber());
+            int numberOfSets = getNumberOfSets(examIdInt);
+            log.info("✓ Found {} questions, generating {} sets", questions.size(), numberOfSets);
+
+            clearSets(examIdInt);
+
+            // Question ids per section, sections in name order, computed once for all sets
+            int[][] sections = questions.stream()
+                    .collect(Collectors.groupingBy(Question::getSection, TreeMap::new,
+                            Collectors.mapping(Question::getId, Collectors.toList())))
+                    .values().stream()
+                    .map(ids -> ids.stream().mapToInt(Integer::intValue).toArray())
+                    .toArray(int[][]::new);
+
+            log.info("✓ Grouped questions by {} sections", sections.length);
+
+            SplittableRandom random = new SplittableRandom(SEED_SOURCE.nextLong());
+            List<int[]> orders = new ArrayList<>(numberOfSets);
+
+            for (int setNum = 1; setNum <= numberOfSets; setNum++) {
+                int[] order = new int[questions.size()];
+                int position = 0;
+                for (int[] section : sections) {
+                    int from = position;
+                    System.arraycopy(section, 0, order, position, section.length);
+                    position += section.length;
+                    // Fisher-Yates within the section's slice
+                    for (int i = position - 1; i > from; i--) {
+                        int j = from + random.nextInt(i - from + 1);
+                        int swap = order[i];
+                        order[i] = order[j];
+                        order[j] = swap;
                     }
                 }
-           
-                examQuestionSetRepo.flush();
-           
-                examQuestionSetRepo.deleteByExamId(examIdInt);
-                examQuestionSetRepo.flush();
-                log.info("✓ Deleted existing question sets");
+                orders.add(order);
             }
+            long shuffledAt = System.nanoTime();
 
-           
-            Map<String, List<Question>> questionsBySection = questions.stream()
-                    .collect(Collectors.groupingBy(Question::getSection));
-
-            log.info("✓ Grouped questions by {} sections", questionsBySection.size());
-
-            List<ExamQuestionSet> generatedSets = new ArrayList<>();
-
-          
-            for (int setNum = 1; setNum <= NUMBER_OF_SETS; setNum++) {
-                ExamQuestionSet questionSet = new ExamQuestionSet();
-                questionSet.setExamId(examIdInt);
-                questionSet.setSetNumber(setNum);
-                questionSet.setCreatedAt(LocalDateTime.now());
-                questionSet.setIsActive(true);
-
-                List<String> shuffledQuestionIds = new ArrayList<>();
-                
-              
-                List<String> sortedSections = new ArrayList<>(questionsBySection.keySet());
-                Collections.sort(sortedSections);
-
-              
-                for (String section : sortedSections) {
-                    List<Question> sectionQuestions = new ArrayList<>(questionsBySection.get(section));
-                    Collections.shuffle(sectionQuestions, new Random(System.nanoTime() + setNum * 1000));
-                    
-                    shuffledQuestionIds.addAll(
-                        sectionQuestions.stream()
-                            .map(q -> String.valueOf(q.getId()))
-                            .collect(Collectors.toList())
-                    );
-                }
+            insertSets(examIdInt, orders);
+            long insertedAt = System.nanoTime();
 
-                questionSet.setQuestionIds(shuffledQuestionIds);
-                
-                ExamQuestionSet saved = examQuestionSetRepo.save(questionSet);
-                generatedSets.add(saved);
-                
-                log.info("✅ Generated Set {} with {} questions", setNum, shuffledQuestionIds.size());
+            List<Map<String, Object>> sets = new ArrayList<>(numberOfSets);
+            for (int setNum = 1; setNum <= numberOfSets; setNum++) {
+                sets.add(Map.of("setNumber", setNum, "questionCount", questions.size()));
             }
 
+            Map<String, Object> timing = new HashMap<>();
+            timing.put("shuffleMs", TimeUnit.NANOSECONDS.toMillis(shuffledAt - start));
+            timing.put("insertMs", TimeUnit.NANOSECONDS.toMillis(insertedAt - shuffledAt));
+            timing.put("totalMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
             Map<String, Object> result = new HashMap<>();
             result.put("examId", examId);
             result.put("totalQuestions", questions.size());
-            result.put("numberOfSets", NUMBER_OF_SETS);
-            result.put("sets", generatedSets);
-            result.put("message", "Successfully generated " + NUMBER_OF_SETS + " question sets");
+            result.put("numberOfSets", numberOfSets);
+            result.put("sets", sets);
+            result.put("timing", timing);
+            result.put("message", "Successfully generated " + numberOfSets + " question sets");
             result.put("success", true);
 
-            log.info("========================================");
-            log.info("✅ GENERATION COMPLETE");
-            log.info("========================================");
+            log.info("✅ Generated {} sets of {} questions in {} ms", numberOfSets, questions.size(), timing.get("totalMs"));
 
             return result;
             
@@ -150,6 +192,144 @@ public class ExamSetService {
         }
     }
 
+    /**
+     * Regenerates the exam's sets as draws from a larger question bank. Each
+     * set takes {@code sectionCounts} questions per section (sections not
+     * listed are taken whole), an even spread of every difficulty tag and,
+     * where the bank allows, the same total marks. The response reports the
+     * balance each set achieved.
+     */
+    @Transactional
+    public Map<String, Object> generateBalancedQuestionSets(Long examId, Map<String, Integer> sectionCounts) {
+        log.info("Exam ID: {}, section counts: {}", examId, sectionCounts);
+
+        try {
+            long start = System.nanoTime();
+            int examIdInt = examId.intValue();
+
+            if (isPerCandidateShuffle(examIdInt)) {
+                throw new IllegalStateException("Exam uses per-candidate shuffle; it has no question sets");
+            }
+
+            List<Question> questions = questionRepository.findByExamId(examIdInt);
+            if (questions == null || questions.isEmpty()) {
+                throw new IllegalStateException("No questions found for exam: " + examId);
+            }
+
+            Map<String, List<Question>> bySection = questions.stream()
+                    .collect(Collectors.groupingBy(Question::getSection, TreeMap::new, Collectors.toList()));
+            Map<String, Integer> counts = sectionCounts == null ? Map.of() : sectionCounts;
+            for (String section : counts.keySet()) {
+                if (!bySection.containsKey(section)) {
+                    throw new IllegalArgumentException("Exam has no section " + section);
+                }
+            }
+
+            List<BalancedSetSolver.Section> sections = new ArrayList<>(bySection.size());
+            for (Map.Entry<String, List<Question>> entry : bySection.entrySet()) {
+                List<Question> pool = entry.getValue();
+                int[] ids = new int[pool.size()];
+                int[] marks = new int[pool.size()];
+                String[] difficulties = new String[pool.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    Question q = pool.get(i);
+                    ids[i] = q.getId();
+                    marks[i] = q.getMarks() != null ? q.getMarks() : 0;
+                    difficulties[i] = q.getDifficulty();
+                }
+                int count = counts.getOrDefault(entry.getKey(), pool.size());
+                sections.add(new BalancedSetSolver.Section(entry.getKey(), ids, marks, difficulties, count));
+            }
+
+            int numberOfSets = getNumberOfSets(examIdInt);
+            clearSets(examIdInt);
+            long preparedAt = System.nanoTime();
+
+            List<BalancedSetSolver.DrawnSet> drawn = BalancedSetSolver.solve(
+                    sections, numberOfSets, new SplittableRandom(SEED_SOURCE.nextLong()));
+            long solvedAt = System.nanoTime();
+
+            insertSets(examIdInt, drawn.stream().map(BalancedSetSolver.DrawnSet::getOrder).toList());
+            long insertedAt = System.nanoTime();
+
+            List<Map<String, Object>> sets = new ArrayList<>(numberOfSets);
+            int balancedSets = 0;
+            int distinctSets = 0;
+            for (int i = 0; i < drawn.size(); i++) {
+                BalancedSetSolver.DrawnSet set = drawn.get(i);
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("setNumber", i + 1);
+                summary.put("questionCount", set.getOrder().length);
+                summary.putAll(set.getBalance());
+                sets.add(summary);
+                balancedSets += set.isBalanced() ? 1 : 0;
+                distinctSets += set.isDistinct() ? 1 : 0;
+            }
+
+            Map<String, Object> timing = new HashMap<>();
+            timing.put("prepareMs", TimeUnit.NANOSECONDS.toMillis(preparedAt - start));
+            timing.put("solveMs", TimeUnit.NANOSECONDS.toMillis(solvedAt - preparedAt));
+            timing.put("insertMs", TimeUnit.NANOSECONDS.toMillis(insertedAt - solvedAt));
+            timing.put("totalMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("examId", examId);
+            result.put("bankSize", questions.size());
+            result.put("questionsPerSet", drawn.isEmpty() ? 0 : drawn.get(0).getOrder().length);
+            result.put("numberOfSets", numberOfSets);
+            result.put("targetMarks", BalancedSetSolver.targetMarks(sections));
+            result.put("balancedSets", balancedSets);
+            result.put("distinctSets", distinctSets);
+            result.put("sets", sets);
+            result.put("timing", timing);
+            result.put("message", "Successfully generated " + numberOfSets + " balanced question sets");
+            result.put("success", true);
+
+            log.info("✅ Generated {} balanced sets ({} on target) in {} ms",
+                    numberOfSets, balancedSets, timing.get("totalMs"));
+            return result;
+
+        } catch (Exception e) {
+            log.error("❌ Error generating balanced question sets", e);
+
+            Map<String, Object> errorResult = new HashMap<>();
+            errorResult.put("success", false);
+            errorResult.put("error", e.getMessage());
+            errorResult.put("examId", examId);
+            return errorResult;
+        }
+    }
+
+    /** Deletes the exam's sets and, since they point into them, its assignments. */
+    private void clearSets(int examId) {
+        try {
+            int deletedAssignments = studentExamAssignmentRepo.deleteByExamId(examId);
+            attemptAutosaveService.clearExam(examId);
+            setLoadBalancer.reset(examId);
+            statsCache.remove(examId);
+            log.info("✓ Deleted {} existing assignments", deletedAssignments);
+        } catch (Exception e) {
+            log.warn("⚠️ Could not delete assignments: {}", e.getMessage());
+        }
+
+        Integer deletedSets = examQuestionSetRepo.deleteByExamId(examId);
+        answerKeyCache.invalidate(examId);
+        if (deletedSets != null && deletedSets > 0) {
+            log.info("✓ Deleted {} existing question sets", deletedSets);
+        }
+    }
+
+    /** Writes sets 1..n with one JDBC batch. */
+    private void insertSets(int examId, List<int[]> orders) {
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(orders.size());
+        for (int i = 0; i < orders.size(); i++) {
+            rows.add(new Object[] { examId, i + 1, PackedIntArrayConverter.pack(orders.get(i)), createdAt, true });
+        }
+        jdbcTemplate.batchUpdate(INSERT_SET_SQL, rows);
+        questionPayloadCache.invalidateExam(examId);
+        answerKeyCache.invalidate(examId);
+    }
    
     @Transactional
     public Map<String, Object> autoAssignStudentToSet(String studentId, Long examId) {
@@ -177,10 +357,11 @@ public class ExamSetService {
                 return result;
             }
 
+            boolean perCandidateShuffle = isPerCandidateShuffle(examIdInt);
             
-            List<ExamQuestionSet> existingSets = examQuestionSetRepo.findByExamIdAndIsActiveTrue(examIdInt);
+            long existingSets = examQuestionSetRepo.countByExamIdAndIsActiveTrue(examIdInt);
             
-            if (existingSets.isEmpty()) {
+            if (existingSets == 0 && !perCandidateShuffle) {
                 log.info(" No question sets found, generating...");
                 Map<String, Object> generateResult = generateQuestionSets(examId);
                 
@@ -188,41 +369,23 @@ public class ExamSetService {
                     throw new IllegalStateException("Failed to generate question sets");
                 }
                 
-                existingSets = examQuestionSetRepo.findByExamIdAndIsActiveTrue(examIdInt);
+                existingSets = examQuestionSetRepo.countByExamIdAndIsActiveTrue(examIdInt);
                 
-                if (existingSets.isEmpty()) {
+                if (existingSets == 0) {
                     throw new IllegalStateException("Failed to generate question sets");
                 }
             }
 
-            log.info("✓ Found {} active sets", existingSets.size());
+            log.info("✓ Found {} active sets", existingSets);
 
          
-            Map<Integer, Long> setDistribution = getSetDistribution(examIdInt);
-            
-            log.info("Current distribution:");
-            for (int i = 1; i <= NUMBER_OF_SETS; i++) {
-                long count = setDistribution.getOrDefault(i, 0L);
-                log.info("   Set {}: {} students", i, count);
-            }
+            // Balance over the sets that exist; the configured count may have changed since they were generated
+            int setCount = existingSets > 0 ? (int) existingSets : getNumberOfSets(examIdInt);
+            SetLoadBalancer.Allocation allocation = setLoadBalancer.allocate(examIdInt, setCount);
+            int assignedSetNumber = allocation.setNumber();
+            int slotNumber = allocation.slotNumber();
 
-           
-            int assignedSetNumber = 1;
-            long minStudents = Long.MAX_VALUE;
-            
-            for (int setNum = 1; setNum <= NUMBER_OF_SETS; setNum++) {
-                long count = setDistribution.getOrDefault(setNum, 0L);
-                if (count < minStudents) {
-                    minStudents = count;
-                    assignedSetNumber = setNum;
-                }
-            }
-
-            log.info("Assigning to Set {} (currently has {} students)", 
-                assignedSetNumber, minStudents);
-
-         
-            int slotNumber = (int) (minStudents + 1);
+            log.info("Assigning to Set {} (slot {})", assignedSetNumber, slotNumber);
 
             StudentExamAssignment assignment = new StudentExamAssignment();
             assignment.setStudentId(studentId);
@@ -232,6 +395,9 @@ public class ExamSetService {
             assignment.setAssignedAt(LocalDateTime.now());
             assignment.setHasStarted(false);
             assignment.setHasCompleted(false);
+            if (perCandidateShuffle) {
+                assignment.setPermutationSeed(SEED_SOURCE.nextLong());
+            }
 
             studentExamAssignmentRepo.save(assignment);
 
@@ -281,14 +447,25 @@ public class ExamSetService {
         }
     }
 
-    private Map<Integer, Long> getSetDistribution(int examId) {
-        List<StudentExamAssignment> assignments = studentExamAssignmentRepo.findByExamId(examId);
-        
-        return assignments.stream()
-            .collect(Collectors.groupingBy(
-                StudentExamAssignment::getAssignedSetNumber,
-                Collectors.counting()
-            ));
+    public int getNumberOfSets(int examId) {
+        return examRepository.findById(examId)
+                .map(Exam::resolveNumberOfSets)
+                .orElse(Exam.DEFAULT_NUMBER_OF_SETS);
+    }
+
+    /**
+     * Number of sets candidates are spread over: the active generated sets,
+     * or the configured count when the exam has none (per-candidate shuffle).
+     */
+    public int getActiveSetCount(int examId) {
+        long activeSets = examQuestionSetRepo.countByExamIdAndIsActiveTrue(examId);
+        return activeSets > 0 ? (int) activeSets : getNumberOfSets(examId);
+    }
+
+    private boolean isPerCandidateShuffle(int examId) {
+        return examRepository.findById(examId)
+                .map(Exam::isPerCandidateShuffle)
+                .orElse(false);
     }
 
     @Transactional
@@ -329,6 +506,8 @@ public class ExamSetService {
                     existing.getAssignedSetNumber(), studentId);
                 studentExamAssignmentRepo.delete(existing);
                 studentExamAssignmentRepo.flush();
+                attemptAutosaveService.clearAttempt(existing.getId());
+                setLoadBalancer.release(examIdInt, existing.getAssignedSetNumber());
             }
 
          
@@ -340,7 +519,11 @@ public class ExamSetService {
             assignment.setAssignedAt(LocalDateTime.now());
             assignment.setHasStarted(false);
             assignment.setHasCompleted(false);
+            if (isPerCandidateShuffle(examIdInt)) {
+                assignment.setPermutationSeed(SEED_SOURCE.nextLong());
+            }
 
+            setLoadBalancer.record(examIdInt, getActiveSetCount(examIdInt), setNumber);
             studentExamAssignmentRepo.save(assignment);
 
             Map<String, Object> result = new HashMap<>();
@@ -373,7 +556,8 @@ public class ExamSetService {
     }
 
    
-    public List<Question> getShuffledQuestionsForStudent(String studentId, Long examId) {
+    @Transactional(readOnly = true)
+    public List<StudentQuestionDTO> getShuffledQuestionsForStudent(String studentId, Long examId) {
         
         log.info("Student ID: {}, Exam ID: {}", studentId, examId);
 
@@ -390,36 +574,216 @@ public class ExamSetService {
 
         log.info("✓ Assignment found - Set: {}", assignment.getAssignedSetNumber());
 
+        List<StudentQuestionDTO> orderedQuestions = assignment.getPermutationSeed() != null
+                ? seededQuestions(examIdInt, assignment.getAssignedSetNumber(), assignment.getPermutationSeed())
+                : loadOrderedQuestions(examIdInt, assignment.getAssignedSetNumber());
+
+        log.info("✅ Returning {} shuffled questions (Set {})", 
+                orderedQuestions.size(), assignment.getAssignedSetNumber());
+        
+
+        return orderedQuestions;
+    }
+
+    /**
+     * Serialized question list of one set, built from the answer-free
+     * {@link StudentQuestionDTO} projection. The
+     * bytes are identical for every candidate on the set and served from
+     * {@link QuestionPayloadCache}; {@code null} means the set has no questions.
+     */
+    @Transactional(readOnly = true)
+    public byte[] getQuestionSetPayload(Long examId, int setNumber) {
+        int examIdInt = examId.intValue();
+
+        return questionPayloadCache.get(examIdInt, setNumber, () -> {
+            List<StudentQuestionDTO> questions = loadOrderedQuestions(examIdInt, setNumber);
+
+            if (questions.isEmpty()) {
+                return null;
+            }
+
+            try {
+                byte[] bytes = objectMapper.writer()
+                        .without(SerializationFeature.INDENT_OUTPUT)
+                        .writeValueAsBytes(questions);
+                log.info("✓ Cached payload for exam {} set {} ({} questions, {} bytes)",
+                        examId, setNumber, questions.size(), bytes.length);
+                return bytes;
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize question set " + setNumber, e);
+            }
+        });
+    }
+
+    /**
+     * Payload for one candidate: the shared set payload, or a freshly
+     * permuted paper when the assignment carries a permutation seed.
+     */
+    @Transactional(readOnly = true)
+    public byte[] getQuestionPayload(StudentExamAssignment assignment) {
+        if (assignment.getPermutationSeed() == null) {
+            return getQuestionSetPayload((long) assignment.getExamId(), assignment.getAssignedSetNumber());
+        }
+
+        List<StudentQuestionDTO> questions =
+            seededQuestions(assignment.getExamId(), assignment.getAssignedSetNumber(),
+                assignment.getPermutationSeed());
+
+        if (questions.isEmpty()) {
+            return null;
+        }
+
+        try {
+            return objectMapper.writer()
+                    .without(SerializationFeature.INDENT_OUTPUT)
+                    .writeValueAsBytes(questions);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize questions for exam " + assignment.getExamId(), e);
+        }
+    }
+
+    /**
+     * Candidate-specific paper: the questions of the assigned set shuffled
+     * within each section and MCQ options shuffled within each question, all
+     * derived from {@code seed}. Scoring maps answers back with
+     * {@link QuestionPermutation#toOriginalMask}.
+     */
+    private List<StudentQuestionDTO> seededQuestions(int examId, Integer setNumber, long seed) {
+        CompiledAnswerKey key = answerKeyCache.get(examId);
+        List<StudentQuestionDTO> base = questionPayloadCache.getExamQuestions(examId, () -> {
+            List<StudentQuestionDTO> views = new ArrayList<>(questionRepository.findStudentViewsByExamId(examId));
+            views.sort(Comparator.comparing(StudentQuestionDTO::getSection));
+            return views;
+        });
+        if (key.hasSets()) {
+            base = base.stream().filter(q -> key.indexOf(q.getId(), setNumber) >= 0).toList();
+        }
+
+        int n = base.size();
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+
+        int from = 0;
+        int sectionIndex = 0;
+        while (from < n) {
+            int to = from + 1;
+            while (to < n && Objects.equals(base.get(to).getSection(), base.get(from).getSection())) {
+                to++;
+            }
+            QuestionPermutation.shuffle(order, from, to, QuestionPermutation.derive(seed, -(sectionIndex + 1)));
+            sectionIndex++;
+            from = to;
+        }
+
+        List<StudentQuestionDTO> paper = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            StudentQuestionDTO q = base.get(order[i]);
+            List<String> options = q.getOptions();
+
+            if (options != null && options.size() > 1
+                    && ("single".equals(q.getType()) || "multiple".equals(q.getType()))) {
+                int[] optionOrder = QuestionPermutation.optionOrder(seed, q.getId(), options.size());
+                List<String> shuffled = new ArrayList<>(options.size());
+                for (int index : optionOrder) {
+                    shuffled.add(options.get(index));
+                }
+                q = new StudentQuestionDTO(q.getId(), q.getSection(), q.getType(),
+                        q.getQuestionText(), q.getMarks(), q.getqNo(), shuffled);
+            }
+            paper.add(q);
+        }
+        return paper;
+    }
+
+    private List<StudentQuestionDTO> loadOrderedQuestions(int examId, int setNumber) {
         ExamQuestionSet questionSet = examQuestionSetRepo
-                .findByExamIdAndSetNumberAndIsActiveTrue(examIdInt, assignment.getAssignedSetNumber())
+                .findByExamIdAndSetNumberAndIsActiveTrue(examId, setNumber)
                 .orElseThrow(() -> {
                     log.error("❌ Question set not found");
                     return new IllegalStateException(
-                        "Question set " + assignment.getAssignedSetNumber() + 
-                        " not found for exam " + examId);
+                        "Question set " + setNumber + " not found for exam " + examId);
                 });
 
-        log.info("✓ Question set found with {} questions", questionSet.getQuestionIds().size());
+        log.info("✓ Question set found with {} questions", questionSet.getQuestionIds().length);
 
-        List<Integer> questionIds = questionSet.getQuestionIds().stream()
-                .map(Integer::parseInt)
+        List<Integer> questionIds = Arrays.stream(questionSet.getQuestionIds())
+                .boxed()
                 .collect(Collectors.toList());
 
-        List<Question> questions = questionRepository.findAllById(questionIds);
+        List<StudentQuestionDTO> questions = questionRepository.findStudentViewsByIdIn(questionIds);
        
-        Map<Integer, Question> questionMap = questions.stream()
-                .collect(Collectors.toMap(Question::getId, q -> q));
+        Map<Integer, StudentQuestionDTO> questionMap = questions.stream()
+                .collect(Collectors.toMap(StudentQuestionDTO::getId, q -> q));
 
-        List<Question> orderedQuestions = questionIds.stream()
+        return questionIds.stream()
                 .map(questionMap::get)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+    }
 
-        log.info("✅ Returning {} shuffled questions (Set {})", 
-                orderedQuestions.size(), assignment.getAssignedSetNumber());
-        
+    /**
+     * Everything the quiz client needs to start, resolved in one transaction:
+     * access check, start timestamp, assignment metadata, timing and the
+     * cached question payload (embedded as raw JSON).
+     */
+    @Transactional
+    public Map<String, Object> bootstrapExam(String studentId, Long examId) {
+        int examIdInt = examId.intValue();
 
-        return orderedQuestions;
+        StudentExamAssignment assignment = studentExamAssignmentRepo
+                .findByStudentIdAndExamId(studentId, examIdInt)
+                .orElseThrow(() -> new IllegalStateException(
+                    "You are not assigned to this exam. Please contact administrator."));
+
+        if (Boolean.TRUE.equals(assignment.getHasCompleted())) {
+            throw new IllegalStateException("Exam already completed");
+        }
+
+        Exam exam = examRepository.findById(examIdInt)
+                .orElseThrow(() -> new IllegalStateException("Exam not found: " + examId));
+
+        LocalDateTime now = LocalDateTime.now();
+
+        if (!Boolean.TRUE.equals(assignment.getHasStarted())) {
+            assignment.setHasStarted(true);
+            assignment.setStartedAt(now);
+            studentExamAssignmentRepo.save(assignment);
+            log.info(" Marked exam {} as started for student {}", examId, studentId);
+        }
+
+        byte[] payload = getQuestionPayload(assignment);
+
+        if (payload == null) {
+            throw new IllegalStateException(
+                "No questions found for your assigned set. Please contact administrator.");
+        }
+
+        long durationSeconds = exam.getDuration() * 60L;
+        LocalDateTime startedAt = assignment.getStartedAt() != null ? assignment.getStartedAt() : now;
+        long elapsedSeconds = Duration.between(startedAt, now).getSeconds();
+
+        Map<String, Object> assignmentData = new HashMap<>();
+        assignmentData.put("assignedSetNumber", assignment.getAssignedSetNumber());
+        assignmentData.put("slotNumber", assignment.getSlotNumber());
+        assignmentData.put("hasStarted", assignment.getHasStarted());
+        assignmentData.put("hasCompleted", assignment.getHasCompleted());
+        assignmentData.put("startedAt", assignment.getStartedAt());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("examId", examId);
+        result.put("studentId", studentId);
+        result.put("examTitle", exam.getTitle());
+        result.put("durationMinutes", exam.getDuration());
+        result.put("assignment", assignmentData);
+        result.put("serverTime", now);
+        result.put("serverTimeMillis", System.currentTimeMillis());
+        result.put("remainingSeconds",
+            durationSeconds > 0 ? Math.max(0, durationSeconds - elapsedSeconds) : null);
+        result.put("questions", new RawValue(new String(payload, StandardCharsets.UTF_8)));
+
+        return result;
     }
 
     public Optional<StudentExamAssignment> getStudentAssignment(String studentId, Long examId) {
@@ -467,30 +831,50 @@ public class ExamSetService {
             setData.put("isActive", set.getIsActive());
             setData.put("createdAt", set.getCreatedAt());
             setData.put("questionIds", set.getQuestionIds());
-            setData.put("questionCount", set.getQuestionIds().size());
+            setData.put("questionCount", set.getQuestionIds().length);
             result.add(setData);
         }
         
         return result;
     }
 
+    /**
+     * Assignment counts for the exam, from one grouped query over the
+     * assignments index. The admin screen polls this during live exams, so
+     * results are reused for {@code exam.stats.cache-ttl-ms}.
+     */
     public Map<String, Object> getExamStatistics(Long examId) {
         int examIdInt = examId.intValue();
-        
-        List<StudentExamAssignment> assignments = studentExamAssignmentRepo.findByExamId(examIdInt);
-        List<ExamQuestionSet> sets = examQuestionSetRepo.findByExamId(examIdInt);
+        long now = System.nanoTime();
+
+        CachedStats cached = statsCache.get(examIdInt);
+        if (cached != null && now - cached.loadedAt < TimeUnit.MILLISECONDS.toNanos(statsTtlMs)) {
+            return cached.stats;
+        }
 
-        Map<Integer, Long> distributionMap = getSetDistribution(examIdInt);
+        long assigned = 0;
+        long started = 0;
+        long completed = 0;
+        Map<Integer, Long> distributionMap = new TreeMap<>();
+        for (Object[] row : studentExamAssignmentRepo.summarizeBySetNumber(examIdInt)) {
+            long count = ((Number) row[1]).longValue();
+            distributionMap.put(((Number) row[0]).intValue(), count);
+            assigned += count;
+            started += row[2] == null ? 0 : ((Number) row[2]).longValue();
+            completed += row[3] == null ? 0 : ((Number) row[3]).longValue();
+        }
 
         Map<String, Object> stats = new HashMap<>();
         stats.put("examId", examId);
-        stats.put("totalSets", sets.size());
-        stats.put("totalStudentsAssigned", assignments.size());
-        stats.put("studentsStarted", assignments.stream().filter(StudentExamAssignment::getHasStarted).count());
-        stats.put("studentsCompleted", assignments.stream().filter(StudentExamAssignment::getHasCompleted).count());
+        stats.put("totalSets", examQuestionSetRepo.countByExamId(examIdInt));
+        stats.put("totalStudentsAssigned", assigned);
+        stats.put("studentsStarted", started);
+        stats.put("studentsCompleted", completed);
         stats.put("setDistribution", distributionMap);
 
-        return stats;
+        Map<String, Object> snapshot = Collections.unmodifiableMap(stats);
+        statsCache.put(examIdInt, new CachedStats(snapshot, now));
+        return snapshot;
     }
 
     @Transactional
@@ -505,33 +889,24 @@ public class ExamSetService {
                 log.warn(" Deleting {} student assignments", assignmentCount);
                 studentExamAssignmentRepo.deleteByExamId(examIdInt);
                 studentExamAssignmentRepo.flush();
+                attemptAutosaveService.clearExam(examIdInt);
+                setLoadBalancer.reset(examIdInt);
+                statsCache.remove(examIdInt);
             }
 
             
-            List<ExamQuestionSet> existingSets = examQuestionSetRepo.findByExamId(examIdInt);
+            Integer deletedCount = examQuestionSetRepo.deleteByExamId(examIdInt);
             
-            if (!existingSets.isEmpty()) {
-                log.info("✓ Found {} question sets to delete", existingSets.size());
-             
-                for (ExamQuestionSet set : existingSets) {
-                    if (set.getQuestionIds() != null && !set.getQuestionIds().isEmpty()) {
-                        set.getQuestionIds().clear();
-                        examQuestionSetRepo.save(set);
-                        log.info("✓ Cleared question IDs for Set {}", set.getSetNumber());
-                    }
-                }
-             
-                examQuestionSetRepo.flush();
-               
-                Integer deletedCount = examQuestionSetRepo.deleteByExamId(examIdInt);
-                examQuestionSetRepo.flush();
+            if (deletedCount != null && deletedCount > 0) {
+                questionPayloadCache.invalidateExam(examIdInt);
+                answerKeyCache.invalidate(examIdInt);
                 
-                log.info(" Deleted {} question sets", deletedCount != null ? deletedCount : 0);
+                log.info(" Deleted {} question sets", deletedCount);
                 
                 Map<String, Object> result = new HashMap<>();
                 result.put("success", true);
                 result.put("message", "Question sets deleted successfully");
-                result.put("deletedCount", deletedCount != null ? deletedCount : 0);
+                result.put("deletedCount", deletedCount);
                 return result;
             } else {
                 Map<String, Object> result = new HashMap<>();
@@ -570,7 +945,7 @@ public class ExamSetService {
         Map<String, Object> details = new HashMap<>();
         details.put("examId", examId);
         details.put("setNumber", setNumber);
-        details.put("questionCount", questionSet.getQuestionIds().size());
+        details.put("questionCount", questionSet.getQuestionIds().length);
         details.put("studentCount", studentCount);
         details.put("createdAt", questionSet.getCreatedAt());
         details.put("isActive", questionSet.getIsActive());
@@ -578,48 +953,99 @@ public class ExamSetService {
         return details;
     }
 
+    /**
+     * Checks every set of the exam in one pass over its question ids:
+     * ids not in the exam, ids repeated within a set, and per-section counts
+     * that differ from what most sets have. Membership is tested against the
+     * cached {@link QuestionBankIndex}, so no question is loaded.
+     */
     public Map<String, Object> validateQuestionSets(Long examId) {
+        long start = System.nanoTime();
         int examIdInt = examId.intValue();
-        
-        List<ExamQuestionSet> sets = examQuestionSetRepo.findByExamId(examIdInt);
-        List<Question> allQuestions = questionRepository.findByExamId(examIdInt);
-        
-        java.util.Set<Integer> validQuestionIds = allQuestions.stream()
-                .map(Question::getId)
-                .collect(Collectors.toSet());
-
-        Map<String, Object> validation = new HashMap<>();
-        validation.put("examId", examId);
-        validation.put("totalSets", sets.size());
-        validation.put("totalQuestions", allQuestions.size());
 
-        List<Map<String, Object>> setValidations = new ArrayList<>();
-        boolean allValid = true;
+        List<ExamQuestionSet> sets = examQuestionSetRepo.findByExamId(examIdInt);
+        QuestionBankIndex.Bank bank = questionBankIndex.get(examIdInt);
+        String[] sections = bank.getSections();
+
+        BitSet seen = new BitSet();
+        int[][] sectionCounts = new int[sets.size()][];
+        Map<String, Integer> shapes = new HashMap<>();
+        List<Map<String, Object>> setValidations = new ArrayList<>(sets.size());
+
+        for (int s = 0; s < sets.size(); s++) {
+            int[] ids = sets.get(s).getQuestionIds();
+            int[] counts = new int[sections.length];
+            List<Integer> invalidIds = new ArrayList<>();
+            List<Integer> duplicateIds = new ArrayList<>();
+
+            seen.clear();
+            for (int id : ids) {
+                int offset = bank.offsetOf(id);
+                if (offset < 0) {
+                    invalidIds.add(id);
+                } else if (seen.get(offset)) {
+                    duplicateIds.add(id);
+                } else {
+                    seen.set(offset);
+                    counts[bank.sectionOf(id)]++;
+                }
+            }
+            sectionCounts[s] = counts;
+            shapes.merge(Arrays.toString(counts), 1, Integer::sum);
 
-        for (ExamQuestionSet set : sets) {
             Map<String, Object> setValidation = new HashMap<>();
-            setValidation.put("setNumber", set.getSetNumber());
-            setValidation.put("questionCount", set.getQuestionIds().size());
-
-            List<String> invalidIds = set.getQuestionIds().stream()
-                    .filter(id -> !validQuestionIds.contains(Integer.parseInt(id)))
-                    .collect(Collectors.toList());
-
+            setValidation.put("setNumber", sets.get(s).getSetNumber());
+            setValidation.put("questionCount", ids.length);
             setValidation.put("invalidQuestionIds", invalidIds);
-            setValidation.put("isValid", invalidIds.isEmpty());
+            setValidation.put("duplicateQuestionIds", duplicateIds);
+            setValidations.add(setValidation);
+        }
 
-            if (!invalidIds.isEmpty()) {
-                allValid = false;
+        // Sets are expected to share one section layout; the most common one is the reference
+        int[] expected = new int[sections.length];
+        int best = 0;
+        for (int[] counts : sectionCounts) {
+            int frequency = shapes.get(Arrays.toString(counts));
+            if (frequency > best) {
+                best = frequency;
+                expected = counts;
             }
+        }
 
-            setValidations.add(setValidation);
+        boolean allValid = true;
+        for (int s = 0; s < sets.size(); s++) {
+            Map<String, Object> setValidation = setValidations.get(s);
+            boolean layoutMatches = Arrays.equals(sectionCounts[s], expected);
+            boolean valid = layoutMatches
+                    && ((List<?>) setValidation.get("invalidQuestionIds")).isEmpty()
+                    && ((List<?>) setValidation.get("duplicateQuestionIds")).isEmpty();
+
+            setValidation.put("sectionCounts", namedCounts(sections, sectionCounts[s]));
+            setValidation.put("sectionCountMismatch", !layoutMatches);
+            setValidation.put("isValid", valid);
+            allValid &= valid;
         }
 
+        Map<String, Object> validation = new HashMap<>();
+        validation.put("examId", examId);
+        validation.put("totalSets", sets.size());
+        validation.put("totalQuestions", bank.size());
+        validation.put("bankVersion", bank.getVersion());
+        validation.put("expectedSectionCounts", namedCounts(sections, expected));
         validation.put("setValidations", setValidations);
         validation.put("allSetsValid", allValid);
+        validation.put("validationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
         return validation;
     }
+
+    private static Map<String, Integer> namedCounts(String[] sections, int[] counts) {
+        Map<String, Integer> named = new LinkedHashMap<>();
+        for (int i = 0; i < sections.length; i++) {
+            named.put(sections[i], counts[i]);
+        }
+        return named;
+    }
    
     public Map<String, Object> getSetDetailsWithQuestions(Long examId, Integer setNumber) {
         try {
@@ -631,10 +1057,10 @@ public class ExamSetService {
                             "Question set " + setNumber + " not found for exam " + examId));
             
            
-            List<Question> allQuestions = questionRepository.findByExamId(examIdInt);
+            QuestionBankIndex.Bank bank = questionBankIndex.get(examIdInt);
            
-            List<Integer> questionIds = questionSet.getQuestionIds().stream()
-                    .map(Integer::parseInt)
+            List<Integer> questionIds = Arrays.stream(questionSet.getQuestionIds())
+                    .boxed()
                     .collect(Collectors.toList());
             
             List<Question> setQuestions = questionRepository.findAllById(questionIds);
@@ -643,11 +1069,11 @@ public class ExamSetService {
             debug.put("examId", examId);
             debug.put("setNumber", setNumber);
             debug.put("questionIdsInSet", questionSet.getQuestionIds());
-            debug.put("questionIdsCount", questionSet.getQuestionIds().size());
-            debug.put("totalQuestionsInExam", allQuestions.size());
+            debug.put("questionIdsCount", questionSet.getQuestionIds().length);
+            debug.put("totalQuestionsInExam", bank.size());
             debug.put("questionsFoundForSet", setQuestions.size());
             debug.put("setIsActive", questionSet.getIsActive());
-            debug.put("allQuestionIdsInDatabase", allQuestions.stream().map(Question::getId).collect(Collectors.toList()));
+            debug.put("allQuestionIdsInDatabase", bank.ids());
             debug.put("questionsInSet", setQuestions.stream().map(q -> {
                 Map<String, Object> qMap = new HashMap<>();
                 qMap.put("id", q.getId());
@@ -0,0 +1,18 @@
+package com.truerize.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes a table one row at a time straight to an output stream, holding
+ * no more than the current row. Cells may be {@link Number}s, which are
+ * written as numbers, or anything else, written as text; nulls are empty.
+ */
+public interface ExportWriter extends Closeable {
+
+    void row(Object... cells) throws IOException;
+
+    /** Finishes the document; the underlying stream is closed too. */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,136 @@
+package com.truerize.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded thread pool for one named workload, with counters and latency
+ * histograms for the dashboard. When both the threads and the queue are
+ * full a task is run by the caller, rejected, or, for {@link Spillable}
+ * tasks under {@link Rejection#SPILL}, handed back to durable storage to be
+ * picked up later.
+ *
+ * <p>Spilling only works for tasks passed to {@link #execute}; tasks given
+ * to {@code submit} are wrapped in a future first and fall back to running
+ * on the caller.
+ */
+public class InstrumentedExecutor extends ThreadPoolExecutor {
+
+    public enum Rejection {
+        CALLER_RUNS, ABORT, SPILL
+    }
+
+    /** A task that can be put back where it came from instead of being run. */
+    public interface Spillable extends Runnable {
+        void spill();
+    }
+
+    private final String name;
+    private final Rejection rejection;
+    private final boolean virtualThreads;
+    private final int queueCapacity;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+
+    /** Remembers the task and when it was queued; unwrapped again on rejection. */
+    private final class TimedTask implements Runnable {
+        final Runnable task;
+        final long queuedNanos = System.nanoTime();
+
+        TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            queueWait.record(TimeUnit.NANOSECONDS.toMillis(start - queuedNanos));
+            try {
+                task.run();
+            } catch (RuntimeException | Error e) {
+                failed.increment();
+                throw e;
+            } finally {
+                runTime.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+    }
+
+    public InstrumentedExecutor(String name, int coreSize, int maxSize, int queueCapacity, long keepAliveMs,
+                                Rejection rejection, ThreadFactory threadFactory, boolean virtualThreads) {
+        super(coreSize, Math.max(coreSize, maxSize), keepAliveMs, TimeUnit.MILLISECONDS,
+                queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(),
+                threadFactory);
+        this.name = name;
+        this.rejection = rejection;
+        this.virtualThreads = virtualThreads;
+        this.queueCapacity = Math.max(0, queueCapacity);
+        setRejectedExecutionHandler(new Handler());
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submitted.increment();
+        super.execute(command instanceof TimedTask ? command : new TimedTask(command));
+    }
+
+    private final class Handler implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            rejected.increment();
+            Runnable task = runnable instanceof TimedTask timed ? timed.task : runnable;
+
+            if (executor.isShutdown() || rejection == Rejection.ABORT) {
+                throw new RejectedExecutionException("Executor " + name + " is full");
+            }
+            if (rejection == Rejection.SPILL && task instanceof Spillable spillable) {
+                spilled.increment();
+                spillable.spill();
+                return;
+            }
+            callerRuns.increment();
+            runnable.run();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("virtualThreads", virtualThreads);
+        stats.put("rejectionPolicy", rejection);
+        stats.put("coreSize", getCorePoolSize());
+        stats.put("maxSize", getMaximumPoolSize());
+        stats.put("poolSize", getPoolSize());
+        stats.put("largestPoolSize", getLargestPoolSize());
+        stats.put("active", getActiveCount());
+        stats.put("queued", getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", getCompletedTaskCount());
+        stats.put("failed", failed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("callerRuns", callerRuns.sum());
+        stats.put("spilled", spilled.sum());
+        stats.put("queueWait", queueWait.snapshot());
+        stats.put("runTime", runTime.snapshot());
+        return stats;
+    }
+}
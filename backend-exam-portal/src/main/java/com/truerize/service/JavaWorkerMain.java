@@ -0,0 +1,579 @@
+package com.truerize.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilePermission;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ReflectPermission;
+import java.net.SocketPermission;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.Permission;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PropertyPermission;
+import java.util.Set;
+import java.util.TimeZone;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Entry point of a warm Java worker JVM started by {@link JavaWorkerPool}.
+ * It keeps one {@code javac} instance hot, compiles each submission in
+ * memory, and runs every test case in a throwaway class loader with
+ * {@code System.in/out/err} redirected to buffers.
+ *
+ * <p>The class deliberately depends on nothing but the JDK: the pool copies
+ * the files listed in {@link #CLASS_FILES} into a scratch directory and uses
+ * it as the worker's whole class path. Requests and replies are exchanged as
+ * length-prefixed frames over the process's real stdin/stdout.
+ */
+public final class JavaWorkerMain {
+
+    /** Class files making up the worker; keep in sync with the nested classes below. */
+    static final String[] CLASS_FILES = {
+        "JavaWorkerMain",
+        "JavaWorkerMain$SourceFile",
+        "JavaWorkerMain$ClassFile",
+        "JavaWorkerMain$MemoryFileManager",
+        "JavaWorkerMain$MemoryClassLoader",
+        "JavaWorkerMain$CompiledCache",
+        "JavaWorkerMain$CappedOutput",
+        "JavaWorkerMain$ExitTrap",
+        "JavaWorkerMain$Sandbox",
+    };
+
+    static final int READY = 0x4A57524B;
+
+    static final int OP_RUN = 1;
+
+    static final int COMPILE_OK = 0;
+    static final int COMPILE_ERROR = 1;
+
+    static final int CASE_OK = 0;
+    static final int CASE_RUNTIME_ERROR = 1;
+    static final int CASE_TIMEOUT = 2;
+    static final int CASE_VIOLATION = 3;
+    static final int CASE_OUTPUT_LIMIT = 4;
+    static final int CASES_END = -1;
+
+    /** Compiled classes of recent submissions; re-runs of the same source skip javac. */
+    private static final int COMPILED_CACHE_SIZE = 32;
+
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    /** Defaults restored after every test case, in case a submission changed them. */
+    private static final Locale DEFAULT_LOCALE = Locale.getDefault();
+    private static final TimeZone DEFAULT_TIME_ZONE = TimeZone.getDefault();
+
+    private JavaWorkerMain() {}
+
+    // ----- Wire format -----
+
+    /** Cuts the reflection and worker frames below the submission's {@code main}. */
+    private static void hideHarnessFrames(Throwable error) {
+        StackTraceElement[] frames = error.getStackTrace();
+        for (int i = 0; i < frames.length; i++) {
+            if (frames[i].getClassName().startsWith("jdk.internal.reflect.")) {
+                error.setStackTrace(Arrays.copyOf(frames, i));
+                return;
+            }
+        }
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ----- In-memory compilation -----
+
+    /** Least-recently-used map from submission to its compiled classes. */
+    static final class CompiledCache extends LinkedHashMap<String, Map<String, byte[]>> {
+        private static final long serialVersionUID = 1L;
+
+        CompiledCache() {
+            super(COMPILED_CACHE_SIZE, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<String, byte[]>> eldest) {
+            return size() > COMPILED_CACHE_SIZE;
+        }
+    }
+
+    static final class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    static final class ClassFile extends SimpleJavaFileObject {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFile(String className) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+    }
+
+    static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        final Map<String, ClassFile> classes = new HashMap<>();
+
+        MemoryFileManager(StandardJavaFileManager delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            ClassFile file = new ClassFile(className);
+            classes.put(className, file);
+            return file;
+        }
+
+        Map<String, byte[]> classBytes() {
+            Map<String, byte[]> result = new HashMap<>();
+            classes.forEach((name, file) -> result.put(name, file.bytes.toByteArray()));
+            return result;
+        }
+
+        @Override
+        public void close() {
+            // The standard file manager is shared across compilations
+        }
+    }
+
+    static final class MemoryClassLoader extends ClassLoader {
+        private final Map<String, byte[]> classes;
+
+        MemoryClassLoader(Map<String, byte[]> classes) {
+            super("submission", ClassLoader.getPlatformClassLoader());
+            this.classes = classes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    // ----- Sandboxing -----
+
+    static final class CappedOutput extends OutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final int limit;
+        volatile boolean overflowed;
+
+        CappedOutput(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (buffer.size() + len > limit) {
+                buffer.write(b, off, Math.max(0, limit - buffer.size()));
+                overflowed = true;
+                throw new IOException("Output limit exceeded");
+            }
+            buffer.write(b, off, len);
+        }
+
+        synchronized String text() {
+            return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Raised in place of {@code System.exit} from submitted code. */
+    static final class ExitTrap extends SecurityException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        ExitTrap(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+
+    /**
+     * Applies only to threads of the current submission: no exit, no
+     * sockets, no file writes or process spawning, no access to threads
+     * outside the submission's group, and none of the permissions in
+     * {@link #GUARDED} (reflective access to private members, standard
+     * streams and raw file descriptors, class loaders, system properties).
+     * Everything else, including the worker itself, is unrestricted.
+     *
+     * <p>The guarded permissions are also asked for by JDK code on the
+     * submission's behalf, for example when {@code Enum.valueOf} makes
+     * {@code values()} accessible inside a privileged block. They are only
+     * denied when submitted code is on the stack above any privileged block.
+     */
+    // SecurityManager is deprecated for removal (JEP 411). Until the worker
+    // JDK drops it, it keeps submissions away from the worker's own streams
+    // and threads; ProcessSandbox isolates the worker from the host.
+    @SuppressWarnings("removal")
+    static final class Sandbox extends SecurityManager {
+        private static final Set<String> GUARDED = Set.of(
+                "modifyThread", "modifyThreadGroup", "setIO", "writeFileDescriptor", "readFileDescriptor",
+                "createClassLoader");
+
+        private static final StackWalker STACK = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+        private static final Module WORKER = Sandbox.class.getModule();
+
+        volatile ThreadGroup submissionGroup;
+        volatile boolean violated;
+
+        private boolean inSubmission() {
+            ThreadGroup group = submissionGroup;
+            return group != null && group.parentOf(Thread.currentThread().getThreadGroup());
+        }
+
+        private void deny(Object what) {
+            violated = true;
+            throw new SecurityException("Operation not permitted: " + what);
+        }
+
+        @Override
+        public void checkExit(int status) {
+            if (inSubmission()) {
+                throw new ExitTrap(status);
+            }
+        }
+
+        @Override
+        public void checkAccess(Thread thread) {
+            ThreadGroup group = submissionGroup;
+            if (inSubmission() && thread.getThreadGroup() != null && !group.parentOf(thread.getThreadGroup())) {
+                deny("access to thread " + thread.getName());
+            }
+        }
+
+        @Override
+        public void checkAccess(ThreadGroup threadGroup) {
+            ThreadGroup group = submissionGroup;
+            if (inSubmission() && !group.parentOf(threadGroup)) {
+                deny("access to thread group " + threadGroup.getName());
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission permission) {
+            if (!inSubmission()) {
+                return;
+            }
+            boolean denied = permission instanceof SocketPermission
+                    || (permission instanceof FilePermission && !"read".equals(permission.getActions()))
+                    || "setSecurityManager".equals(permission.getName());
+            if (denied || (isGuarded(permission) && requestedBySubmission(permission))) {
+                deny(permission);
+            }
+        }
+
+        @Override
+        public void checkPermission(Permission permission, Object context) {
+            checkPermission(permission);
+        }
+
+        private static boolean isGuarded(Permission permission) {
+            if (permission instanceof ReflectPermission) {
+                return "suppressAccessChecks".equals(permission.getName());
+            }
+            if (permission instanceof PropertyPermission) {
+                return permission.getActions().contains("write");
+            }
+            return permission instanceof RuntimePermission && GUARDED.contains(permission.getName());
+        }
+
+        /**
+         * Whether submitted code asked for the permission: a frame of the
+         * submission's class loader comes before any privileged block. Thread
+         * pools check {@code modifyThread} before touching their own workers,
+         * which {@link #checkAccess(Thread)} then confines to the submission.
+         */
+        private static boolean requestedBySubmission(Permission permission) {
+            return STACK.walk(frames -> {
+                for (StackWalker.StackFrame frame : (Iterable<StackWalker.StackFrame>) frames::iterator) {
+                    String className = frame.getClassName();
+                    if ("java.security.AccessController".equals(className)) {
+                        return false;
+                    }
+                    if ("modifyThread".equals(permission.getName())
+                            && ("java.util.concurrent.ThreadPoolExecutor".equals(className)
+                                || "java.util.concurrent.ForkJoinPool".equals(className))) {
+                        return false;
+                    }
+                    Module module = frame.getDeclaringClass().getModule();
+                    if (!module.isNamed() && module != WORKER) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+        }
+    }
+
+    // ----- Worker loop -----
+
+    public static void main(String[] args) throws Exception {
+        int maxOutputBytes = args.length > 0 ? Integer.parseInt(args[0]) : 65536;
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(FileDescriptor.in)));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)));
+        System.setOut(DISCARD);
+        System.setIn(InputStream.nullInputStream());
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            System.err.println("No system Java compiler; the worker needs a JDK");
+            System.exit(2);
+        }
+        StandardJavaFileManager standardFiles = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8);
+
+        Sandbox sandbox = installSandbox();
+
+        // Warm up javac before reporting ready
+        compile(compiler, standardFiles, "Warmup", "public class Warmup { public static void main(String[] a) {} }");
+
+        CompiledCache compiledCache = new CompiledCache();
+
+        out.writeInt(READY);
+        out.flush();
+
+        while (true) {
+            int op;
+            try {
+                op = in.readInt();
+            } catch (EOFException e) {
+                return;
+            }
+            if (op != OP_RUN) {
+                return;
+            }
+
+            String className = readString(in);
+            String source = readString(in);
+            int caseCount = in.readInt();
+            String[] inputs = new String[caseCount];
+            for (int i = 0; i < caseCount; i++) {
+                inputs[i] = readString(in);
+            }
+            long timeoutMillis = in.readLong();
+
+            String cacheKey = className + '\0' + source;
+            Map<String, byte[]> classes = compiledCache.get(cacheKey);
+            StringWriter diagnostics = new StringWriter();
+            if (classes == null) {
+                classes = compile(compiler, standardFiles, className, source, diagnostics);
+                if (classes != null) {
+                    compiledCache.put(cacheKey, classes);
+                }
+            }
+            if (classes == null) {
+                out.writeInt(COMPILE_ERROR);
+                writeString(out, diagnostics.toString());
+                out.writeBoolean(false);
+                out.flush();
+                continue;
+            }
+            out.writeInt(COMPILE_OK);
+
+            // After a case that forces a recycle the remaining cases are left to a fresh worker
+            boolean recycle = false;
+            for (int i = 0; i < caseCount && !recycle; i++) {
+                recycle = runCase(out, sandbox, classes, className, inputs[i], timeoutMillis, maxOutputBytes);
+            }
+            out.writeInt(CASES_END);
+            out.writeBoolean(recycle);
+            out.flush();
+
+            if (recycle) {
+                Runtime.getRuntime().halt(0);
+            }
+        }
+    }
+
+    /**
+     * Installs the {@link Sandbox}, or returns {@code null} on a JDK that no
+     * longer supports security managers; submissions then rely on
+     * ProcessSandbox alone. Deprecated for removal, see {@link Sandbox}.
+     */
+    @SuppressWarnings("removal")
+    private static Sandbox installSandbox() {
+        Sandbox sandbox = new Sandbox();
+        try {
+            System.setSecurityManager(sandbox);
+            return sandbox;
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, byte[]> compile(JavaCompiler compiler, StandardJavaFileManager standardFiles,
+                                               String className, String source) {
+        return compile(compiler, standardFiles, className, source, new StringWriter());
+    }
+
+    private static Map<String, byte[]> compile(JavaCompiler compiler, StandardJavaFileManager standardFiles,
+                                               String className, String source, StringWriter diagnostics) {
+        MemoryFileManager files = new MemoryFileManager(standardFiles);
+        boolean ok = compiler.getTask(diagnostics, files, null,
+                List.of("-nowarn", "-proc:none", "-encoding", "UTF-8"), null,
+                List.of(new SourceFile(className, source))).call();
+        return ok ? files.classBytes() : null;
+    }
+
+    /** Runs one test case and writes its frame. Returns true if the worker must be recycled. */
+    private static boolean runCase(DataOutputStream out, Sandbox sandbox, Map<String, byte[]> classes,
+                                   String className, String input, long timeoutMillis, int maxOutputBytes)
+            throws IOException, InterruptedException {
+        CappedOutput stdout = new CappedOutput(maxOutputBytes);
+        CappedOutput stderr = new CappedOutput(maxOutputBytes);
+        ThreadGroup group = new ThreadGroup("submission");
+        Throwable[] failure = new Throwable[1];
+
+        System.setIn(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+        System.setOut(new PrintStream(stdout, true, StandardCharsets.UTF_8));
+        System.setErr(new PrintStream(stderr, true, StandardCharsets.UTF_8));
+
+        // Resolved here, outside the sandbox: the class need not be public
+        Method main = null;
+        try {
+            Class<?> mainClass = new MemoryClassLoader(classes).loadClass(className);
+            main = mainClass.getMethod("main", String[].class);
+            if (!Modifier.isStatic(main.getModifiers())) {
+                throw new NoSuchMethodException("main must be static");
+            }
+            main.setAccessible(true);
+        } catch (Throwable e) {
+            failure[0] = e;
+            main = null;
+        }
+
+        Method entryPoint = main;
+        Thread runner = new Thread(group, () -> {
+            if (entryPoint == null) {
+                return;
+            }
+            try {
+                entryPoint.invoke(null, (Object) new String[0]);
+            } catch (InvocationTargetException e) {
+                failure[0] = e.getCause();
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "main");
+
+        if (sandbox != null) {
+            sandbox.violated = false;
+            sandbox.submissionGroup = group;
+        }
+        runner.start();
+        runner.join(timeoutMillis);
+        boolean timedOut = runner.isAlive();
+
+        System.out.flush();
+        System.err.flush();
+        if (sandbox != null) {
+            sandbox.submissionGroup = null;
+        }
+        System.setOut(DISCARD);
+        System.setErr(DISCARD);
+        System.setIn(InputStream.nullInputStream());
+        Locale.setDefault(DEFAULT_LOCALE);
+        TimeZone.setDefault(DEFAULT_TIME_ZONE);
+
+        Throwable error = failure[0];
+        int status;
+        int exitCode = 0;
+        boolean recycle = false;
+
+        if (timedOut) {
+            status = CASE_TIMEOUT;
+            recycle = true;
+        } else if (stdout.overflowed || stderr.overflowed) {
+            status = CASE_OUTPUT_LIMIT;
+        } else if (error instanceof ExitTrap) {
+            exitCode = ((ExitTrap) error).status;
+            status = exitCode == 0 ? CASE_OK : CASE_RUNTIME_ERROR;
+        } else if (sandbox != null && sandbox.violated) {
+            status = CASE_VIOLATION;
+            recycle = true;
+        } else if (error != null) {
+            status = CASE_RUNTIME_ERROR;
+            exitCode = 1;
+            recycle = error instanceof VirtualMachineError;
+            try (PrintStream trace = new PrintStream(stderr, true, StandardCharsets.UTF_8)) {
+                trace.print("Exception in thread \"main\" ");
+                hideHarnessFrames(error);
+                error.printStackTrace(trace);
+            } catch (RuntimeException ignored) {
+                // output already at its limit
+            }
+        } else {
+            status = CASE_OK;
+        }
+
+        // Threads left behind by the submission would leak into the next run
+        recycle |= group.activeCount() > 0;
+
+        out.writeInt(status);
+        out.writeInt(exitCode);
+        writeString(out, stdout.text());
+        writeString(out, stderr.text());
+        return recycle;
+    }
+}
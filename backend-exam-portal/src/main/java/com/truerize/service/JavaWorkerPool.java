@@ -0,0 +1,389 @@
+package com.truerize.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.truerize.service.CodeExecutionService.ProcessOutcome;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pool of warm worker JVMs running {@link JavaWorkerMain}. A worker compiles
+ * Java submissions in memory and runs their test cases in-process, so a "Run"
+ * costs tens of milliseconds instead of a cold {@code javac} plus JVM start.
+ *
+ * <p>A worker is replaced after {@code code.exec.java-worker-max-runs}
+ * submissions, or as soon as a submission times out, breaks the sandbox,
+ * exhausts memory or leaves threads behind. When no worker becomes free in
+ * time the caller falls back to the cold process path.
+ *
+ * <p>Each worker runs in its own {@link ProcessSandbox} with its own uid and
+ * scratch directory, holding only the worker's class files.
+ */
+@Service
+public class JavaWorkerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(JavaWorkerPool.class);
+
+    private static final long STARTUP_TIMEOUT_MILLIS = 30_000;
+    private static final long COMPILE_BUDGET_MILLIS = 15_000;
+
+    /** Reported for a case whose worker died without being timed out; not the program's fault. */
+    static final String WORKER_LOST = "Execution environment failed, please run again";
+
+    @Autowired
+    private ProcessSandbox processSandbox;
+
+    @Value("${code.exec.java-workers:2}")
+    private int workerCount;
+
+    @Value("${code.exec.java-worker-max-runs:200}")
+    private int maxRunsPerWorker;
+
+    @Value("${code.exec.java-worker-acquire-ms:2000}")
+    private long acquireMillis;
+
+    @Value("${code.exec.memory-mb:256}")
+    private int memoryMb;
+
+    @Value("${code.exec.wall-ms:5000}")
+    private long wallMillis;
+
+    @Value("${code.exec.max-output-bytes:65536}")
+    private int maxOutputBytes;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private final AtomicBoolean enabled = new AtomicBoolean();
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder recycled = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LatencyHistogram runLatency = new LatencyHistogram();
+
+    /** Class files of the worker, written into every worker's scratch directory. */
+    private final Map<String, byte[]> classFiles = new LinkedHashMap<>();
+    private ExecutorService spawner;
+    private ScheduledExecutorService watchdog;
+
+    /** Outcome of one submission on a worker. */
+    static final class Result {
+        final String compileError;
+        final List<ProcessOutcome> outcomes;
+
+        Result(String compileError, List<ProcessOutcome> outcomes) {
+            this.compileError = compileError;
+            this.outcomes = outcomes;
+        }
+    }
+
+    private final class Worker {
+        final Process process;
+        final DataOutputStream out;
+        final DataInputStream in;
+        int runs;
+
+        Worker(Process process) {
+            this.process = process;
+            this.out = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.in = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        }
+
+        void destroy() {
+            processSandbox.kill(process);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        if (workerCount <= 0) {
+            log.info("Warm Java workers disabled");
+            return;
+        }
+        if (processSandbox.isBroken()) {
+            log.warn("Warm Java workers disabled: code execution sandbox unavailable");
+            return;
+        }
+
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "java-worker-watchdog"));
+        spawner = Executors.newSingleThreadExecutor(runnable -> daemon(runnable, "java-worker-spawner"));
+
+        try {
+            for (String name : JavaWorkerMain.CLASS_FILES) {
+                try (InputStream classFile = JavaWorkerMain.class.getResourceAsStream(name + ".class")) {
+                    if (classFile == null) {
+                        throw new IOException("Missing worker class " + name);
+                    }
+                    classFiles.put(name + ".class", classFile.readAllBytes());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Warm Java workers unavailable; using cold runs", e);
+            return;
+        }
+
+        enabled.set(true);
+        replenish();
+    }
+
+    @PreDestroy
+    void stop() {
+        enabled.set(false);
+        if (spawner == null) {
+            return;
+        }
+        spawner.shutdownNow();
+        watchdog.shutdownNow();
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.destroy();
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public boolean isEnabled() {
+        return enabled.get();
+    }
+
+    /** Starts workers in the background until the pool is back at full size. */
+    private void replenish() {
+        spawner.execute(() -> {
+            while (enabled.get() && live.get() < workerCount) {
+                try {
+                    live.incrementAndGet();
+                    idle.offer(spawn());
+                } catch (Exception e) {
+                    live.decrementAndGet();
+                    enabled.set(false);
+                    log.warn("Could not start a warm Java worker; using cold runs", e);
+                }
+            }
+        });
+    }
+
+    private Worker spawn() throws IOException, InterruptedException {
+        int uid = processSandbox.acquireUid();
+        Path workDir;
+        try {
+            workDir = Files.createTempDirectory("java-worker-");
+        } catch (IOException e) {
+            processSandbox.releaseUid(uid);
+            throw e;
+        }
+
+        Process process;
+        try {
+            Path packageDir = Files.createDirectories(workDir.resolve("com/truerize/service"));
+            for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+                Files.write(packageDir.resolve(classFile.getKey()), classFile.getValue());
+            }
+            processSandbox.prepare(workDir, uid);
+
+            boolean sandboxed = processSandbox.isEnabled();
+            List<String> command = List.of(
+                    Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-Xmx" + memoryMb + "m", "-Xss64m", "-XX:+UseSerialGC", "-XX:-UsePerfData",
+                    "-Djava.security.manager=allow", "-Dfile.encoding=UTF-8",
+                    "-cp", sandboxed ? "/work" : workDir.toString(),
+                    JavaWorkerMain.class.getName(), String.valueOf(maxOutputBytes));
+
+            ProcessBuilder builder = new ProcessBuilder(sandboxed
+                    ? processSandbox.command(command, workDir, uid, 0, 0, 0)
+                    : command)
+                    .directory(workDir.toFile())
+                    .redirectError(ProcessBuilder.Redirect.DISCARD);
+            processSandbox.environment(builder.environment(), workDir);
+            process = builder.start();
+        } catch (IOException | RuntimeException e) {
+            processSandbox.releaseUid(uid);
+            deleteRecursively(workDir);
+            throw e;
+        }
+
+        // The uid and directory stay with the worker until its process is gone
+        process.onExit().thenRun(() -> {
+            processSandbox.releaseUid(uid);
+            deleteRecursively(workDir);
+        });
+
+        Worker worker = new Worker(process);
+        ScheduledFuture<?> kill = watchdog.schedule(worker::destroy, STARTUP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            if (worker.in.readInt() != JavaWorkerMain.READY) {
+                throw new IOException("Unexpected worker handshake");
+            }
+        } catch (IOException e) {
+            worker.destroy();
+            throw e;
+        } finally {
+            kill.cancel(false);
+        }
+        return worker;
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Could not clean up {}", dir, e);
+        }
+    }
+
+    private void retire(Worker worker) {
+        worker.destroy();
+        recycled.increment();
+        live.decrementAndGet();
+        if (enabled.get()) {
+            replenish();
+        }
+    }
+
+    /**
+     * Compiles and runs the submission on warm workers. Returns {@code null}
+     * if no worker became free within the acquire timeout.
+     */
+    Result run(String className, String source, List<String> inputs) throws InterruptedException {
+        long start = System.nanoTime();
+        List<ProcessOutcome> outcomes = new ArrayList<>(inputs.size());
+
+        while (outcomes.size() < inputs.size() || inputs.isEmpty()) {
+            Worker worker = idle.poll(acquireMillis, TimeUnit.MILLISECONDS);
+            if (worker == null) {
+                fallbacks.increment();
+                return null;
+            }
+
+            String compileError = runOn(worker, className, source, inputs.subList(outcomes.size(), inputs.size()), outcomes);
+            if (compileError != null || inputs.isEmpty()) {
+                return new Result(compileError, outcomes);
+            }
+        }
+
+        runs.increment();
+        runLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new Result(null, outcomes);
+    }
+
+    /** Runs the pending inputs on one worker, appending outcomes; returns compiler output on failure. */
+    private String runOn(Worker worker, String className, String source, List<String> inputs,
+                         List<ProcessOutcome> outcomes) {
+        AtomicBoolean killed = new AtomicBoolean();
+        long deadline = COMPILE_BUDGET_MILLIS + inputs.size() * (wallMillis + 1000);
+        ScheduledFuture<?> kill = watchdog.schedule(() -> {
+            killed.set(true);
+            worker.destroy();
+        }, deadline, TimeUnit.MILLISECONDS);
+
+        boolean recycle;
+        try {
+            worker.out.writeInt(JavaWorkerMain.OP_RUN);
+            JavaWorkerMain.writeString(worker.out, className);
+            JavaWorkerMain.writeString(worker.out, source);
+            worker.out.writeInt(inputs.size());
+            for (String input : inputs) {
+                JavaWorkerMain.writeString(worker.out, input == null ? "" : input);
+            }
+            worker.out.writeLong(wallMillis);
+            worker.out.flush();
+
+            if (worker.in.readInt() == JavaWorkerMain.COMPILE_ERROR) {
+                String diagnostics = JavaWorkerMain.readString(worker.in);
+                recycle = worker.in.readBoolean();
+                release(worker, recycle);
+                return diagnostics;
+            }
+
+            int status;
+            while ((status = worker.in.readInt()) != JavaWorkerMain.CASES_END) {
+                int exitCode = worker.in.readInt();
+                String stdout = JavaWorkerMain.readString(worker.in);
+                String stderr = JavaWorkerMain.readString(worker.in);
+                outcomes.add(outcome(status, exitCode, stdout, stderr));
+            }
+            recycle = worker.in.readBoolean();
+
+        } catch (IOException e) {
+            // The worker died mid-case: charge that case and continue on a fresh worker
+            outcomes.add(killed.get()
+                    ? new ProcessOutcome(-1, "", "", true)
+                    : new ProcessOutcome(-1, "", "", false, WORKER_LOST));
+            retire(worker);
+            return null;
+        } finally {
+            kill.cancel(false);
+        }
+
+        release(worker, recycle);
+        return null;
+    }
+
+    private void release(Worker worker, boolean recycle) {
+        worker.runs++;
+        if (recycle || worker.runs >= maxRunsPerWorker || !worker.process.isAlive()) {
+            retire(worker);
+        } else {
+            idle.offer(worker);
+        }
+    }
+
+    private static ProcessOutcome outcome(int status, int exitCode, String stdout, String stderr) {
+        switch (status) {
+            case JavaWorkerMain.CASE_OK:
+                return new ProcessOutcome(0, stdout, stderr, false);
+            case JavaWorkerMain.CASE_TIMEOUT:
+                return new ProcessOutcome(-1, stdout, stderr, true);
+            case JavaWorkerMain.CASE_OUTPUT_LIMIT:
+                return new ProcessOutcome(-1, stdout, stderr, false, "Output limit exceeded");
+            case JavaWorkerMain.CASE_VIOLATION:
+                return new ProcessOutcome(-1, stdout, stderr, false, "Operation not permitted in submissions");
+            default:
+                return new ProcessOutcome(exitCode == 0 ? 1 : exitCode, stdout, stderr, false);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled.get());
+        stats.put("workers", live.get());
+        stats.put("idleWorkers", idle.size());
+        stats.put("runs", runs.sum());
+        stats.put("recycled", recycled.sum());
+        stats.put("coldFallbacks", fallbacks.sum());
+        stats.put("runLatency", runLatency.snapshot());
+        return stats;
+    }
+}
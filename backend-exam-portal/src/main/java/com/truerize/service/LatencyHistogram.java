@@ -0,0 +1,84 @@
+package com.truerize.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two millisecond buckets
+ * (1 ms .. ~65 s, plus overflow). Percentiles are reported as the upper bound
+ * of the bucket they fall in, which is precise enough for dashboards.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 18;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder totalMillis = new LongAdder();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    public void record(long millis) {
+        long value = Math.max(0, millis);
+        int bucket = value <= 1 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value - 1));
+
+        counts.incrementAndGet(bucket);
+        totalMillis.add(value);
+        maxMillis.accumulateAndGet(value, Math::max);
+    }
+
+    /** Mean of all recorded values, or 0 before the first one. */
+    public long meanMillis() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count == 0 ? 0 : totalMillis.sum() / count;
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    public Map<String, Object> snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("count", count);
+        snapshot.put("meanMs", count == 0 ? 0 : totalMillis.sum() / count);
+        snapshot.put("maxMs", maxMillis.get());
+        snapshot.put("p50Ms", percentile(copy, count, 0.50));
+        snapshot.put("p95Ms", percentile(copy, count, 0.95));
+        snapshot.put("p99Ms", percentile(copy, count, 0.99));
+
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKETS; i++) {
+            if (copy[i] > 0) {
+                buckets.put(i == BUCKETS - 1 ? "overflow" : "le_" + upperBound(i) + "ms", copy[i]);
+            }
+        }
+        snapshot.put("buckets", buckets);
+        return snapshot;
+    }
+
+    private long percentile(long[] copy, long count, double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += copy[i];
+            if (seen >= rank) {
+                return i == BUCKETS - 1 ? maxMillis.get() : upperBound(i);
+            }
+        }
+        return maxMillis.get();
+    }
+}
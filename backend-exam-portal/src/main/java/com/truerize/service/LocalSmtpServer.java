@@ -0,0 +1,203 @@
+package com.truerize.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Minimal SMTP server that accepts and keeps every message, for running the
+ * mail outbox without a real mail provider (see the {@code localsmtp}
+ * profile). It speaks just enough SMTP for JavaMail: no AUTH, no TLS.
+ * {@code fail-rate} rejects that share of recipients with a temporary error
+ * so retries and backoff can be exercised.
+ */
+@Service
+@ConditionalOnProperty(name = "mail.local-smtp.enabled", havingValue = "true")
+public class LocalSmtpServer {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalSmtpServer.class);
+
+    private static final int MAX_KEPT = 100;
+
+    @Value("${mail.local-smtp.port:2525}")
+    private int port;
+
+    @Value("${mail.local-smtp.fail-rate:0}")
+    private double failRate;
+
+    private ServerSocket serverSocket;
+    private ExecutorService connections;
+
+    private final LongAdder sessions = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Deque<Map<String, Object>> recent = new ArrayDeque<>();
+
+    @PostConstruct
+    void start() throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        AtomicInteger threadNumber = new AtomicInteger();
+        connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "local-smtp-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        connections.execute(this::accept);
+        log.info("📮 Local SMTP server listening on port {}", serverSocket.getLocalPort());
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("⚠️ Local SMTP accept failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        sessions.increment();
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             OutputStream out = socket.getOutputStream()) {
+
+            reply(out, "220 localhost ESMTP");
+            String from = null;
+            List<String> to = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() < 4 ? line.toUpperCase() : line.substring(0, 4).toUpperCase();
+                switch (command) {
+                    case "EHLO" -> reply(out, "250-localhost\r\n250 8BITMIME");
+                    case "HELO" -> reply(out, "250 localhost");
+                    case "MAIL" -> {
+                        from = address(line);
+                        to.clear();
+                        reply(out, "250 OK");
+                    }
+                    case "RCPT" -> {
+                        if (failRate > 0 && ThreadLocalRandom.current().nextDouble() < failRate) {
+                            rejected.increment();
+                            reply(out, "451 Try again later");
+                        } else {
+                            to.add(address(line));
+                            reply(out, "250 OK");
+                        }
+                    }
+                    case "DATA" -> {
+                        if (to.isEmpty()) {
+                            reply(out, "554 No valid recipients");
+                            break;
+                        }
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        keep(from, to, readData(in));
+                        to.clear();
+                        reply(out, "250 OK");
+                    }
+                    case "RSET" -> {
+                        from = null;
+                        to.clear();
+                        reply(out, "250 OK");
+                    }
+                    case "NOOP" -> reply(out, "250 OK");
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "502 Command not implemented");
+                }
+            }
+        } catch (IOException e) {
+            log.debug("Local SMTP session ended: {}", e.getMessage());
+        }
+    }
+
+    /** Reads the message up to the lone dot and returns its Subject header. */
+    private static String readData(BufferedReader in) throws IOException {
+        String subject = null;
+        boolean headers = true;
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            if (line.isEmpty()) {
+                headers = false;
+            } else if (headers && subject == null && line.regionMatches(true, 0, "Subject:", 0, 8)) {
+                subject = line.substring(8).trim();
+            }
+        }
+        return subject;
+    }
+
+    private void keep(String from, List<String> to, String subject) {
+        received.increment();
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("from", from);
+        message.put("to", new ArrayList<>(to));
+        message.put("subject", subject);
+        message.put("receivedAt", LocalDateTime.now());
+        synchronized (recent) {
+            recent.addFirst(message);
+            if (recent.size() > MAX_KEPT) {
+                recent.removeLast();
+            }
+        }
+    }
+
+    private static String address(String line) {
+        int start = line.indexOf('<');
+        int end = line.indexOf('>', start + 1);
+        return start >= 0 && end > start ? line.substring(start + 1, end) : line.substring(line.indexOf(':') + 1).trim();
+    }
+
+    private static void reply(OutputStream out, String reply) throws IOException {
+        out.write((reply + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("port", serverSocket.getLocalPort());
+        stats.put("sessions", sessions.sum());
+        stats.put("received", received.sum());
+        stats.put("rejectedRecipients", rejected.sum());
+        synchronized (recent) {
+            stats.put("recent", new ArrayList<>(recent));
+        }
+        return stats;
+    }
+}
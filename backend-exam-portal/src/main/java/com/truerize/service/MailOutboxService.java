@@ -0,0 +1,424 @@
+package com.truerize.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.truerize.entity.MailOutbox;
+import com.truerize.entity.User;
+import com.truerize.repository.MailOutboxRepository;
+import com.truerize.repository.UserRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.internet.MimeMessage;
+
+/**
+ * Transactional outbox for candidate emails. Callers add rows with
+ * {@link #enqueue} inside their own transaction; a scheduled dispatcher
+ * claims due rows in batches and hands each batch to the {@code mail}
+ * executor, which sends the whole batch over one SMTP connection. A batch
+ * the executor has no room for is spilled back to {@code PENDING}.
+ *
+ * <p>Sends are paced by {@code rate-per-second}. A message that fails goes
+ * back to {@code PENDING} with an exponential, jittered backoff and is marked
+ * {@code FAILED} once {@code max-attempts} is reached. Rows claimed by a
+ * dispatcher that died mid-send are released again after {@code claim-timeout-ms},
+ * so delivery is at-least-once.
+ */
+@Service
+public class MailOutboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(MailOutboxService.class);
+
+    public static final String KIND_EXAM_ASSIGNED = "EXAM_ASSIGNED";
+    public static final String KIND_RESULT_PASSED = "RESULT_PASSED";
+    public static final String KIND_RESULT_REGRET = "RESULT_REGRET";
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SENDING = "SENDING";
+    public static final String STATUS_SENT = "SENT";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO mail_outbox (kind, user_id, exam_id, recipient, status, attempts, next_attempt_at, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, 0, ?, ?)";
+    private static final String SELECT_DUE_SQL =
+            "SELECT id FROM mail_outbox WHERE status = ? AND (next_attempt_at IS NULL OR next_attempt_at <= ?) "
+            + "ORDER BY id LIMIT ? FOR UPDATE";
+    private static final String CLAIM_SQL =
+            "UPDATE mail_outbox SET status = :sending, claimed_at = :now WHERE id IN (:ids)";
+    private static final String UNCLAIM_SQL =
+            "UPDATE mail_outbox SET status = :pending WHERE id IN (:ids) AND status = :sending";
+    private static final String RELEASE_STALE_SQL =
+            "UPDATE mail_outbox SET status = ? WHERE status = ? AND claimed_at < ?";
+
+    @Autowired
+    private MailOutboxRepository mailOutboxRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MailService mailService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("mailExecutor")
+    private InstrumentedExecutor mailExecutor;
+
+    @Value("${mail.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${mail.outbox.rate-per-second:20}")
+    private double ratePerSecond;
+
+    @Value("${mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.backoff-ms:30000}")
+    private long backoffMs;
+
+    @Value("${mail.outbox.max-backoff-ms:3600000}")
+    private long maxBackoffMs;
+
+    @Value("${mail.outbox.claim-timeout-ms:600000}")
+    private long claimTimeoutMs;
+
+    @Value("${app.exam-link-base:http://localhost:3000/exam/}")
+    private String examLinkBase;
+
+    private RateLimiter rateLimiter;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder staleClaimsReleased = new LongAdder();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+    private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    private final long startedNanos = System.nanoTime();
+    private volatile double lastDrainPerSecond;
+
+    /**
+     * Spaces out permits evenly at the configured rate. A batch takes all its
+     * permits up front, so the limit holds on average rather than per message.
+     */
+    private static final class RateLimiter {
+        private final long intervalNanos;
+        private long nextFreeNanos = System.nanoTime();
+
+        RateLimiter(double perSecond) {
+            this.intervalNanos = perSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / perSecond) : 0;
+        }
+
+        void acquire(int permits) throws InterruptedException {
+            if (intervalNanos == 0) {
+                return;
+            }
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = Math.max(now, nextFreeNanos);
+                nextFreeNanos = start + permits * intervalNanos;
+                waitNanos = start - now;
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        rateLimiter = new RateLimiter(ratePerSecond);
+    }
+
+    /**
+     * Queues the exam invitation for each {@code [userId, email]} pair with
+     * one batched insert. Pairs without an email are skipped.
+     */
+    public int enqueueExamAssigned(int examId, List<Object[]> recipients) {
+        return enqueue(KIND_EXAM_ASSIGNED, examId, recipients);
+    }
+
+    /**
+     * Queues one email of {@code kind} for each {@code [userId, email]} pair
+     * (the user id may be null) with one batched insert. Pairs without an
+     * email are skipped.
+     */
+    public int enqueue(String kind, Integer examId, List<Object[]> recipients) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(recipients.size());
+        for (Object[] recipient : recipients) {
+            String email = (String) recipient[1];
+            if (email != null && !email.isBlank()) {
+                rows.add(new Object[] { kind, recipient[0], examId, email, STATUS_PENDING, now, now });
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            enqueued.add(rows.size());
+        }
+        return rows.size();
+    }
+
+    /** Queues a single email, e.g. for one released result. */
+    public int enqueue(String kind, Integer userId, Integer examId, String email) {
+        List<Object[]> recipients = new ArrayList<>(1);
+        recipients.add(new Object[] { userId, email });
+        return enqueue(kind, examId, recipients);
+    }
+
+    /**
+     * Dispatches one round per poll: claims as many batches as the mail
+     * executor can start or queue right now and returns without waiting for
+     * them, so SMTP and the rate limiter never hold the shared scheduler
+     * thread. A backlog drains over successive polls.
+     */
+    @Scheduled(initialDelayString = "${mail.outbox.poll-ms:5000}", fixedDelayString = "${mail.outbox.poll-ms:5000}")
+    public void drain() {
+        int stale = jdbcTemplate.update(RELEASE_STALE_SQL, STATUS_PENDING, STATUS_SENDING,
+                Timestamp.valueOf(LocalDateTime.now().minus(Duration.ofMillis(claimTimeoutMs))));
+        if (stale > 0) {
+            staleClaimsReleased.add(stale);
+            log.warn("⚠️ Mail outbox: released {} stale claims", stale);
+        }
+
+        int slots = mailExecutor.getMaximumPoolSize() - mailExecutor.getActiveCount()
+                + mailExecutor.getQueue().remainingCapacity();
+        long roundStart = System.nanoTime();
+        List<CompletableFuture<Integer>> round = new ArrayList<>();
+        for (int i = 0; i < slots; i++) {
+            List<Long> ids = claim();
+            if (ids.isEmpty()) {
+                break;
+            }
+            DeliveryTask task = new DeliveryTask(ids);
+            mailExecutor.execute(task);
+            round.add(task.result);
+        }
+        if (round.isEmpty()) {
+            return;
+        }
+
+        CompletableFuture.allOf(round.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+            int delivered = round.stream().mapToInt(batch -> Math.max(0, batch.join())).sum();
+            if (delivered > 0) {
+                double seconds = (System.nanoTime() - roundStart) / 1e9;
+                lastDrainPerSecond = seconds > 0 ? delivered / seconds : delivered;
+                log.info("📧 Mail outbox: sent {} emails ({} per second)", delivered, Math.round(lastDrainPerSecond));
+            }
+        });
+    }
+
+    /** Marks the next due batch as being sent and returns its ids. */
+    private List<Long> claim() {
+        return transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Long> ids = jdbcTemplate.queryForList(SELECT_DUE_SQL, Long.class, STATUS_PENDING, now, batchSize);
+            if (!ids.isEmpty()) {
+                namedJdbcTemplate.update(CLAIM_SQL, new MapSqlParameterSource("sending", STATUS_SENDING)
+                        .addValue("now", now).addValue("ids", ids));
+            }
+            return ids;
+        });
+    }
+
+    /** Puts claimed rows back to {@code PENDING} untouched. */
+    private void unclaim(List<Long> ids) {
+        namedJdbcTemplate.update(UNCLAIM_SQL, new MapSqlParameterSource("pending", STATUS_PENDING)
+                .addValue("sending", STATUS_SENDING).addValue("ids", ids));
+    }
+
+    /** One claimed batch; completes with the number sent, or -1 if it went back to the outbox. */
+    private final class DeliveryTask implements InstrumentedExecutor.Spillable {
+        final List<Long> ids;
+        final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        DeliveryTask(List<Long> ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result.complete(deliver(ids));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                unclaim(ids);
+                result.complete(-1);
+            } catch (Exception e) {
+                log.error("❌ Mail outbox batch failed", e);
+                result.complete(0);
+            }
+        }
+
+        @Override
+        public void spill() {
+            unclaim(ids);
+            result.complete(-1);
+        }
+    }
+
+    /** Sends one claimed batch over a single connection and records each outcome. Returns the number sent. */
+    private int deliver(List<Long> ids) throws InterruptedException {
+        List<MailOutbox> batch = new ArrayList<>(mailOutboxRepository.findAllById(ids));
+        batch.sort(Comparator.comparing(MailOutbox::getId));
+
+        // The invitation carries the candidate's login, read at send time rather than stored twice
+        Map<Integer, User> users = new HashMap<>();
+        List<Integer> userIds = batch.stream().map(MailOutbox::getUserId).filter(id -> id != null).toList();
+        for (User user : userRepository.findAllById(userIds)) {
+            users.put(user.getId(), user);
+        }
+
+        Map<MimeMessage, MailOutbox> messages = new IdentityHashMap<>();
+        for (MailOutbox mail : batch) {
+            try {
+                messages.put(mailService.toMimeMessage(toMessage(mail, users.get(mail.getUserId()))), mail);
+            } catch (Exception e) {
+                // Cannot be built, so retrying will not help
+                mail.setAttempts(mail.getAttempts() + 1);
+                giveUp(mail, e.getMessage());
+            }
+        }
+
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        if (!messages.isEmpty()) {
+            rateLimiter.acquire(messages.size());
+            long sendStart = System.nanoTime();
+            try {
+                mailService.send(messages.keySet().toArray(new MimeMessage[0]));
+            } catch (MailSendException e) {
+                failures.putAll(e.getFailedMessages());
+                if (failures.isEmpty()) {
+                    messages.keySet().forEach(message -> failures.put(message, e));
+                }
+            } catch (Exception e) {
+                messages.keySet().forEach(message -> failures.put(message, e));
+            }
+            batchLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sendStart));
+            batches.increment();
+        }
+
+        int delivered = 0;
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<MimeMessage, MailOutbox> entry : messages.entrySet()) {
+            MailOutbox mail = entry.getValue();
+            mail.setAttempts(mail.getAttempts() + 1);
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                mail.setStatus(STATUS_SENT);
+                mail.setSentAt(now);
+                mail.setLastError(null);
+                sent.increment();
+                deliveryLatency.record(Duration.between(mail.getCreatedAt(), now).toMillis());
+                delivered++;
+            } else if (mail.getAttempts() >= maxAttempts) {
+                giveUp(mail, failure.getMessage());
+            } else {
+                retryLater(mail, failure.getMessage());
+            }
+        }
+        mailOutboxRepository.saveAll(batch);
+        return delivered;
+    }
+
+    private void retryLater(MailOutbox mail, String error) {
+        long delay = Math.min(maxBackoffMs, backoffMs << Math.min(20, mail.getAttempts() - 1));
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        mail.setStatus(STATUS_PENDING);
+        mail.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delay)));
+        mail.setLastError(truncate(error));
+        retried.increment();
+        log.warn("⚠️ {} email to {} failed (attempt {}), retrying in {} ms: {}",
+                mail.getKind(), mail.getRecipient(), mail.getAttempts(), delay, error);
+    }
+
+    private void giveUp(MailOutbox mail, String error) {
+        mail.setStatus(STATUS_FAILED);
+        mail.setLastError(truncate(error));
+        failed.increment();
+        log.error("❌ Failed to send {} email to {} after {} attempts: {}",
+                mail.getKind(), mail.getRecipient(), mail.getAttempts(), error);
+    }
+
+    private SimpleMailMessage toMessage(MailOutbox mail, User user) {
+        if (KIND_EXAM_ASSIGNED.equals(mail.getKind())) {
+            if (user == null) {
+                throw new IllegalStateException("User " + mail.getUserId() + " no longer exists");
+            }
+            return mailService.examAssignedMessage(mail.getRecipient(), user.getPassword(),
+                    examLinkBase + mail.getExamId());
+        }
+        if (KIND_RESULT_PASSED.equals(mail.getKind())) {
+            return mailService.resultReleasedMessage(mail.getRecipient());
+        }
+        if (KIND_RESULT_REGRET.equals(mail.getKind())) {
+            return mailService.regretMessage(mail.getRecipient());
+        }
+        throw new IllegalStateException("Unknown email kind: " + mail.getKind());
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", mailOutboxRepository.countByStatus(STATUS_PENDING));
+        stats.put("sending", mailOutboxRepository.countByStatus(STATUS_SENDING));
+        stats.put("failedPermanently", mailOutboxRepository.countByStatus(STATUS_FAILED));
+        stats.put("ratePerSecondLimit", ratePerSecond);
+        stats.put("enqueued", enqueued.sum());
+        stats.put("sent", sent.sum());
+        stats.put("retried", retried.sum());
+        stats.put("failed", failed.sum());
+        stats.put("staleClaimsReleased", staleClaimsReleased.sum());
+        stats.put("batches", batches.sum());
+        double uptime = (System.nanoTime() - startedNanos) / 1e9;
+        stats.put("sentPerSecondSinceStart", uptime > 0 ? Math.round(sent.sum() / uptime * 100) / 100.0 : 0);
+        stats.put("sentPerSecondLastDrain", Math.round(lastDrainPerSecond * 10) / 10.0);
+        stats.put("batchLatency", batchLatency.snapshot());
+        stats.put("deliveryLatency", deliveryLatency.snapshot());
+        stats.put("executor", mailExecutor.getStats());
+        return stats;
+    }
+}
@@ -0,0 +1,288 @@
+package com.truerize.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Starts untrusted programs (candidate code, its compilers and the warm Java
+ * workers) isolated from the server. On Linux every process gets:
+ *
+ * <ul>
+ * <li>its own session and process group, and its own PID namespace, so
+ *     killing it on timeout takes every process it started with it;</li>
+ * <li>an empty network namespace: no sockets to the database, mail server
+ *     or anything else;</li>
+ * <li>a private root file system holding only the read-only toolchain paths
+ *     ({@code code.exec.sandbox.read-only-paths} plus the JDK), its scratch
+ *     directory as {@code /work} and an empty {@code /tmp}; the server's
+ *     configuration and working directory are not visible;</li>
+ * <li>an unprivileged uid taken from {@code code.exec.sandbox.uid-base} (one
+ *     per run, so concurrent runs cannot touch each other's files) with all
+ *     capabilities dropped, {@code no_new_privs}, and {@code ulimit -u} on top
+ *     of the caller's CPU, file-size and memory limits.</li>
+ * </ul>
+ *
+ * <p>When the server itself is not root, an unprivileged user namespace is
+ * used instead and the program keeps the server's uid outside it, still
+ * without capabilities. If neither works the sandbox reports itself
+ * unavailable and code execution is refused, unless
+ * {@code code.exec.sandbox.enabled=false} (development only).
+ */
+@Service
+public class ProcessSandbox {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessSandbox.class);
+
+    private static final boolean LINUX = new File("/proc/self/ns").isDirectory();
+
+    /** Uid used when no per-run uid applies (non-root servers). */
+    public static final int SHARED_UID = -1;
+
+    /**
+     * Runs inside the new namespaces: builds the private root, applies the
+     * limits, then enters the root as the sandbox user. The command is run
+     * by a child shell rather than exec'd so it is not the namespace's init
+     * process, which would ignore signals such as SIGXCPU.
+     */
+    private static final String SETUP_SCRIPT = """
+            set -e
+            root=$1 work=$2 uid=$3 paths=$4 cpu=$5 fsize=$6 as=$7 nproc=$8
+            shift 8
+            mount -t tmpfs -o mode=755,size=16m,nosuid sandbox "$root"
+            IFS=:
+            for path in $paths; do
+              [ -e "$path" ] || [ -L "$path" ] || continue
+              mkdir -p "$root$(dirname "$path")"
+              if [ -L "$path" ]; then ln -s "$(readlink "$path")" "$root$path"; continue; fi
+              if [ -d "$path" ]; then mkdir -p "$root$path"; else touch "$root$path"; fi
+              mount --rbind "$path" "$root$path"
+              mount -o remount,bind,ro,nosuid "$root$path"
+            done
+            unset IFS
+            mkdir -p "$root/dev" "$root/work" "$root/tmp" "$root/proc"
+            for dev in null zero random urandom; do
+              touch "$root/dev/$dev"
+              mount --bind "/dev/$dev" "$root/dev/$dev"
+            done
+            mount --bind "$work" "$root/work"
+            mount -t tmpfs -o mode=1777,size=64m,nosuid,nodev tmp "$root/tmp"
+            mount -t proc -o nosuid,nodev,noexec proc "$root/proc"
+            [ "$cpu" -gt 0 ] && ulimit -t "$cpu"
+            [ "$fsize" -gt 0 ] && ulimit -f "$fsize"
+            [ "$as" -gt 0 ] && ulimit -v "$as"
+            ulimit -u "$nproc"
+            drop="--inh-caps=-all --bounding-set=-all --no-new-privs"
+            [ "$uid" -ge 0 ] && drop="--reuid=$uid --regid=$uid --clear-groups $drop"
+            exec chroot "$root" setpriv $drop /bin/sh -c 'cd /work && "$@"; exit $?' run "$@"
+            """;
+
+    @Value("${code.exec.sandbox.enabled:true}")
+    private boolean sandboxEnabled;
+
+    @Value("${code.exec.sandbox.read-only-paths:/usr:/bin:/sbin:/lib:/lib32:/lib64:/etc/alternatives:/etc/ld.so.cache:/etc/ld.so.conf:/etc/ld.so.conf.d:/etc/localtime}")
+    private String readOnlyPaths;
+
+    @Value("${code.exec.sandbox.uid-base:61000}")
+    private int uidBase;
+
+    @Value("${code.exec.sandbox.uid-count:256}")
+    private int uidCount;
+
+    @Value("${code.exec.sandbox.max-processes:256}")
+    private int maxProcesses;
+
+    private boolean available;
+    private boolean root;
+    private String paths;
+    private String javaHome;
+    private Path mountPoint;
+    private BlockingQueue<Integer> freeUids;
+
+    @PostConstruct
+    void start() {
+        if (!sandboxEnabled || !LINUX) {
+            log.warn("⚠️ Code execution sandbox disabled ({}); submitted programs run as the server user",
+                    LINUX ? "code.exec.sandbox.enabled=false" : "not Linux");
+            return;
+        }
+
+        try {
+            // /proc/self belongs to the process's effective uid
+            root = Integer.valueOf(0).equals(Files.getAttribute(Path.of("/proc/self"), "unix:uid"));
+            javaHome = Path.of(System.getProperty("java.home")).toRealPath().toString();
+            Set<String> allPaths = new LinkedHashSet<>(Arrays.asList(readOnlyPaths.split(":")));
+            allPaths.add(javaHome);
+            allPaths.removeIf(String::isBlank);
+            paths = String.join(":", allPaths);
+
+            mountPoint = Files.createTempDirectory("code-sandbox-");
+            mountPoint.toFile().deleteOnExit();
+
+            freeUids = new ArrayBlockingQueue<>(Math.max(1, uidCount));
+            for (int i = 0; i < Math.max(1, uidCount); i++) {
+                freeUids.add(uidBase + i);
+            }
+
+            available = probe();
+        } catch (IOException | InterruptedException e) {
+            log.error("❌ Code execution sandbox could not be set up", e);
+        }
+
+        if (available) {
+            log.info("Code execution sandbox ready ({} mode, uids {}-{})",
+                    root ? "root" : "user-namespace", uidBase, uidBase + uidCount - 1);
+        } else {
+            log.error("❌ Code execution sandbox is not available on this host (needs unshare, setpriv and "
+                    + "namespaces); code runs are refused. Set code.exec.sandbox.enabled=false only for development.");
+        }
+    }
+
+    /** Runs {@code /bin/true} in the sandbox to check namespaces and mounts work here. */
+    private boolean probe() throws IOException, InterruptedException {
+        Path workDir = Files.createTempDirectory("code-sandbox-probe-");
+        try {
+            int uid = acquireUid();
+            try {
+                prepare(workDir, uid);
+                ProcessBuilder builder = new ProcessBuilder(command(List.of("/bin/true"), workDir, uid, 1, 0, 0))
+                        .redirectErrorStream(true);
+                environment(builder.environment(), workDir);
+                Process process = builder.start();
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    kill(process);
+                    return false;
+                }
+                String output = new String(process.getInputStream().readAllBytes());
+                if (process.exitValue() != 0) {
+                    log.warn("Sandbox probe failed (exit {}): {}", process.exitValue(), output.trim());
+                }
+                return process.exitValue() == 0;
+            } finally {
+                releaseUid(uid);
+            }
+        } finally {
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    /** Whether programs are isolated; when false they run directly, with only the caller's limits. */
+    public boolean isEnabled() {
+        return sandboxEnabled && LINUX;
+    }
+
+    /** Whether the sandbox is enabled but cannot be used on this host. */
+    public boolean isBroken() {
+        return isEnabled() && !available;
+    }
+
+    /** Takes a uid for one run, or {@link #SHARED_UID} when not running as root. */
+    public int acquireUid() {
+        if (!root || freeUids == null) {
+            return SHARED_UID;
+        }
+        Integer uid = freeUids.poll();
+        if (uid == null) {
+            throw new CodeExecutionService.ExecutionBusyException("Code execution is busy, please retry shortly");
+        }
+        return uid;
+    }
+
+    public void releaseUid(int uid) {
+        if (uid != SHARED_UID && freeUids != null) {
+            freeUids.offer(uid);
+        }
+    }
+
+    /** Hands the scratch directory to the run's uid so the program can write in it. */
+    public void prepare(Path workDir, int uid) throws IOException {
+        if (!isEnabled() || uid == SHARED_UID) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(workDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.setAttribute(file, "unix:uid", uid);
+                Files.setAttribute(file, "unix:gid", uid);
+            }
+        }
+    }
+
+    /**
+     * Wraps {@code command} to run in the sandbox with {@code workDir} as
+     * its working directory. Limits of zero are not applied.
+     */
+    public List<String> command(List<String> command, Path workDir, int uid, long cpuSeconds, long fileSizeKb,
+                                int addressSpaceMb) {
+        List<String> wrapped = new ArrayList<>(command.size() + 24);
+        wrapped.add("setsid");
+        wrapped.add("--wait");
+        wrapped.add("unshare");
+        if (!root) {
+            wrapped.add("--user");
+            wrapped.add("--map-root-user");
+        }
+        wrapped.addAll(List.of("--net", "--mount", "--pid", "--ipc", "--uts", "--fork", "--kill-child"));
+        wrapped.addAll(List.of("/bin/bash", "-c", SETUP_SCRIPT, "sandbox",
+                mountPoint.toString(), workDir.toString(), String.valueOf(uid), paths,
+                String.valueOf(cpuSeconds), String.valueOf(fileSizeKb), String.valueOf(addressSpaceMb * 1024L),
+                String.valueOf(maxProcesses)));
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    /** Environment for a sandboxed process: the JDK and system tool directories only. */
+    public void environment(Map<String, String> environment, Path workDir) {
+        environment.clear();
+        if (isEnabled()) {
+            environment.put("PATH", javaHome + "/bin:/usr/local/bin:/usr/bin:/bin:/usr/sbin:/sbin");
+            environment.put("HOME", "/work");
+            environment.put("TMPDIR", "/tmp");
+        } else {
+            String path = System.getenv("PATH");
+            environment.put("PATH", path == null ? "/usr/bin:/bin" : path);
+            environment.put("HOME", workDir.toString());
+        }
+        environment.put("LANG", "C.UTF-8");
+    }
+
+    /**
+     * Kills the process's whole process group and everything it started.
+     * Sandboxed processes lead their own group, and killing the namespace's
+     * first process takes the rest of the namespace with it.
+     */
+    public void kill(Process process) {
+        if (isEnabled() && process.isAlive()) {
+            try {
+                new ProcessBuilder("kill", "-KILL", "--", "-" + process.pid())
+                        .redirectErrorStream(true)
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .start()
+                        .waitFor(1, TimeUnit.SECONDS);
+            } catch (IOException e) {
+                log.warn("Could not kill process group {}", process.pid(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+}
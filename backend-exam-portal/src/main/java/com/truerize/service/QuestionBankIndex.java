@@ -0,0 +1,151 @@
+package com.truerize.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.truerize.repository.QuestionRepository;
+
+/**
+ * Compact per-exam index of question ids: a {@link BitSet} of the ids in the
+ * exam (offset by the smallest id) and the section of each. Built from an
+ * id-and-section query, never from entities, and kept until the exam's
+ * question bank changes; each rebuild gets the next bank version.
+ */
+@Service
+public class QuestionBankIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionBankIndex.class);
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    private final Map<Integer, Bank> banks = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    /** Question ids and sections of one exam at one bank version. Read-only. */
+    public static final class Bank {
+        private final long version;
+        private final int baseId;
+        private final BitSet ids;
+        /** Section index of each id, at {@code id - baseId}; -1 where there is no question. */
+        private final short[] sectionOf;
+        private final String[] sections;
+        private final int[] sectionSizes;
+        private final int size;
+
+        Bank(long version, List<Object[]> rows) {
+            this.version = version;
+            this.size = rows.size();
+
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            TreeMap<String, Integer> sectionIndex = new TreeMap<>();
+            for (Object[] row : rows) {
+                int id = ((Number) row[0]).intValue();
+                min = Math.min(min, id);
+                max = Math.max(max, id);
+                sectionIndex.putIfAbsent(String.valueOf(row[1]), 0);
+            }
+            this.baseId = rows.isEmpty() ? 0 : min;
+
+            sections = sectionIndex.keySet().toArray(new String[0]);
+            for (int i = 0; i < sections.length; i++) {
+                sectionIndex.put(sections[i], i);
+            }
+
+            int span = rows.isEmpty() ? 0 : max - min + 1;
+            ids = new BitSet(span);
+            sectionOf = new short[span];
+            Arrays.fill(sectionOf, (short) -1);
+            sectionSizes = new int[sections.length];
+            for (Object[] row : rows) {
+                int offset = ((Number) row[0]).intValue() - baseId;
+                int section = sectionIndex.get(String.valueOf(row[1]));
+                ids.set(offset);
+                sectionOf[offset] = (short) section;
+                sectionSizes[section]++;
+            }
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(int id) {
+            int offset = id - baseId;
+            return offset >= 0 && offset < sectionOf.length && ids.get(offset);
+        }
+
+        /** Dense position of the id within this bank's id range (for per-pass bitsets), or -1 if absent. */
+        public int offsetOf(int id) {
+            return contains(id) ? id - baseId : -1;
+        }
+
+        /** Index into {@link #getSections()} of the question's section, or -1 for ids not in the exam. */
+        public int sectionOf(int id) {
+            return contains(id) ? sectionOf[id - baseId] : -1;
+        }
+
+        /** Section names in name order. */
+        public String[] getSections() {
+            return sections.clone();
+        }
+
+        public int sectionSize(int section) {
+            return sectionSizes[section];
+        }
+
+        /** Question ids in ascending order. */
+        public List<Integer> ids() {
+            List<Integer> list = new ArrayList<>(size);
+            for (int offset = ids.nextSetBit(0); offset >= 0; offset = ids.nextSetBit(offset + 1)) {
+                list.add(baseId + offset);
+            }
+            return list;
+        }
+    }
+
+    public Bank get(int examId) {
+        return banks.computeIfAbsent(examId, this::build);
+    }
+
+    private Bank build(int examId) {
+        Bank bank = new Bank(versions.incrementAndGet(), questionRepository.findIdsAndSectionsByExamId(examId));
+        log.info("Indexed question bank of exam {} ({} questions, version {})", examId, bank.size(), bank.getVersion());
+        return bank;
+    }
+
+    /**
+     * Drops the exam's index. Inside a transaction the eviction is repeated
+     * after commit so a concurrent build cannot keep the old bank.
+     */
+    public void invalidate(int examId) {
+        banks.remove(examId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    banks.remove(examId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.truerize.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.truerize.dto.StudentQuestionDTO;
+
+/**
+ * Serialized, answer-free question payloads keyed by (examId, setNumber).
+ * Every candidate on the same set receives identical bytes, so the payload is
+ * built once and written straight to the response afterwards. Exams with
+ * per-candidate shuffle instead share one canonical question list that is
+ * permuted per request.
+ */
+@Service
+public class QuestionPayloadCache {
+
+    private static final Logger log = LoggerFactory.getLogger(QuestionPayloadCache.class);
+
+    private final Map<Integer, Map<Integer, byte[]>> payloads = new ConcurrentHashMap<>();
+
+    private final Map<Integer, List<StudentQuestionDTO>> examQuestions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the cached payload, building it with {@code loader} on a miss.
+     * Concurrent misses for the same set wait for a single load. A loader
+     * returning {@code null} is not cached.
+     */
+    public byte[] get(int examId, int setNumber, Supplier<byte[]> loader) {
+        return payloads
+                .computeIfAbsent(examId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(setNumber, set -> loader.get());
+    }
+
+    /**
+     * Canonical question list of the exam (sections sorted, then qNo), used as
+     * the base for seeded per-candidate permutations. Treat as read-only.
+     */
+    public List<StudentQuestionDTO> getExamQuestions(int examId, Supplier<List<StudentQuestionDTO>> loader) {
+        return examQuestions.computeIfAbsent(examId, id -> List.copyOf(loader.get()));
+    }
+
+    /**
+     * Drops every payload of the exam. When called inside a transaction the
+     * eviction is repeated after commit so a reader that raced the change
+     * cannot leave stale bytes behind.
+     */
+    public void invalidateExam(int examId) {
+        payloads.remove(examId);
+        examQuestions.remove(examId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    payloads.remove(examId);
+                    examQuestions.remove(examId);
+                }
+            });
+        }
+
+        log.info("Invalidated question payload cache for exam {}", examId);
+    }
+}
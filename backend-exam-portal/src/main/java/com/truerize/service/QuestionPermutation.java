@@ -0,0 +1,72 @@
+package com.truerize.service;
+
+/**
+ * Deterministic, allocation-light permutations derived from a 64-bit seed.
+ * The same seed always yields the same question and option order, so a
+ * candidate's paper can be rebuilt on demand and scored without storing it.
+ */
+public final class QuestionPermutation {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private QuestionPermutation() {}
+
+    /** SplitMix64 finalizer. */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Independent seed for one question (or section) derived from the candidate seed. */
+    public static long derive(long seed, int key) {
+        return mix(seed + (key + 1L) * GOLDEN_GAMMA);
+    }
+
+    /** In-place Fisher–Yates shuffle of {@code a[from, to)}. */
+    public static void shuffle(int[] a, int from, int to, long seed) {
+        long state = seed;
+        for (int i = to - 1; i > from; i--) {
+            state += GOLDEN_GAMMA;
+            int j = from + (int) ((mix(state) >>> 1) % (i - from + 1));
+            int tmp = a[i];
+            a[i] = a[j];
+            a[j] = tmp;
+        }
+    }
+
+    /**
+     * Option order shown to the candidate for one question:
+     * displayed index {@code i} holds original option {@code order[i]}.
+     */
+    public static int[] optionOrder(long seed, int questionId, int optionCount) {
+        int[] order = new int[optionCount];
+        for (int i = 0; i < optionCount; i++) {
+            order[i] = i;
+        }
+        shuffle(order, 0, optionCount, derive(seed, questionId));
+        return order;
+    }
+
+    /**
+     * Maps a bitmask of option letters chosen against shuffled options
+     * (bit {@code i} = displayed letter {@code 'A' + i}) back to the
+     * original option bits.
+     */
+    public static int toOriginalMask(int displayedMask, long seed, int questionId, int optionCount) {
+        if (displayedMask == 0 || optionCount < 2) {
+            return displayedMask;
+        }
+
+        int[] order = optionOrder(seed, questionId, optionCount);
+        int original = 0;
+
+        for (int displayed = 0; displayed < 32; displayed++) {
+            if ((displayedMask & (1 << displayed)) == 0) {
+                continue;
+            }
+            original |= 1 << (displayed < optionCount ? order[displayed] : displayed);
+        }
+        return original;
+    }
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.truerize.dto.StudentQuestionDTO;
 import com.truerize.entity.Exam;
 import com.truerize.entity.Question;
 import com.truerize.repository.ExamRepository;
@@ -18,37 +19,33 @@ public class QuestionService {
     
     @Autowired
     private ExamRepository examRepository;
+
+    @Autowired
+    private QuestionPayloadCache questionPayloadCache;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
+
+    @Autowired
+    private QuestionBankIndex questionBankIndex;
     
     public List<Question> getQuestionsByExamId(int examId) {
         return questionRepository.findByExam_IdOrderByQNoAsc(examId);
     }
     
-    public List<Question> getQuestionsByExamIdForStudent(int examId) {
-        List<Question> questions = questionRepository.findByExam_IdOrderByQNoAsc(examId);
-        questions.forEach(q -> {
-            String type = q.getType().toLowerCase();
-            if (type.equals("mcq")) {
-                if (q.getAnswer() != null && q.getAnswer().contains(",")) {
-                    q.setType("multiple");
-                } else {
-                    q.setType("single");
-                }
-            } 
-            else if (type.equals("verbal")) {
-                q.setType("read-speak");
-            } 
-            else if (type.equals("coding")) {
-                q.setType("coding");
-            }
-        });
-        return questions;
+    public List<StudentQuestionDTO> getQuestionsByExamIdForStudent(int examId) {
+        return questionRepository.findStudentViewsByExamId(examId);
     }
     
     public Question addQuestion(int examId, Question question) {
         Exam exam = examRepository.findById(examId)
                 .orElseThrow(() -> new RuntimeException("Exam not found with id: " + examId));
         question.setExam(exam);
-        return questionRepository.save(question);
+        Question saved = questionRepository.save(question);
+        questionPayloadCache.invalidateExam(examId);
+        answerKeyCache.invalidate(examId);
+        questionBankIndex.invalidate(examId);
+        return saved;
     }
     
     public Question updateQuestion(int questionId, Question questionDetails) {
@@ -57,18 +54,27 @@ public class QuestionService {
         
         existingQuestion.setQuestionText(questionDetails.getQuestionText());
         existingQuestion.setMarks(questionDetails.getMarks());
+        existingQuestion.setDifficulty(questionDetails.getDifficulty());
         existingQuestion.setAnswer(questionDetails.getAnswer());
         existingQuestion.setSection(questionDetails.getSection());
         existingQuestion.setType(questionDetails.getType());
         existingQuestion.setOptions(questionDetails.getOptions());
+        existingQuestion.setTestCases(questionDetails.getTestCases());
         
-        return questionRepository.save(existingQuestion);
+        Question saved = questionRepository.save(existingQuestion);
+        questionPayloadCache.invalidateExam(saved.getExam().getId());
+        answerKeyCache.invalidate(saved.getExam().getId());
+        questionBankIndex.invalidate(saved.getExam().getId());
+        return saved;
     }
     
     public void deleteQuestion(int questionId) {
-        if (!questionRepository.existsById(questionId)) {
-            throw new RuntimeException("Question not found with id: " + questionId);
-        }
-        questionRepository.deleteById(questionId);
+        Question question = questionRepository.findById(questionId)
+                .orElseThrow(() -> new RuntimeException("Question not found with id: " + questionId));
+        int examId = question.getExam().getId();
+        questionRepository.delete(question);
+        questionPayloadCache.invalidateExam(examId);
+        answerKeyCache.invalidate(examId);
+        questionBankIndex.invalidate(examId);
     }
 }
\ No newline at end of file
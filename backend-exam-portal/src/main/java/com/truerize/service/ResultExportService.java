@@ -0,0 +1,198 @@
+package com.truerize.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Exports results and test submissions as CSV or XLSX. Rows are read from
+ * a forward-only cursor and written to the output as they arrive, so memory
+ * use does not grow with the number of rows. On MySQL the cursor streams
+ * row by row (fetch size {@code Integer.MIN_VALUE}); other databases read
+ * in fetches of {@value #FETCH_SIZE}.
+ *
+ * <p>Submission exports add one column per question section, scored from the
+ * cached answer key the same way submissions are scored.
+ */
+@Service
+public class ResultExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultExportService.class);
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String SUBMISSIONS_SQL =
+        "SELECT s.id, s.user_id, u.name, u.email, u.college_name, s.exam_id, e.title, s.score, s.status, " +
+        "s.submitted_at, s.answers_json, a.assigned_set_number, a.permutation_seed " +
+        "FROM test_submissions s " +
+        "JOIN user u ON u.id = s.user_id " +
+        "JOIN exam e ON e.id = s.exam_id " +
+        "LEFT JOIN student_exam_assignments a ON a.student_id = CONCAT(s.user_id, '') AND a.exam_id = s.exam_id";
+
+    public enum Format {
+        CSV("text/csv; charset=UTF-8", "csv"),
+        XLSX("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TestSubmissionService testSubmissionService;
+
+    /** Own template so the streaming fetch size does not leak into other queries. */
+    private NamedParameterJdbcTemplate cursorJdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        try {
+            String database = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            jdbcTemplate.setFetchSize("MySQL".equalsIgnoreCase(database) ? Integer.MIN_VALUE : FETCH_SIZE);
+        } catch (MetaDataAccessException e) {
+            log.warn("⚠️ Could not detect the database; exports read in fetches of {}", FETCH_SIZE, e);
+            jdbcTemplate.setFetchSize(FETCH_SIZE);
+        }
+        cursorJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public ExportWriter open(Format format, OutputStream out, String sheetName) throws IOException {
+        return format == Format.XLSX ? new XlsxExportWriter(out, sheetName) : new CsvExportWriter(out);
+    }
+
+    /** Writes the results matching the filter in id order; returns the number of rows. */
+    public long exportResults(ResultSearchService.Filter filter, ExportWriter writer) throws IOException {
+        long start = System.currentTimeMillis();
+        writer.row("ID", "Name", "College", "Email", "Exam", "Score", "Status");
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String sql = "SELECT id, name, college_name, email, exam, score, status FROM result"
+                + ResultSearchService.filters(filter, params) + " ORDER BY id";
+
+        long rows = stream(sql, params, rs -> writer.row(
+                rs.getInt("id"), rs.getString("name"), rs.getString("college_name"), rs.getString("email"),
+                rs.getString("exam"), (Integer) rs.getObject("score"), rs.getString("status")));
+
+        log.info("📤 Exported {} results in {} ms", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    /**
+     * Writes the test submissions of one exam, or of all exams when
+     * {@code examId} is null, with a score column per question section.
+     * "Graded by test cases" is the rest of the total score, which comes
+     * from running coding answers and is not repeated here.
+     */
+    public long exportSubmissions(Integer examId, ExportWriter writer) throws IOException {
+        long start = System.currentTimeMillis();
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String where = "";
+        if (examId != null) {
+            params.addValue("examId", examId);
+            where = " WHERE exam_id = :examId";
+        }
+
+        List<String> sections = cursorJdbcTemplate.queryForList(
+                "SELECT DISTINCT section FROM question" + where + " ORDER BY section", params, String.class);
+
+        List<Object> header = new ArrayList<>(List.of(
+                "Submission ID", "User ID", "Name", "Email", "College", "Exam ID", "Exam", "Score", "Status",
+                "Submitted At"));
+        header.addAll(sections);
+        header.add("Graded by test cases");
+        writer.row(header.toArray());
+
+        String sql = SUBMISSIONS_SQL + (examId != null ? " WHERE s.exam_id = :examId" : "") + " ORDER BY s.id";
+        Object[] cells = new Object[header.size()];
+
+        long rows = stream(sql, params, rs -> {
+            int exam = rs.getInt("exam_id");
+            int score = rs.getInt("score");
+            String status = rs.getString("status");
+            Timestamp submittedAt = rs.getTimestamp("submitted_at");
+            int set = rs.getInt("assigned_set_number");
+            Integer setNumber = rs.wasNull() ? null : set;
+            long seed = rs.getLong("permutation_seed");
+            Long permutationSeed = rs.wasNull() ? null : seed;
+            Map<String, Integer> bySection = testSubmissionService.sectionScores(
+                    exam, rs.getString("answers_json"), setNumber, permutationSeed);
+
+            cells[0] = rs.getInt("id");
+            cells[1] = rs.getInt("user_id");
+            cells[2] = rs.getString("name");
+            cells[3] = rs.getString("email");
+            cells[4] = rs.getString("college_name");
+            cells[5] = exam;
+            cells[6] = rs.getString("title");
+            cells[7] = score;
+            cells[8] = status;
+            cells[9] = submittedAt != null ? submittedAt.toLocalDateTime().toString() : null;
+
+            int sectionTotal = 0;
+            for (int i = 0; i < sections.size(); i++) {
+                Integer marks = bySection.get(sections.get(i));
+                cells[10 + i] = marks;
+                sectionTotal += marks != null ? marks : 0;
+            }
+            // Coding marks are only added once grading has finished
+            cells[cells.length - 1] = TestSubmissionService.STATUS_COMPLETED.equals(status)
+                    ? Math.max(0, score - sectionTotal) : null;
+            writer.row(cells);
+        });
+
+        log.info("📤 Exported {} submissions in {} ms", rows, System.currentTimeMillis() - start);
+        return rows;
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private long stream(String sql, MapSqlParameterSource params, RowWriter rowWriter) throws IOException {
+        long[] rows = { 0 };
+        try {
+            cursorJdbcTemplate.query(sql, params, (RowCallbackHandler) rs -> {
+                try {
+                    rowWriter.write(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                rows[0]++;
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-download; the cursor is closed on the way out
+            throw e.getCause();
+        }
+        return rows[0];
+    }
+}
@@ -0,0 +1,299 @@
+package com.truerize.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.truerize.entity.ResultReleaseJob;
+import com.truerize.repository.ResultReleaseJobRepository;
+
+/**
+ * Releases every unreleased result in the background. Results are read in
+ * id order, one keyset page ({@code id > lastResultId}) per transaction; each
+ * page is locked, marked released with a single {@code UPDATE ... IN}, its
+ * pass and regret emails are added to the {@link MailOutboxService outbox}
+ * and the job's checkpoint is advanced, all in that one transaction.
+ *
+ * <p>A job interrupted by a restart is still {@code RUNNING} in
+ * {@code result_release_jobs} and is picked up again from its last
+ * checkpoint once the application is ready. Only one job runs at a time.
+ */
+@Service
+public class ResultReleaseService {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultReleaseService.class);
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    static final String RELEASED_STATUS = "Result Released";
+
+    private static final String COUNT_UNRELEASED_SQL =
+            "SELECT COUNT(*) FROM result WHERE status IS NULL OR status <> ?";
+    private static final String SELECT_CHUNK_SQL =
+            "SELECT id, email, score, status FROM result "
+            + "WHERE id > ? AND (status IS NULL OR status <> ?) ORDER BY id LIMIT ? FOR UPDATE";
+    private static final String RELEASE_SQL =
+            "UPDATE result SET status = :released WHERE id IN (:ids)";
+
+    @Autowired
+    private ResultReleaseJobRepository jobRepository;
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${result.release.chunk-size:500}")
+    private int chunkSize;
+
+    @Autowired
+    @Qualifier("releaseExecutor")
+    private InstrumentedExecutor worker;
+
+    /** In-memory progress of jobs running on this instance, for throughput. */
+    private final Map<Long, Run> runs = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram chunkLatency = new LatencyHistogram();
+    private final LongAdder releasedTotal = new LongAdder();
+
+    private static final class Run {
+        final long startedNanos = System.nanoTime();
+        final AtomicInteger released = new AtomicInteger();
+    }
+
+    /**
+     * Resumes jobs left RUNNING by a restart once the application is ready,
+     * after startup runners such as schema migrations have finished.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void resumeRunningJobs() {
+        try {
+            for (ResultReleaseJob job : jobRepository.findByStatusOrderByIdAsc(STATUS_RUNNING)) {
+                log.info("🔁 Resuming result release job {} after result {}", job.getId(), job.getLastResultId());
+                job.setResumes(job.getResumes() + 1);
+                jobRepository.save(job);
+                submit(job.getId());
+            }
+        } catch (Exception e) {
+            log.error("❌ Could not resume result release jobs", e);
+        }
+    }
+
+    /**
+     * Starts a release of all unreleased results, or returns the job already
+     * running. Returns immediately; poll {@link #findJob} for progress.
+     */
+    public synchronized ResultReleaseJob startRelease() {
+        List<ResultReleaseJob> running = jobRepository.findByStatusOrderByIdAsc(STATUS_RUNNING);
+        if (!running.isEmpty()) {
+            return running.get(0);
+        }
+
+        Integer unreleased = jdbcTemplate.queryForObject(COUNT_UNRELEASED_SQL, Integer.class, RELEASED_STATUS);
+        ResultReleaseJob job = new ResultReleaseJob();
+        job.setStatus(STATUS_RUNNING);
+        job.setTotalResults(unreleased == null ? 0 : unreleased);
+        job.setCreatedAt(LocalDateTime.now());
+        job = jobRepository.save(job);
+
+        log.info("📤 Result release job {} started for {} results", job.getId(), job.getTotalResults());
+        submit(job.getId());
+        return job;
+    }
+
+    public Optional<ResultReleaseJob> findJob(Long jobId) {
+        return jobRepository.findById(jobId);
+    }
+
+    public Optional<ResultReleaseJob> findLatestJob() {
+        return jobRepository.findFirstByOrderByIdDesc();
+    }
+
+    /** Hands the job to the release executor, failing it if too many jobs are already waiting. */
+    private void submit(Long jobId) {
+        try {
+            worker.execute(() -> run(jobId));
+        } catch (RejectedExecutionException e) {
+            finish(jobId, STATUS_FAILED, "Release queue is full");
+            throw e;
+        }
+    }
+
+    private void run(Long jobId) {
+        Run run = new Run();
+        runs.put(jobId, run);
+        try {
+            while (true) {
+                long chunkStart = System.nanoTime();
+                Integer released = transactionTemplate.execute(status -> releaseChunk(jobId));
+                if (released == null) {
+                    break;
+                }
+                run.released.addAndGet(released);
+                releasedTotal.add(released);
+                chunkLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - chunkStart));
+            }
+            finish(jobId, STATUS_COMPLETED, null);
+
+        } catch (Exception e) {
+            log.error("❌ Result release job {} failed", jobId, e);
+            finish(jobId, STATUS_FAILED, e.getMessage());
+        } finally {
+            runs.remove(jobId);
+        }
+    }
+
+    /** Releases the next page after the job's checkpoint and returns its size; null once nothing is left. */
+    private Integer releaseChunk(Long jobId) {
+        ResultReleaseJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalStateException("Result release job " + jobId + " no longer exists"));
+
+        List<Integer> ids = new ArrayList<>(chunkSize);
+        List<Object[]> passed = new ArrayList<>();
+        List<Object[]> regretted = new ArrayList<>();
+        int[] withoutEmail = new int[1];
+
+        jdbcTemplate.query(SELECT_CHUNK_SQL, rs -> {
+            ids.add(rs.getInt("id"));
+            String email = rs.getString("email");
+            if (email == null || email.isBlank()) {
+                withoutEmail[0]++;
+            } else if (isPass(rs.getString("status"), rs.getObject("score", Integer.class))) {
+                passed.add(new Object[] { null, email });
+            } else {
+                regretted.add(new Object[] { null, email });
+            }
+        }, job.getLastResultId(), RELEASED_STATUS, chunkSize);
+
+        if (ids.isEmpty()) {
+            return null;
+        }
+
+        namedJdbcTemplate.update(RELEASE_SQL,
+                new MapSqlParameterSource("released", RELEASED_STATUS).addValue("ids", ids));
+        mailOutboxService.enqueue(MailOutboxService.KIND_RESULT_PASSED, null, passed);
+        mailOutboxService.enqueue(MailOutboxService.KIND_RESULT_REGRET, null, regretted);
+
+        job.setLastResultId(ids.get(ids.size() - 1));
+        job.setReleased(job.getReleased() + ids.size());
+        job.setPassed(job.getPassed() + passed.size());
+        job.setRegretted(job.getRegretted() + regretted.size());
+        job.setWithoutEmail(job.getWithoutEmail() + withoutEmail[0]);
+        job.setChunks(job.getChunks() + 1);
+        job.setUpdatedAt(LocalDateTime.now());
+        jobRepository.save(job);
+
+        log.debug("📤 Result release job {}: released {} results up to id {}",
+                jobId, ids.size(), job.getLastResultId());
+        return ids.size();
+    }
+
+    /** Same rule as {@link ResultService#releaseResult}: a Pass/Failed status wins, otherwise the score decides. */
+    private static boolean isPass(String status, Integer score) {
+        if ("Pass".equalsIgnoreCase(status)) {
+            return true;
+        }
+        if ("Failed".equalsIgnoreCase(status)) {
+            return false;
+        }
+        return score != null && score >= ResultService.PASSING_SCORE;
+    }
+
+    private void finish(Long jobId, String status, String error) {
+        try {
+            jobRepository.findById(jobId).ifPresent(job -> {
+                job.setStatus(status);
+                job.setError(error == null || error.length() <= 1000 ? error : error.substring(0, 1000));
+                job.setFinishedAt(LocalDateTime.now());
+                job.setUpdatedAt(job.getFinishedAt());
+                jobRepository.save(job);
+                log.info("✅ Result release job {} {}: {} released ({} pass, {} regret, {} without email) in {} chunks",
+                        jobId, status.toLowerCase(), job.getReleased(), job.getPassed(), job.getRegretted(),
+                        job.getWithoutEmail(), job.getChunks());
+            });
+        } catch (Exception e) {
+            log.error("❌ Could not record the end of result release job {}", jobId, e);
+        }
+    }
+
+    /** The job's checkpoint plus progress and throughput. */
+    public Map<String, Object> toMap(ResultReleaseJob job) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("jobId", job.getId());
+        report.put("status", job.getStatus());
+        report.put("totalResults", job.getTotalResults());
+        report.put("released", job.getReleased());
+        report.put("passed", job.getPassed());
+        report.put("regretted", job.getRegretted());
+        report.put("withoutEmail", job.getWithoutEmail());
+        report.put("chunks", job.getChunks());
+        report.put("lastResultId", job.getLastResultId());
+        report.put("resumes", job.getResumes());
+        report.put("percentComplete", job.getTotalResults() == 0 ? 100.0
+                : Math.min(100.0, Math.round(1000.0 * job.getReleased() / job.getTotalResults()) / 10.0));
+
+        // A run on this instance gives the live rate; otherwise average over the job's lifetime
+        Run run = runs.get(job.getId());
+        double seconds;
+        int released;
+        if (run != null) {
+            seconds = (System.nanoTime() - run.startedNanos) / 1e9;
+            released = run.released.get();
+        } else {
+            LocalDateTime end = job.getFinishedAt() != null ? job.getFinishedAt() : LocalDateTime.now();
+            seconds = Duration.between(job.getCreatedAt(), end).toMillis() / 1000.0;
+            released = job.getReleased();
+        }
+        double perSecond = seconds > 0 ? released / seconds : 0;
+        report.put("resultsPerSecond", Math.round(perSecond * 10) / 10.0);
+        if (STATUS_RUNNING.equals(job.getStatus()) && perSecond > 0) {
+            int remaining = Math.max(0, job.getTotalResults() - job.getReleased());
+            report.put("etaSeconds", Math.round(remaining / perSecond));
+        }
+
+        report.put("error", job.getError());
+        report.put("createdAt", job.getCreatedAt());
+        report.put("updatedAt", job.getUpdatedAt());
+        report.put("finishedAt", job.getFinishedAt());
+        return report;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runningJobs", runs.size());
+        stats.put("released", releasedTotal.sum());
+        stats.put("chunkLatency", chunkLatency.snapshot());
+        return stats;
+    }
+}
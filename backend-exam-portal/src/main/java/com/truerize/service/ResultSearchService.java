@@ -0,0 +1,235 @@
+package com.truerize.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.truerize.entity.Result;
+
+/**
+ * Filtered, sorted pages of results for the admin screen. Pages are
+ * keyset-paginated on the sort column plus id: the opaque {@code after}
+ * cursor carries the last row's key, so page 500 costs the same as page 1.
+ * Nullable sort columns keep the database's order (nulls first ascending,
+ * last descending).
+ *
+ * <p>The total is counted up to {@code results.count-cap} rows and cached
+ * briefly per filter; beyond the cap it is reported as an estimate.
+ */
+@Service
+public class ResultSearchService {
+
+    public static final int MAX_PAGE_SIZE = 200;
+
+    private static final String COLUMNS = "id, name, college_name, email, exam, score, status";
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Value("${results.count-cap:10000}")
+    private int countCap;
+
+    @Value("${results.count-cache-ttl-ms:5000}")
+    private long countCacheTtlMs;
+
+    /** Server-side filters; null or blank fields are not applied. */
+    public record Filter(String exam, String status, String college, String query,
+                         Integer minScore, Integer maxScore) {
+    }
+
+    public enum Sort {
+        ID(null), SCORE("score"), NAME("name");
+
+        /** Nullable column sorted before the id tie-break, or null to sort on id alone. */
+        final String column;
+
+        Sort(String column) {
+            this.column = column;
+        }
+    }
+
+    private record CachedCount(long count, boolean exact, long loadedAt) {
+    }
+
+    private final Map<Filter, CachedCount> counts = new ConcurrentHashMap<>();
+
+    public Map<String, Object> search(Filter filter, Sort sort, boolean descending, int size, String after) {
+        if (filter.minScore() != null && filter.maxScore() != null && filter.minScore() > filter.maxScore()) {
+            throw new IllegalArgumentException("minScore must not be greater than maxScore");
+        }
+        int limit = Math.max(1, Math.min(MAX_PAGE_SIZE, size));
+
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder where = filters(filter, params);
+        if (after != null && !after.isBlank()) {
+            keyset(where, params, sort, descending, decodeCursor(after, sort));
+        }
+
+        String direction = descending ? " DESC" : " ASC";
+        String orderBy = sort.column == null
+                ? " ORDER BY id" + direction
+                : " ORDER BY " + sort.column + direction + ", id" + direction;
+        params.addValue("limit", limit + 1);
+
+        List<Result> rows = namedJdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM result" + where + orderBy + " LIMIT :limit", params,
+                (rs, rowNum) -> new Result(rs.getInt("id"), rs.getString("name"), rs.getString("college_name"),
+                        rs.getString("email"), rs.getString("exam"), (Integer) rs.getObject("score"),
+                        rs.getString("status")));
+
+        boolean hasMore = rows.size() > limit;
+        List<Result> items = hasMore ? new ArrayList<>(rows.subList(0, limit)) : rows;
+        CachedCount total = count(filter);
+
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", items);
+        page.put("size", items.size());
+        page.put("sort", sort.name().toLowerCase());
+        page.put("direction", descending ? "desc" : "asc");
+        page.put("hasMore", hasMore);
+        page.put("nextCursor", hasMore ? encodeCursor(items.get(items.size() - 1), sort) : null);
+        page.put("total", total.count());
+        page.put("totalExact", total.exact());
+        return page;
+    }
+
+    /** Exam names that have results, for the filter drop-down. */
+    public List<String> findExams() {
+        return namedJdbcTemplate.queryForList(
+                "SELECT DISTINCT exam FROM result WHERE exam IS NOT NULL ORDER BY exam",
+                new MapSqlParameterSource(), String.class);
+    }
+
+    static StringBuilder filters(Filter filter, MapSqlParameterSource params) {
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        if (hasText(filter.exam())) {
+            where.append(" AND exam = :exam");
+            params.addValue("exam", filter.exam().trim());
+        }
+        if (hasText(filter.status())) {
+            where.append(" AND status = :status");
+            params.addValue("status", filter.status().trim());
+        }
+        if (hasText(filter.college())) {
+            where.append(" AND college_name LIKE :college");
+            params.addValue("college", prefix(filter.college()));
+        }
+        if (hasText(filter.query())) {
+            // Prefix matches so the name and college indexes stay usable
+            where.append(" AND (name LIKE :query OR email LIKE :query OR college_name LIKE :query)");
+            params.addValue("query", prefix(filter.query()));
+        }
+        if (filter.minScore() != null) {
+            where.append(" AND score >= :minScore");
+            params.addValue("minScore", filter.minScore());
+        }
+        if (filter.maxScore() != null) {
+            where.append(" AND score <= :maxScore");
+            params.addValue("maxScore", filter.maxScore());
+        }
+        return where;
+    }
+
+    /** Restricts to rows after the cursor in (column, id) order. */
+    static void keyset(StringBuilder where, MapSqlParameterSource params, Sort sort, boolean descending,
+                       Object[] cursor) {
+        String idAfter = descending ? "id < :afterId" : "id > :afterId";
+        params.addValue("afterId", cursor[1]);
+        if (sort.column == null) {
+            where.append(" AND ").append(idAfter);
+            return;
+        }
+
+        String column = sort.column;
+        Object value = cursor[0];
+        if (value == null) {
+            // Nulls come last descending and first ascending
+            where.append(descending
+                    ? " AND (" + column + " IS NULL AND " + idAfter + ")"
+                    : " AND ((" + column + " IS NULL AND " + idAfter + ") OR " + column + " IS NOT NULL)");
+        } else {
+            String beyond = descending ? " < :afterValue" : " > :afterValue";
+            where.append(" AND (").append(column).append(beyond)
+                 .append(" OR (").append(column).append(" = :afterValue AND ").append(idAfter).append(")")
+                 .append(descending ? " OR " + column + " IS NULL)" : ")");
+            params.addValue("afterValue", value);
+        }
+    }
+
+    private CachedCount count(Filter filter) {
+        CachedCount cached = counts.get(filter);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < countCacheTtlMs) {
+            return cached;
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource("cap", countCap + 1);
+        Long counted = namedJdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM result" + filters(filter, params) + " LIMIT :cap) capped",
+                params, Long.class);
+        long count = counted == null ? 0 : counted;
+        CachedCount fresh = new CachedCount(Math.min(count, countCap), count <= countCap, System.currentTimeMillis());
+
+        if (counts.size() > 1000) {
+            counts.clear();
+        }
+        counts.put(filter, fresh);
+        return fresh;
+    }
+
+    /** Forgets cached totals, e.g. after results were added or deleted. */
+    public void invalidateCounts() {
+        counts.clear();
+    }
+
+    static String encodeCursor(Result last, Sort sort) {
+        String value;
+        if (sort == Sort.SCORE) {
+            value = last.getScore() == null ? "n" : "v" + last.getScore();
+        } else if (sort == Sort.NAME) {
+            value = last.getName() == null ? "n" : "v" + last.getName();
+        } else {
+            value = "n";
+        }
+        String raw = last.getId() + ":" + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Returns {@code [sortValue, id]}; the value is null for id sorting and for null keys. */
+    static Object[] decodeCursor(String cursor, Sort sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            int id = Integer.parseInt(raw.substring(0, separator));
+            String value = raw.substring(separator + 1);
+            if (value.startsWith("n")) {
+                return new Object[] { null, id };
+            }
+            if (!value.startsWith("v") || sort == Sort.ID) {
+                throw new IllegalArgumentException("cursor does not match the sort");
+            }
+            value = value.substring(1);
+            return new Object[] { sort == Sort.SCORE ? Integer.valueOf(value) : value, id };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static String prefix(String text) {
+        String escaped = text.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return escaped + "%";
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
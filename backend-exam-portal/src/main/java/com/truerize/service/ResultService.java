@@ -10,6 +10,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.truerize.entity.Result;
+import com.truerize.entity.ResultReleaseJob;
 import com.truerize.repository.ResultRepository;
 
 @Service
@@ -17,12 +18,18 @@ public class ResultService {
 
     private static final Logger log = LoggerFactory.getLogger(ResultService.class);
     
-    private static final int PASSING_SCORE = 20;
+    static final int PASSING_SCORE = 20;
     
     private final ResultRepository resultRepository;
     
     @Autowired
-    private MailService mailService;
+    private MailOutboxService mailOutboxService;
+
+    @Autowired
+    private ResultReleaseService resultReleaseService;
+
+    @Autowired
+    private ResultSearchService resultSearchService;
 
     public ResultService(ResultRepository resultRepository) {
         this.resultRepository = resultRepository;
@@ -51,6 +58,7 @@ public class ResultService {
         }
         
         Result savedResult = resultRepository.save(result);
+        resultSearchService.invalidateCounts();
         log.info("✅ Result saved with status: {}", savedResult.getStatus());
         
         return savedResult;
@@ -94,6 +102,7 @@ public class ResultService {
         }
         
         resultRepository.deleteById(id);
+        resultSearchService.invalidateCounts();
         log.info("✅ Result deleted successfully");
     }
 
@@ -128,79 +137,39 @@ public class ResultService {
         result.setStatus("Result Released");
         resultRepository.save(result);
         
-        try {
-            if ("Pass".equalsIgnoreCase(originalStatus)) {
-                log.info("📧 Sending congratulatory email to: {} (Score: {})", 
-                    result.getEmail(), result.getScore());
-                mailService.sendResultReleasedEmail(result.getEmail());
-                return String.format("✅ Result released! Congratulations email sent to %s (Score: %d)", 
-                    result.getEmail(), result.getScore());
-            } else {
-                log.info("📧 Sending regret email to: {} (Score: {})", 
-                    result.getEmail(), result.getScore());
-                mailService.sendRegretEmail(result.getEmail());
-                return String.format("✅ Result released! Regret email sent to %s (Score: %d)", 
-                    result.getEmail(), result.getScore());
-            }
-        } catch (Exception e) {
-            log.error("❌ Failed to send email for result release: {}", e.getMessage());
-            return "Result released but email sending failed: " + e.getMessage();
+        if ("Pass".equalsIgnoreCase(originalStatus)) {
+            log.info("📧 Queueing congratulatory email to: {} (Score: {})", 
+                result.getEmail(), result.getScore());
+            mailOutboxService.enqueue(MailOutboxService.KIND_RESULT_PASSED, null, null, result.getEmail());
+            return String.format("✅ Result released! Congratulations email queued for %s (Score: %d)", 
+                result.getEmail(), result.getScore());
+        } else {
+            log.info("📧 Queueing regret email to: {} (Score: {})", 
+                result.getEmail(), result.getScore());
+            mailOutboxService.enqueue(MailOutboxService.KIND_RESULT_REGRET, null, null, result.getEmail());
+            return String.format("✅ Result released! Regret email queued for %s (Score: %d)", 
+                result.getEmail(), result.getScore());
         }
     }
 
-    @Transactional
+    /**
+     * Starts the background release of all unreleased results (or reports
+     * the one already running); emails go out through the mail outbox.
+     */
     public String sendMailsAutomatically() {
         log.info("📧 Starting automatic mail sending for all unreleased results");
         
-        int passCount = 0;
-        int failCount = 0;
-        int errorCount = 0;
-        int alreadyReleased = 0;
-        
-        List<Result> allResults = resultRepository.findAll();
-        
-        for (Result result : allResults) {
-            if ("Result Released".equalsIgnoreCase(result.getStatus())) {
-                alreadyReleased++;
-                continue;
-            }
-            
-            try {
-              
-                boolean passed = result.getScore() >= PASSING_SCORE;
-                
-               
-                result.setStatus("Result Released");
-                resultRepository.save(result);
-                
-              
-                if (passed) {
-                    mailService.sendResultReleasedEmail(result.getEmail());
-                    passCount++;
-                    log.info("✅ Congratulations email sent to: {} (Score: {})", 
-                        result.getEmail(), result.getScore());
-                } else {
-                    mailService.sendRegretEmail(result.getEmail());
-                    failCount++;
-                    log.info("✅ Regret email sent to: {} (Score: {})", 
-                        result.getEmail(), result.getScore());
-                }
-            } catch (Exception e) {
-                errorCount++;
-                log.error("❌ Failed to send email to {}: {}", result.getEmail(), e.getMessage());
-            }
-        }
-        
+        ResultReleaseJob job = resultReleaseService.startRelease();
         String message = String.format(
-            "✅ Automatic mail sending completed! " +
-            "Pass emails (Score >= %d): %d, Fail emails (Score < %d): %d, " +
-            "Already Released: %d, Errors: %d",
-            PASSING_SCORE, passCount, PASSING_SCORE, failCount, alreadyReleased, errorCount
+            "✅ Result release job %d running: %d of %d results released so far. " +
+            "Pass (Score >= %d) and regret emails are queued as each chunk is released.",
+            job.getId(), job.getReleased(), job.getTotalResults(), PASSING_SCORE
         );
         
         log.info(message);
         return message;
     }
+
     public int getPassingScore() {
         return PASSING_SCORE;
     }
@@ -0,0 +1,180 @@
+package com.truerize.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.truerize.repository.StudentExamAssignmentRepo;
+
+/**
+ * Per-exam count of students in each question set, so the least-loaded set
+ * can be picked without reading the exam's assignments. Counters are seeded
+ * once from a {@code GROUP BY} and then moved with compare-and-set: choosing
+ * a set and taking its next slot number is one scan over the sets and is
+ * exact under concurrent assignment.
+ *
+ * <p>Changes made inside a transaction are undone if that transaction rolls
+ * back. Counters are reseeded every {@code resync-ms} so assignments written
+ * by other instances are picked up.
+ */
+@Service
+public class SetLoadBalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(SetLoadBalancer.class);
+
+    @Autowired
+    private StudentExamAssignmentRepo studentExamAssignmentRepo;
+
+    @Value("${exam.set-balance.resync-ms:300000}")
+    private long resyncMs;
+
+    /** A set and the 1-based slot the student takes in it. */
+    public record Allocation(int setNumber, int slotNumber) {
+    }
+
+    private static final class ExamLoad {
+        /** Students per set; index 0 is set 1. */
+        final AtomicIntegerArray sets;
+        final long seededAt = System.nanoTime();
+
+        ExamLoad(int numberOfSets) {
+            sets = new AtomicIntegerArray(numberOfSets);
+        }
+
+        boolean isStale(int numberOfSets, long resyncNanos) {
+            return sets.length() != numberOfSets || System.nanoTime() - seededAt > resyncNanos;
+        }
+    }
+
+    private final Map<Integer, ExamLoad> loads = new ConcurrentHashMap<>();
+
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder casRetries = new LongAdder();
+    private final LongAdder seeds = new LongAdder();
+
+    /** Reserves a slot in the least-loaded of the exam's sets (lowest set number on ties). */
+    public Allocation allocate(int examId, int numberOfSets) {
+        ExamLoad load = load(examId, numberOfSets);
+        AtomicIntegerArray sets = load.sets;
+
+        while (true) {
+            int best = 0;
+            int bestCount = sets.get(0);
+            for (int i = 1; i < sets.length(); i++) {
+                int count = sets.get(i);
+                if (count < bestCount) {
+                    best = i;
+                    bestCount = count;
+                }
+            }
+
+            if (sets.compareAndSet(best, bestCount, bestCount + 1)) {
+                allocations.increment();
+                undoOnRollback(load, best, -1);
+                return new Allocation(best + 1, bestCount + 1);
+            }
+            casRetries.increment();
+        }
+    }
+
+    /** Counts a student placed in {@code setNumber} by hand; call before the assignment is saved. */
+    public void record(int examId, int numberOfSets, int setNumber) {
+        ExamLoad load = load(examId, numberOfSets);
+        if (setNumber >= 1 && setNumber <= load.sets.length()) {
+            load.sets.incrementAndGet(setNumber - 1);
+            undoOnRollback(load, setNumber - 1, -1);
+        }
+    }
+
+    /** Un-counts a student removed from {@code setNumber}. */
+    public void release(int examId, int setNumber) {
+        ExamLoad load = loads.get(examId);
+        if (load != null && setNumber >= 1 && setNumber <= load.sets.length()) {
+            add(load, setNumber - 1, -1);
+            undoOnRollback(load, setNumber - 1, 1);
+        }
+    }
+
+    /** Forgets the exam's counters, e.g. after its sets or assignments were deleted. */
+    public void reset(int examId) {
+        loads.remove(examId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    loads.remove(examId);
+                }
+            });
+        }
+    }
+
+    /** Students per set as counted from the assignments table. */
+    public Map<Integer, Long> countFromDatabase(int examId) {
+        Map<Integer, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : studentExamAssignmentRepo.countBySetNumber(examId)) {
+            counts.put(((Number) row[0]).intValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private ExamLoad load(int examId, int numberOfSets) {
+        long resyncNanos = TimeUnit.MILLISECONDS.toNanos(resyncMs);
+        ExamLoad load = loads.get(examId);
+        if (load != null && !load.isStale(numberOfSets, resyncNanos)) {
+            return load;
+        }
+        return loads.compute(examId, (id, current) ->
+                current != null && !current.isStale(numberOfSets, resyncNanos) ? current : seed(id, numberOfSets));
+    }
+
+    private ExamLoad seed(int examId, int numberOfSets) {
+        ExamLoad load = new ExamLoad(numberOfSets);
+        countFromDatabase(examId).forEach((setNumber, count) -> {
+            if (setNumber >= 1 && setNumber <= numberOfSets) {
+                load.sets.set(setNumber - 1, count.intValue());
+            }
+        });
+        seeds.increment();
+        log.info("Seeded set load for exam {}: {} sets", examId, numberOfSets);
+        return load;
+    }
+
+    /** Applies {@code delta} to the set's count if the surrounding transaction rolls back. */
+    private void undoOnRollback(ExamLoad load, int index, int delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        add(load, index, delta);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void add(ExamLoad load, int index, int delta) {
+        load.sets.getAndUpdate(index, count -> Math.max(0, count + delta));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("exams", loads.size());
+        stats.put("allocations", allocations.sum());
+        stats.put("casRetries", casRetries.sum());
+        stats.put("seeds", seeds.sum());
+        return stats;
+    }
+}
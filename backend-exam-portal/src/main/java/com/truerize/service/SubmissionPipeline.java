@@ -0,0 +1,225 @@
+package com.truerize.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.truerize.entity.TestSubmission;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Asynchronous scoring of exam submissions. The request thread only inserts
+ * the raw submission as {@code Queued}; a dispatcher thread drains a bounded
+ * queue in batches and hands each batch to the {@code scoring} executor,
+ * which scores them and writes the results. When that executor is full the
+ * dispatcher scores the batch itself, which holds back further batches.
+ * Rows that do not fit in the queue, or were queued before a restart, stay
+ * {@code Queued} in the database and are picked up again by the periodic sweep.
+ */
+@Service
+public class SubmissionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(SubmissionPipeline.class);
+
+    @Autowired
+    private TestSubmissionService testSubmissionService;
+
+    @Autowired
+    private CodingGrader codingGrader;
+
+    @Autowired
+    @Qualifier("scoringExecutor")
+    private InstrumentedExecutor scoringExecutor;
+
+    @Value("${submission.pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${submission.pipeline.batch-size:50}")
+    private int batchSize;
+
+    private BlockingQueue<Integer> queue;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    /** Ids currently queued or being scored, so the sweep never enqueues them twice. */
+    private final Set<Integer> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private final LatencyHistogram submissionLatency = new LatencyHistogram();
+    private final LatencyHistogram batchLatency = new LatencyHistogram();
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "submission-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        log.info("Submission pipeline started: {} scoring threads, queue capacity {}, batch size {}",
+                scoringExecutor.getMaximumPoolSize(), queueCapacity, batchSize);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        dispatcher.interrupt();
+        dispatcher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    /**
+     * Persists the submission as {@code Queued} and hands it to the workers.
+     * The submission is durable once this returns, even if the queue is full.
+     * A retry of an already stored attempt returns the original submission.
+     */
+    public TestSubmission submit(TestSubmission submission) {
+        Optional<TestSubmission> duplicate = testSubmissionService.findRecentDuplicate(submission);
+        if (duplicate.isPresent()) {
+            return duplicate.get();
+        }
+
+        TestSubmission saved = testSubmissionService.acceptSubmission(submission);
+        if (saved != submission) {
+            // Duplicate caught by the unique idempotency key
+            return saved;
+        }
+        accepted.increment();
+        enqueue(saved.getId());
+        return saved;
+    }
+
+    private boolean enqueue(int submissionId) {
+        if (!inFlight.add(submissionId)) {
+            return true;
+        }
+        if (!queue.offer(submissionId)) {
+            inFlight.remove(submissionId);
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /** Re-queues submissions left {@code Queued} by a full queue, a failed batch or a restart. */
+    @Scheduled(initialDelayString = "${submission.pipeline.sweep-interval-ms:15000}",
+               fixedDelayString = "${submission.pipeline.sweep-interval-ms:15000}")
+    public void sweepQueued() {
+        int room = queue.remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+
+        int requeued = 0;
+        for (Integer id : testSubmissionService.findQueuedSubmissionIds(Math.min(room, 1000))) {
+            if (!inFlight.contains(id) && enqueue(id)) {
+                requeued++;
+            }
+        }
+        if (requeued > 0) {
+            log.info("Re-queued {} pending submissions", requeued);
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                Integer first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Integer> batch = new ArrayList<>(batchSize);
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                scoringExecutor.execute(() -> {
+                    try {
+                        process(batch);
+                    } finally {
+                        inFlight.removeAll(batch);
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void process(List<Integer> batch) {
+        long start = System.nanoTime();
+        try {
+            record(testSubmissionService.scoreQueued(batch));
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                failures.increment();
+                log.error("Failed to score submission {}; left queued for retry", batch.get(0), e);
+                return;
+            }
+            // Isolate the failing row so one bad submission does not hold back the batch
+            log.warn("Batch of {} submissions failed, retrying individually", batch.size(), e);
+            for (Integer id : batch) {
+                process(List.of(id));
+            }
+            return;
+        }
+        batches.increment();
+        batchLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void record(List<TestSubmission> scored) {
+        LocalDateTime now = LocalDateTime.now();
+        for (TestSubmission submission : scored) {
+            if (TestSubmissionService.STATUS_GRADING.equals(submission.getStatus())) {
+                // Coding answers still to run; the grader completes it
+                codingGrader.enqueue(submission.getId());
+            } else if (submission.getSubmittedAt() != null) {
+                submissionLatency.record(Duration.between(submission.getSubmittedAt(), now).toMillis());
+            }
+        }
+        processed.add(scored.size());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("inFlight", inFlight.size());
+        stats.put("workers", scoringExecutor.getMaximumPoolSize());
+        stats.put("busyWorkers", scoringExecutor.getActiveCount());
+        stats.put("accepted", accepted.sum());
+        stats.put("processed", processed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("failures", failures.sum());
+        stats.put("duplicates", testSubmissionService.getDuplicateSubmissions());
+        stats.put("batches", batches.sum());
+        stats.put("submissionLatency", submissionLatency.snapshot());
+        stats.put("batchLatency", batchLatency.snapshot());
+        stats.put("executor", scoringExecutor.getStats());
+        stats.put("codingGrader", codingGrader.getStats());
+        return stats;
+    }
+}
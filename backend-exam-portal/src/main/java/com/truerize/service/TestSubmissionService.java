@@ -1,125 +1,392 @@
 package com.truerize.service;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.truerize.entity.Exam;
-import com.truerize.entity.Question;
 import com.truerize.entity.Result;
+import com.truerize.entity.StudentExamAssignment;
 import com.truerize.entity.TestSubmission;
 import com.truerize.entity.User;
-import com.truerize.repository.ExamRepository;
-import com.truerize.repository.QuestionRepository;
 import com.truerize.repository.ResultRepository;
+import com.truerize.repository.StudentExamAssignmentRepo;
 import com.truerize.repository.TestSubmissionRepository;
-import com.truerize.repository.UserRepository;
 
 @Service
 public class TestSubmissionService {
 
+    private static final Logger log = LoggerFactory.getLogger(TestSubmissionService.class);
+
+    public static final String STATUS_QUEUED = "Queued";
+    public static final String STATUS_GRADING = "Grading";
+    public static final String STATUS_COMPLETED = "Completed";
+    public static final int MAX_CLIENT_KEY_LENGTH = 100;
+
     @Autowired
     private TestSubmissionRepository testSubmissionRepository;
 
-    @Autowired
-    private QuestionRepository questionRepository;
-    
     @Autowired
     private ResultRepository resultRepository;
     
     @Autowired
-    private UserRepository userRepository;
+    private StudentExamAssignmentRepo studentExamAssignmentRepo;
+
+    @Autowired
+    private AnswerKeyCache answerKeyCache;
 
     @Autowired
-    private ExamRepository examRepository;
+    private ObjectMapper objectMapper;
+
+    private static final TypeReference<Map<String, String>> ANSWERS_TYPE = new TypeReference<>() {};
+
+    private static final int RECENT_KEYS_CAPACITY = 10_000;
+
+    /** Idempotency key -> submission id of recent submissions, so retries skip the insert. */
+    private final Map<String, Integer> recentKeys = Collections.synchronizedMap(
+        new LinkedHashMap<String, Integer>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > RECENT_KEYS_CAPACITY;
+            }
+        });
+
+    private final LongAdder duplicateSubmissions = new LongAdder();
+
+    /**
+     * Key identifying one attempt: the user, the exam and the candidate's
+     * assignment (id and time assigned, so a retake on a new assignment gets
+     * a new key), optionally narrowed by a client-supplied
+     * {@code Idempotency-Key}.
+     */
+    public String idempotencyKey(int userId, int examId, String clientKey) {
+        String key = userId + ":" + examId;
+        Optional<StudentExamAssignment> attempt =
+            studentExamAssignmentRepo.findByStudentIdAndExamId(String.valueOf(userId), examId);
+        if (attempt.isPresent()) {
+            LocalDateTime assignedAt = attempt.get().getAssignedAt();
+            key += ":" + attempt.get().getId() + ":"
+                + (assignedAt != null ? assignedAt.atZone(ZoneOffset.UTC).toInstant().toEpochMilli() : 0);
+        }
+        return clientKey == null || clientKey.isBlank() ? key : key + ":" + clientKey.trim();
+    }
+
+    private String resolveIdempotencyKey(TestSubmission submission) {
+        if (submission.getIdempotencyKey() == null) {
+            submission.setIdempotencyKey(
+                idempotencyKey(submission.getUser().getId(), submission.getExam().getId(), null));
+        }
+        return submission.getIdempotencyKey();
+    }
+
+    /** Submission recently stored under the same idempotency key, if any. */
+    public Optional<TestSubmission> findRecentDuplicate(TestSubmission submission) {
+        String key = resolveIdempotencyKey(submission);
+        Integer submissionId = recentKeys.get(key);
+        if (submissionId == null) {
+            return Optional.empty();
+        }
+
+        Optional<TestSubmission> existing = testSubmissionRepository.findById(submissionId);
+        if (existing.isPresent()) {
+            duplicateSubmissions.increment();
+        } else {
+            recentKeys.remove(key);
+        }
+        return existing;
+    }
+
+    /**
+     * Inserts the submission, relying on the unique idempotency key to catch
+     * retries that are no longer in the recent-keys cache. Returns the
+     * original row for a duplicate.
+     */
+    private TestSubmission insertOnce(TestSubmission submission) {
+        String key = resolveIdempotencyKey(submission);
+        try {
+            TestSubmission saved = testSubmissionRepository.save(submission);
+            recentKeys.put(key, saved.getId());
+            return saved;
+        } catch (DataIntegrityViolationException e) {
+            TestSubmission existing = testSubmissionRepository.findByIdempotencyKey(key).orElseThrow(() -> e);
+            duplicateSubmissions.increment();
+            recentKeys.put(key, existing.getId());
+            return existing;
+        }
+    }
 
-    public TestSubmission submitTest(TestSubmission submission) {
+    public long getDuplicateSubmissions() {
+        return duplicateSubmissions.sum();
+    }
+
+    /**
+     * Durably records a raw submission for asynchronous scoring. The row is
+     * picked up by {@link SubmissionPipeline} and finished by
+     * {@link #scoreQueued(List)}. A retry of an attempt that is already stored
+     * returns the original submission.
+     */
+    public TestSubmission acceptSubmission(TestSubmission submission) {
         submission.setSubmittedAt(LocalDateTime.now());
-        submission.setStatus("Completed");
-
-        int calculatedScore = calculateScore(submission);
-        submission.setScore(calculatedScore);
-
-        TestSubmission savedSubmission = testSubmissionRepository.save(submission);
-       
-        User user = userRepository.findById(savedSubmission.getUser().getId())
-                                  .orElseThrow(() -> new RuntimeException("User not found"));
-                                  
-        Exam exam = examRepository.findById(savedSubmission.getExam().getId())
-                                  .orElseThrow(() -> new RuntimeException("Exam not found"));
-      
+        submission.setStatus(STATUS_QUEUED);
+        submission.setScore(0);
+        return insertOnce(submission);
+    }
+
+    /**
+     * Scores a batch of queued submissions and writes their results in one
+     * transaction. Rows that are no longer queued (already handled by another
+     * worker or the sweeper) are skipped. Submissions with coding answers to
+     * grade by test cases keep their objective score and move to
+     * {@code Grading}; their result is written by {@link #completeGrading}.
+     * Returns the submissions scored.
+     */
+    @Transactional
+    public List<TestSubmission> scoreQueued(List<Integer> submissionIds) {
+        List<TestSubmission> scored = new ArrayList<>(submissionIds.size());
+        List<Result> results = new ArrayList<>(submissionIds.size());
+
+        for (TestSubmission submission : testSubmissionRepository.findAllById(submissionIds)) {
+            if (!STATUS_QUEUED.equals(submission.getStatus())) continue;
+
+            CompiledAnswerKey key = answerKeyCache.get(submission.getExam().getId());
+            StudentExamAssignment assignment = findAssignment(submission, key).orElse(null);
+            submission.setScore(calculateScore(submission, key, assignment));
+            scored.add(submission);
+
+            if (needsCodeGrading(submission, key, assignment)) {
+                submission.setStatus(STATUS_GRADING);
+                continue;
+            }
+            submission.setStatus(STATUS_COMPLETED);
+            results.add(resultOf(submission));
+        }
+
+        resultRepository.saveAll(results);
+        return scored;
+    }
+
+    /**
+     * Adds the test-case marks of a {@code Grading} submission to its score,
+     * completes it and writes its result. Returns {@code null} if the
+     * submission was already completed by another worker.
+     */
+    @Transactional
+    public TestSubmission completeGrading(int submissionId, int codingMarks) {
+        TestSubmission submission = testSubmissionRepository.findById(submissionId).orElse(null);
+        if (submission == null || !STATUS_GRADING.equals(submission.getStatus())) {
+            return null;
+        }
+
+        submission.setScore(submission.getScore() + codingMarks);
+        submission.setStatus(STATUS_COMPLETED);
+        resultRepository.save(resultOf(submission));
+        return submission;
+    }
+
+    /**
+     * Counts a failed grading run of a {@code Grading} submission. Once it
+     * has failed {@code maxAttempts} times the submission is completed with
+     * its objective score and its coding answers are marked ungraded.
+     * Returns the submission if it was given up on, otherwise {@code null}.
+     */
+    @Transactional
+    public TestSubmission recordGradingFailure(int submissionId, int maxAttempts) {
+        TestSubmission submission = testSubmissionRepository.findById(submissionId).orElse(null);
+        if (submission == null || !STATUS_GRADING.equals(submission.getStatus())) {
+            return null;
+        }
+
+        int attempts = (submission.getGradingAttempts() == null ? 0 : submission.getGradingAttempts()) + 1;
+        submission.setGradingAttempts(attempts);
+        if (attempts < maxAttempts) {
+            return null;
+        }
+
+        submission.setCodingUngraded(true);
+        submission.setStatus(STATUS_COMPLETED);
+        resultRepository.save(resultOf(submission));
+        return submission;
+    }
+
+    private static Result resultOf(TestSubmission submission) {
+        User user = submission.getUser();
         Result result = new Result();
         result.setName(user.getName());
         result.setCollegeName(user.getCollegeName());
         result.setEmail(user.getEmail());
-        result.setExam(exam.getTitle());
-        result.setScore(savedSubmission.getScore());
-        result.setStatus("Completed");
+        result.setExam(submission.getExam().getTitle());
+        result.setScore(submission.getScore());
+        result.setStatus(STATUS_COMPLETED);
+        return result;
+    }
 
-        System.out.println("Saving result: user=" + user.getName() +
-                ", college=" + user.getCollegeName() +
-                ", email=" + user.getEmail() +
-                ", exam=" + exam.getTitle() +
-                ", score=" + savedSubmission.getScore());
+    /** Whether the submission answers a coding question that is graded by test cases. */
+    private boolean needsCodeGrading(TestSubmission submission, CompiledAnswerKey key, StudentExamAssignment assignment) {
+        if (!key.hasTestCaseGradedQuestions()) {
+            return false;
+        }
+        Integer setNumber = assignment != null ? assignment.getAssignedSetNumber() : null;
+        try {
+            for (Map.Entry<String, String> entry : objectMapper.readValue(submission.getAnswersJson(), ANSWERS_TYPE).entrySet()) {
+                int index = indexOfQuestion(key, setNumber, entry.getKey());
+                if (index >= 0 && key.isTestCaseGraded(index) && entry.getValue() != null && !entry.getValue().isBlank()) {
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Could not read answers of submission {}", submission.getId(), e);
+        }
+        return false;
+    }
 
-        resultRepository.save(result);
+    public List<Integer> findGradingSubmissionIds(int limit) {
+        return testSubmissionRepository.findIdsByStatus(STATUS_GRADING, PageRequest.of(0, limit));
+    }
 
-        return savedSubmission;
+    public List<Integer> findQueuedSubmissionIds(int limit) {
+        return testSubmissionRepository.findIdsByStatus(STATUS_QUEUED, PageRequest.of(0, limit));
     }
-        
+
+    /**
+     * The candidate's assignment to the submission's exam when it matters for
+     * scoring: it names their question set and, for shuffled exams, the seed
+     * their options were permuted with.
+     */
+    public Optional<StudentExamAssignment> findAssignment(TestSubmission submission, CompiledAnswerKey key) {
+        if (submission.getUser() == null || !(key.hasSets() || key.isPerCandidateShuffle())) {
+            return Optional.empty();
+        }
+        return studentExamAssignmentRepo.findByStudentIdAndExamId(
+            String.valueOf(submission.getUser().getId()), key.getExamId());
+    }
+
     public int calculateScore(TestSubmission submission) {
+        CompiledAnswerKey key = answerKeyCache.get(submission.getExam().getId());
+        return calculateScore(submission, key, findAssignment(submission, key).orElse(null));
+    }
+
+    /**
+     * Objective score of the submission. Only questions of the candidate's
+     * assigned set count; answers to any other question id are ignored.
+     */
+    private int calculateScore(TestSubmission submission, CompiledAnswerKey key, StudentExamAssignment assignment) {
         int totalScore = 0;
         try {
-            ObjectMapper mapper = new ObjectMapper();
-
-            Map<String, String> candidateAnswers = mapper.readValue(
-                submission.getAnswersJson(),
-                new TypeReference<Map<String, String>>() {}
-            );
-
-            List<Question> questions = questionRepository.findByExam_IdOrderByQNoAsc(
-                submission.getExam().getId()
-            );
-
-            for (Question q : questions) {
-                String givenAnswer = candidateAnswers.get(String.valueOf(q.getId()));
-                String correctAnswer = q.getAnswer();
-
-                if (givenAnswer == null || givenAnswer.trim().isEmpty()) continue;
-
-                switch (q.getType().toLowerCase()) {
-                    case "mcq":
-                    case "coding":
-                        if (correctAnswer != null && givenAnswer.trim().equalsIgnoreCase(correctAnswer.trim())) {
-                            totalScore += q.getMarks();
-                        }
-                        break;
-
-                    case "verbal":
-                        // Award marks if any valid audio response is provided
-                        if (!givenAnswer.equalsIgnoreCase("audio_file_not_recorded")
-                                && !givenAnswer.equalsIgnoreCase("blank_answer")) {
-                            totalScore += q.getMarks();
-                        }
-                        break;
-
-                    default:
-                        break;
+            Map<String, String> candidateAnswers = objectMapper.readValue(
+                submission.getAnswersJson(), ANSWERS_TYPE);
+
+            Integer setNumber = assignment != null ? assignment.getAssignedSetNumber() : null;
+            // Candidates with a permutation seed saw shuffled options; map letters back
+            Long permutationSeed = assignment != null && key.isPerCandidateShuffle()
+                ? assignment.getPermutationSeed() : null;
+
+            for (Map.Entry<String, String> entry : candidateAnswers.entrySet()) {
+                int index = indexOfQuestion(key, setNumber, entry.getKey());
+                if (index >= 0) {
+                    totalScore += awardedMarks(key, index, entry.getValue(), permutationSeed);
                 }
             }
         } catch (Exception e) {
-            System.out.println("Error calculating score: " + e.getMessage());
+            log.warn("Could not calculate score of submission {}", submission.getId(), e);
         }
 
         return totalScore;
     }
 
+    /**
+     * Marks per section for the automatically scored answers, the same way
+     * {@link #calculateScore} adds them up, over the questions of set
+     * {@code setNumber}. Coding answers graded by test cases are not re-run
+     * here and count as zero.
+     */
+    public Map<String, Integer> sectionScores(int examId, String answersJson, Integer setNumber, Long permutationSeed) {
+        Map<String, Integer> scores = new LinkedHashMap<>();
+        if (answersJson == null || answersJson.isBlank()) {
+            return scores;
+        }
+        try {
+            Map<String, String> candidateAnswers = objectMapper.readValue(answersJson, ANSWERS_TYPE);
+            CompiledAnswerKey key = answerKeyCache.get(examId);
+            Long seed = key.isPerCandidateShuffle() ? permutationSeed : null;
+
+            for (Map.Entry<String, String> entry : candidateAnswers.entrySet()) {
+                int index = indexOfQuestion(key, setNumber, entry.getKey());
+                if (index >= 0) {
+                    scores.merge(key.section(index), awardedMarks(key, index, entry.getValue(), seed), Integer::sum);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Could not calculate section scores for exam {}", examId, e);
+        }
+        return scores;
+    }
+
+    static int awardedMarks(CompiledAnswerKey key, int index, String givenAnswer, Long permutationSeed) {
+        if (givenAnswer == null || givenAnswer.isBlank()) {
+            return 0;
+        }
+
+        switch (key.kind(index)) {
+            case MCQ:
+                int correctMask = key.answerMask(index);
+                int givenMask = CompiledAnswerKey.letterMask(givenAnswer);
+                if (correctMask == 0 || givenMask == 0) {
+                    // Options keyed or answered by text rather than letter
+                    return textMatchMarks(key, index, givenAnswer);
+                }
+                if (permutationSeed != null) {
+                    givenMask = QuestionPermutation.toOriginalMask(
+                        givenMask, permutationSeed, key.questionId(index), key.optionCount(index));
+                }
+                return givenMask == correctMask ? key.marks(index) : 0;
+
+            case CODING:
+                if (key.isTestCaseGraded(index)) {
+                    // Run against the hidden test cases by CodingGrader
+                    return 0;
+                }
+                return textMatchMarks(key, index, givenAnswer);
+
+            case VERBAL:
+                // Award marks if any valid audio response is provided
+                return !givenAnswer.equalsIgnoreCase("audio_file_not_recorded")
+                    && !givenAnswer.equalsIgnoreCase("blank_answer") ? key.marks(index) : 0;
+
+            default:
+                return 0;
+        }
+    }
+
+    private static int textMatchMarks(CompiledAnswerKey key, int index, String givenAnswer) {
+        String correctAnswer = key.normalizedAnswer(index);
+        return correctAnswer != null && givenAnswer.trim().equalsIgnoreCase(correctAnswer)
+            ? key.marks(index) : 0;
+    }
+
+    /** Position in the key of an answered question of set {@code setNumber}, or -1. */
+    static int indexOfQuestion(CompiledAnswerKey key, Integer setNumber, String questionId) {
+        try {
+            return key.indexOf(Integer.parseInt(questionId.trim()), setNumber);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
     public List<TestSubmission> getAllSubmissions() {
         return testSubmissionRepository.findAll();
     }
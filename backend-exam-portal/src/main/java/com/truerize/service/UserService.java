@@ -9,9 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.truerize.entity.Exam;
 import com.truerize.entity.User;
-import com.truerize.repository.ExamRepository;
 import com.truerize.repository.UserRepository;
 
 @Service
@@ -23,13 +21,7 @@ public class UserService {
     private UserRepository userRepository;
     
     @Autowired
-    private ExamRepository examRepository;
-    
-    @Autowired
-    private ExamSetService examSetService;
-    
-    @Autowired
-    private MailService mailService;
+    private BulkAssignmentService bulkAssignmentService;
 
     public Optional<User> authenticate(String email, String password) {
         log.info("Authenticating user: {}", email);
@@ -198,67 +190,18 @@ public class UserService {
         return userRepository.countByStatus(status);
     }
 
-    @Transactional
-    public void assignExamToUsers(Integer examId, List<Integer> userIds) {
-       
-        log.info("Exam ID: {}", examId);
-        log.info("User IDs: {}", userIds);
+    /**
+     * Assigns the exam to every listed user through the bulk engine and
+     * returns its report; users that cannot be assigned are listed there and
+     * make {@link BulkAssignmentService.Job#hasFailures()} true.
+     */
+    public BulkAssignmentService.Job assignExamToUsers(Integer examId, List<Integer> userIds) {
+        log.info("Exam ID: {}, {} users", examId, userIds.size());
 
-        try {
-          
-            Exam exam = examRepository.findById(examId)
-                .orElseThrow(() -> new IllegalArgumentException("Exam not found with id: " + examId));
-
-            log.info("✅ Exam found: {}", exam.getTitle());
-
-           
-            if (!examSetService.hasQuestionSets(examId.longValue())) {
-                log.info("⚠️ Question sets not found, generating...");
-                examSetService.generateQuestionSets(examId.longValue());
-                log.info("✅ Question sets generated");
-            } else {
-                log.info("✅ Question sets already exist");
-            }
-
-            int setCounter = 1;
-            for (Integer userId : userIds) {
-                User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new IllegalArgumentException("User not found with id: " + userId));
-
-                user.getAssignedExams().add(exam);
-                user.setStatus("Assigned Exam");
-                userRepository.save(user);
-
-                
-                int setNumber = ((setCounter - 1) % 5) + 1;
-                examSetService.assignStudentToSet(String.valueOf(userId), examId.longValue(), setNumber, setCounter);
-                
-                log.info("✅ Assigned user {} to exam {} with set {}", userId, examId, setNumber);
-                
-              
-                try {
-                    String examLink = "http://localhost:3000/exam/" + examId;
-                    mailService.sendExamAssignedEmail(
-                        user.getEmail(), 
-                        user.getPassword(), 
-                        examLink
-                    );
-                    log.info(" Email sent to: {}", user.getEmail());
-                } catch (Exception emailError) {
-                    log.error("❌ Failed to send email to {}: {}", user.getEmail(), emailError.getMessage());
-                   
-                }
-                
-                setCounter++;
-            }
-
-            log.info("========================================");
-            log.info("✅ ASSIGNMENT COMPLETE - {} users assigned", userIds.size());
-            log.info("========================================");
-
-        } catch (Exception e) {
-            log.error("❌ Error assigning exam to users", e);
-            throw new RuntimeException("Failed to assign exam: " + e.getMessage());
+        BulkAssignmentService.Job job = bulkAssignmentService.assign(examId, userIds);
+        if ("FAILED".equals(job.getStatus())) {
+            throw new RuntimeException("Failed to assign exam: " + job.getError());
         }
+        return job;
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.truerize.entity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PackedIntArrayConverterTest {
+
+    private final PackedIntArrayConverter converter = new PackedIntArrayConverter();
+
+    @Test
+    void packAndUnpackRoundTrip() {
+        int[] values = { 0, 1, -1, 42, Integer.MAX_VALUE, Integer.MIN_VALUE, 0x01020304 };
+
+        assertThat(PackedIntArrayConverter.unpack(PackedIntArrayConverter.pack(values))).containsExactly(values);
+    }
+
+    @Test
+    void randomArraysRoundTrip() {
+        Random random = new Random(7);
+        for (int length = 0; length < 200; length += 13) {
+            int[] values = random.ints(length).toArray();
+            assertThat(PackedIntArrayConverter.unpack(PackedIntArrayConverter.pack(values))).containsExactly(values);
+        }
+    }
+
+    @Test
+    void packsLittleEndianFourBytesPerValue() {
+        byte[] packed = PackedIntArrayConverter.pack(new int[] { 0x01020304, -1 });
+
+        assertThat(packed).containsExactly(0x04, 0x03, 0x02, 0x01, 0xFF, 0xFF, 0xFF, 0xFF);
+    }
+
+    @Test
+    void emptyArrayPacksToNoBytes() {
+        assertThat(PackedIntArrayConverter.pack(new int[0])).isEmpty();
+        assertThat(PackedIntArrayConverter.unpack(new byte[0])).isEmpty();
+    }
+
+    @Test
+    void rejectsTruncatedData() {
+        assertThatThrownBy(() -> PackedIntArrayConverter.unpack(new byte[] { 1, 2, 3 }))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void convertsNullColumnsToEmptyArrayAndBack() {
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isEmpty();
+        assertThat(converter.convertToEntityAttribute(converter.convertToDatabaseColumn(new int[] { 5, 9 })))
+                .containsExactly(5, 9);
+    }
+}
@@ -0,0 +1,132 @@
+package com.truerize.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+class BalancedSetSolverTest {
+
+    // Section A: ids 1-12, six easy, four medium, two hard
+    private static final int[] A_IDS = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 };
+    private static final int[] A_MARKS = { 1, 2, 1, 2, 1, 3, 2, 3, 2, 4, 4, 5 };
+    private static final String[] A_DIFFICULTY = {
+        "easy", "EASY", "Easy", "easy", "easy", "easy", "MEDIUM", "medium", "medium", "medium", "HARD", "hard"
+    };
+
+    // Section B: ids 101-110, untagged except two hard ones
+    private static final int[] B_IDS = { 101, 102, 103, 104, 105, 106, 107, 108, 109, 110 };
+    private static final int[] B_MARKS = { 1, 1, 2, 2, 3, 3, 1, 2, 5, 5 };
+    private static final String[] B_DIFFICULTY = { null, "", " ", null, null, null, null, null, "hard", "HARD" };
+
+    private static final Map<Integer, String> DIFFICULTY = new HashMap<>();
+    private static final Map<Integer, Integer> MARKS = new HashMap<>();
+
+    static {
+        for (int i = 0; i < A_IDS.length; i++) {
+            DIFFICULTY.put(A_IDS[i], A_DIFFICULTY[i].toUpperCase());
+            MARKS.put(A_IDS[i], A_MARKS[i]);
+        }
+        for (int i = 0; i < B_IDS.length; i++) {
+            DIFFICULTY.put(B_IDS[i], B_DIFFICULTY[i] == null || B_DIFFICULTY[i].isBlank()
+                    ? BalancedSetSolver.UNTAGGED : B_DIFFICULTY[i].toUpperCase());
+            MARKS.put(B_IDS[i], B_MARKS[i]);
+        }
+    }
+
+    private static List<BalancedSetSolver.Section> sections() {
+        return List.of(
+            new BalancedSetSolver.Section("A", A_IDS, A_MARKS, A_DIFFICULTY, 6),
+            new BalancedSetSolver.Section("B", B_IDS, B_MARKS, B_DIFFICULTY, 5));
+    }
+
+    @Test
+    void everySetMeetsTheDifficultyQuotasOfEachSection() {
+        List<BalancedSetSolver.DrawnSet> sets = BalancedSetSolver.solve(sections(), 8, new SplittableRandom(42));
+
+        assertThat(sets).hasSize(8);
+        for (BalancedSetSolver.DrawnSet set : sets) {
+            int[] order = set.getOrder();
+            assertThat(order).hasSize(11);
+
+            // Section A comes first, then section B
+            int[] a = Arrays.copyOfRange(order, 0, 6);
+            int[] b = Arrays.copyOfRange(order, 6, 11);
+            assertThat(A_IDS).contains(a);
+            assertThat(B_IDS).contains(b);
+
+            // Quotas are proportional to the bank: 6 of 12 means half of each difficulty
+            assertThat(countByDifficulty(a)).isEqualTo(Map.of("EASY", 3L, "MEDIUM", 2L, "HARD", 1L));
+            assertThat(countByDifficulty(b)).isEqualTo(Map.of(BalancedSetSolver.UNTAGGED, 4L, "HARD", 1L));
+        }
+    }
+
+    @Test
+    void everySetReachesTheTargetMarks() {
+        List<BalancedSetSolver.Section> sections = sections();
+        List<BalancedSetSolver.DrawnSet> sets = BalancedSetSolver.solve(sections, 8, new SplittableRandom(7));
+
+        int target = BalancedSetSolver.targetMarks(sections);
+        for (BalancedSetSolver.DrawnSet set : sets) {
+            assertThat(set.isBalanced()).isTrue();
+            assertThat(Arrays.stream(set.getOrder()).map(MARKS::get).sum()).isEqualTo(target);
+            assertThat(set.getBalance()).containsEntry("totalMarks", target).containsEntry("marksDeviation", 0);
+        }
+    }
+
+    @Test
+    void setsAreDistinctAndNeverRepeatAQuestion() {
+        List<BalancedSetSolver.DrawnSet> sets = BalancedSetSolver.solve(sections(), 10, new SplittableRandom(3));
+
+        Set<Set<Integer>> selections = new HashSet<>();
+        for (BalancedSetSolver.DrawnSet set : sets) {
+            Set<Integer> ids = Arrays.stream(set.getOrder()).boxed().collect(Collectors.toSet());
+            assertThat(ids).hasSize(set.getOrder().length);
+            assertThat(set.isDistinct()).isTrue();
+            selections.add(ids);
+        }
+        assertThat(selections).hasSize(sets.size());
+    }
+
+    @Test
+    void reportsRepeatsWhenTheBankHasTooFewCombinations() {
+        // Two questions drawn from a bank of two: every set is the same selection
+        BalancedSetSolver.Section only = new BalancedSetSolver.Section(
+            "A", new int[] { 1, 2 }, new int[] { 1, 1 }, new String[] { null, null }, 2);
+
+        List<BalancedSetSolver.DrawnSet> sets = BalancedSetSolver.solve(List.of(only), 3, new SplittableRandom(1));
+
+        assertThat(sets.get(0).isDistinct()).isTrue();
+        assertThat(sets.get(1).isDistinct()).isFalse();
+        assertThat(sets.get(2).isDistinct()).isFalse();
+    }
+
+    @Test
+    void sameSeedDrawsTheSameSets() {
+        List<BalancedSetSolver.DrawnSet> first = BalancedSetSolver.solve(sections(), 4, new SplittableRandom(99));
+        List<BalancedSetSolver.DrawnSet> second = BalancedSetSolver.solve(sections(), 4, new SplittableRandom(99));
+
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(second.get(i).getOrder()).containsExactly(first.get(i).getOrder());
+        }
+    }
+
+    @Test
+    void rejectsDrawingMoreQuestionsThanTheSectionHas() {
+        assertThatThrownBy(() -> new BalancedSetSolver.Section("A", A_IDS, A_MARKS, A_DIFFICULTY, 13))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Map<String, Long> countByDifficulty(int[] ids) {
+        return Arrays.stream(ids).boxed().collect(Collectors.groupingBy(DIFFICULTY::get, Collectors.counting()));
+    }
+}
@@ -0,0 +1,66 @@
+package com.truerize.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class QuestionPermutationTest {
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    @Test
+    void optionOrderIsADeterministicPermutation() {
+        int[] order = QuestionPermutation.optionOrder(SEED, 17, 5);
+
+        assertThat(QuestionPermutation.optionOrder(SEED, 17, 5)).containsExactly(order);
+        assertThat(Arrays.stream(order).sorted().toArray()).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void toOriginalMaskMapsEachDisplayedLetterThroughTheOptionOrder() {
+        for (int questionId = 1; questionId <= 50; questionId++) {
+            int[] order = QuestionPermutation.optionOrder(SEED, questionId, 4);
+            for (int displayed = 0; displayed < 4; displayed++) {
+                assertThat(QuestionPermutation.toOriginalMask(1 << displayed, SEED, questionId, 4))
+                        .isEqualTo(1 << order[displayed]);
+            }
+        }
+    }
+
+    @Test
+    void toOriginalMaskKeepsTheNumberOfChosenOptions() {
+        for (int mask = 0; mask < 1 << 6; mask++) {
+            int original = QuestionPermutation.toOriginalMask(mask, SEED, 99, 6);
+
+            assertThat(Integer.bitCount(original)).isEqualTo(Integer.bitCount(mask));
+            assertThat(original).isLessThan(1 << 6);
+        }
+    }
+
+    @Test
+    void toOriginalMaskIsABijectionOverAllMasks() {
+        boolean[] seen = new boolean[1 << 4];
+        for (int mask = 0; mask < 1 << 4; mask++) {
+            int original = QuestionPermutation.toOriginalMask(mask, SEED, 3, 4);
+            assertThat(seen[original]).as("mask %s maps to a taken mask", mask).isFalse();
+            seen[original] = true;
+        }
+    }
+
+    @Test
+    void toOriginalMaskLeavesLettersBeyondTheOptionsUnchanged() {
+        int beyond = 1 << 7;
+        int original = QuestionPermutation.toOriginalMask(beyond | 1, SEED, 8, 4);
+
+        assertThat(original & beyond).isEqualTo(beyond);
+        assertThat(original & ~beyond).isEqualTo(1 << QuestionPermutation.optionOrder(SEED, 8, 4)[0]);
+    }
+
+    @Test
+    void toOriginalMaskIsIdentityWithoutOptionsToShuffle() {
+        assertThat(QuestionPermutation.toOriginalMask(0, SEED, 1, 4)).isZero();
+        assertThat(QuestionPermutation.toOriginalMask(0b1, SEED, 1, 1)).isEqualTo(0b1);
+    }
+}
@@ -0,0 +1,118 @@
+package com.truerize.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import com.truerize.entity.Result;
+import com.truerize.service.ResultSearchService.Sort;
+
+class ResultSearchServiceTest {
+
+    private static Result result(int id, String name, Integer score) {
+        return new Result(id, name, "College", "a@b.test", "Exam", score, "Completed");
+    }
+
+    @Test
+    void cursorRoundTripsTheSortKeyAndId() {
+        assertThat(decode(Sort.SCORE, result(41, "Ann", 87))).containsExactly(87, 41);
+        assertThat(decode(Sort.SCORE, result(42, "Ann", -3))).containsExactly(-3, 42);
+        assertThat(decode(Sort.NAME, result(43, "O'Neil: Jr.", 10))).containsExactly("O'Neil: Jr.", 43);
+        assertThat(decode(Sort.NAME, result(44, "", 10))).containsExactly("", 44);
+        assertThat(decode(Sort.ID, result(45, "Ann", 10))).containsExactly(null, 45);
+    }
+
+    @Test
+    void cursorRoundTripsNullKeys() {
+        assertThat(decode(Sort.SCORE, result(7, "Ann", null))).containsExactly(null, 7);
+        assertThat(decode(Sort.NAME, result(8, null, 10))).containsExactly(null, 8);
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        String cursor = ResultSearchService.encodeCursor(result(1, "??>>~~", 1), Sort.NAME);
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThatThrownBy(() -> ResultSearchService.decodeCursor("not base64!", Sort.SCORE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ResultSearchService.decodeCursor(raw("abc:v1"), Sort.SCORE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ResultSearchService.decodeCursor(raw("5"), Sort.SCORE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ResultSearchService.decodeCursor(raw("5:vabc"), Sort.SCORE))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsCursorsOfAnotherSort() {
+        String scoreCursor = ResultSearchService.encodeCursor(result(5, "Ann", 9), Sort.SCORE);
+
+        assertThatThrownBy(() -> ResultSearchService.decodeCursor(scoreCursor, Sort.ID))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void idKeysetComparesIdOnly() {
+        assertThat(keyset(Sort.ID, false, null, 9)).isEqualTo(" AND id > :afterId");
+        assertThat(keyset(Sort.ID, true, null, 9)).isEqualTo(" AND id < :afterId");
+    }
+
+    @Test
+    void valueKeysetBreaksTiesOnId() {
+        assertThat(keyset(Sort.SCORE, false, 50, 9))
+                .isEqualTo(" AND (score > :afterValue OR (score = :afterValue AND id > :afterId))");
+    }
+
+    @Test
+    void descendingValueKeysetContinuesIntoTheTrailingNulls() {
+        assertThat(keyset(Sort.SCORE, true, 50, 9))
+                .isEqualTo(" AND (score < :afterValue OR (score = :afterValue AND id < :afterId) OR score IS NULL)");
+    }
+
+    @Test
+    void ascendingNullKeysetContinuesThroughNullsThenAllValues() {
+        assertThat(keyset(Sort.NAME, false, null, 9))
+                .isEqualTo(" AND ((name IS NULL AND id > :afterId) OR name IS NOT NULL)");
+    }
+
+    @Test
+    void descendingNullKeysetStaysWithinTheTrailingNulls() {
+        assertThat(keyset(Sort.NAME, true, null, 9)).isEqualTo(" AND (name IS NULL AND id < :afterId)");
+    }
+
+    @Test
+    void keysetBindsTheCursorValues() {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        ResultSearchService.keyset(new StringBuilder(), params, Sort.NAME, false, new Object[] { "Ann", 9 });
+
+        assertThat(params.getValue("afterValue")).isEqualTo("Ann");
+        assertThat(params.getValue("afterId")).isEqualTo(9);
+
+        MapSqlParameterSource nullParams = new MapSqlParameterSource();
+        ResultSearchService.keyset(new StringBuilder(), nullParams, Sort.NAME, false, new Object[] { null, 9 });
+        assertThat(nullParams.hasValue("afterValue")).isFalse();
+    }
+
+    private static Object[] decode(Sort sort, Result last) {
+        return ResultSearchService.decodeCursor(ResultSearchService.encodeCursor(last, sort), sort);
+    }
+
+    private static String raw(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String keyset(Sort sort, boolean descending, Object value, int id) {
+        StringBuilder where = new StringBuilder();
+        ResultSearchService.keyset(where, new MapSqlParameterSource(), sort, descending, new Object[] { value, id });
+        return where.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package com.truerize.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.truerize.repository.StudentExamAssignmentRepo;
+
+class SetLoadBalancerTest {
+
+    private static final int EXAM_ID = 7;
+    private static final int SETS = 3;
+
+    private SetLoadBalancer balancer;
+
+    @BeforeEach
+    void setUp() {
+        StudentExamAssignmentRepo repo = mock(StudentExamAssignmentRepo.class);
+        // Set 1 already holds five students
+        when(repo.countBySetNumber(EXAM_ID)).thenReturn(List.<Object[]>of(new Object[] { 1, 5L }));
+
+        balancer = new SetLoadBalancer();
+        ReflectionTestUtils.setField(balancer, "studentExamAssignmentRepo", repo);
+        ReflectionTestUtils.setField(balancer, "resyncMs", TimeUnit.HOURS.toMillis(1));
+    }
+
+    @Test
+    void fillsTheLeastLoadedSetFirst() {
+        assertThat(balancer.allocate(EXAM_ID, SETS)).isEqualTo(new SetLoadBalancer.Allocation(2, 1));
+        assertThat(balancer.allocate(EXAM_ID, SETS)).isEqualTo(new SetLoadBalancer.Allocation(3, 1));
+        assertThat(balancer.allocate(EXAM_ID, SETS)).isEqualTo(new SetLoadBalancer.Allocation(2, 2));
+    }
+
+    @Test
+    void concurrentAllocationsGetDistinctSlotsAndStayBalanced() throws Exception {
+        int threads = 8;
+        int perThread = 2_000;
+        Set<SetLoadBalancer.Allocation> allocations = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        allocations.add(balancer.allocate(EXAM_ID, SETS));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // Every allocation is a distinct (set, slot) pair
+        assertThat(allocations).hasSize(threads * perThread);
+
+        int[] perSet = new int[SETS + 1];
+        int[] maxSlot = new int[SETS + 1];
+        for (SetLoadBalancer.Allocation allocation : allocations) {
+            perSet[allocation.setNumber()]++;
+            maxSlot[allocation.setNumber()] = Math.max(maxSlot[allocation.setNumber()], allocation.slotNumber());
+        }
+
+        // Slots in each set follow on from the seeded count without gaps
+        assertThat(maxSlot[1]).isEqualTo(5 + perSet[1]);
+        assertThat(maxSlot[2]).isEqualTo(perSet[2]);
+        assertThat(maxSlot[3]).isEqualTo(perSet[3]);
+
+        int[] totals = { 5 + perSet[1], perSet[2], perSet[3] };
+        int min = Math.min(totals[0], Math.min(totals[1], totals[2]));
+        int max = Math.max(totals[0], Math.max(totals[1], totals[2]));
+        assertThat(max - min).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void releasedSlotIsReusedByTheNextAllocation() {
+        balancer.allocate(EXAM_ID, SETS);
+        balancer.allocate(EXAM_ID, SETS);
+        balancer.release(EXAM_ID, 2);
+
+        assertThat(balancer.allocate(EXAM_ID, SETS)).isEqualTo(new SetLoadBalancer.Allocation(2, 1));
+    }
+}
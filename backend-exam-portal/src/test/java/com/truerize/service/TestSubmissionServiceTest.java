@@ -0,0 +1,86 @@
+package com.truerize.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.truerize.entity.Question;
+
+class TestSubmissionServiceTest {
+
+    private static final long SEED = 0x2545F4914F6CDD1DL;
+    private static final int QUESTION_ID = 42;
+
+    private static CompiledAnswerKey key(String answer, int marks) {
+        Question question = new Question();
+        question.setId(QUESTION_ID);
+        question.setSection("Aptitude");
+        question.setType("MCQ");
+        question.setQuestionText("Which are prime?");
+        question.setAnswer(answer);
+        question.setMarks(marks);
+        question.setqNo(1);
+        question.setOptions(List.of("2", "4", "5", "9", "10"));
+        return CompiledAnswerKey.compile(1, true, List.of(question), List.of());
+    }
+
+    /** Letters the candidate sees for the given original options, in descending order. */
+    private static String displayedLetters(int... originalOptions) {
+        int[] order = QuestionPermutation.optionOrder(SEED, QUESTION_ID, 5);
+        List<String> letters = new ArrayList<>();
+        for (int displayed = order.length - 1; displayed >= 0; displayed--) {
+            for (int original : originalOptions) {
+                if (order[displayed] == original) {
+                    letters.add(String.valueOf((char) ('A' + displayed)));
+                }
+            }
+        }
+        return String.join(", ", letters);
+    }
+
+    @Test
+    void shuffledMultiAnswerScoresWhenTheSameOptionsAreChosenInAnyOrder() {
+        CompiledAnswerKey key = key("A, C", 4);
+
+        assertThat(TestSubmissionService.awardedMarks(key, 0, displayedLetters(0, 2), SEED)).isEqualTo(4);
+    }
+
+    @Test
+    void shuffledMultiAnswerScoresZeroForAPartialOrExtraSelection() {
+        CompiledAnswerKey key = key("A, C", 4);
+
+        assertThat(TestSubmissionService.awardedMarks(key, 0, displayedLetters(0), SEED)).isZero();
+        assertThat(TestSubmissionService.awardedMarks(key, 0, displayedLetters(0, 2, 3), SEED)).isZero();
+    }
+
+    @Test
+    void shuffledMultiAnswerIsNotComparedByTheDisplayedLetters() {
+        CompiledAnswerKey key = key("A, C", 4);
+        String displayed = displayedLetters(0, 2);
+
+        // Only when the shuffle leaves A and C in place do the displayed letters equal the key
+        boolean unmoved = QuestionPermutation.toOriginalMask(0b101, SEED, QUESTION_ID, 5) == 0b101;
+        assertThat(TestSubmissionService.awardedMarks(key, 0, "A, C", SEED)).isEqualTo(unmoved ? 4 : 0);
+        assertThat(TestSubmissionService.awardedMarks(key, 0, displayed, SEED)).isEqualTo(4);
+    }
+
+    @Test
+    void unshuffledMultiAnswerIgnoresLetterOrderAndSpacing() {
+        CompiledAnswerKey key = key("A, C", 4);
+
+        assertThat(TestSubmissionService.awardedMarks(key, 0, "c,a", null)).isEqualTo(4);
+        assertThat(TestSubmissionService.awardedMarks(key, 0, "A", null)).isZero();
+    }
+
+    @Test
+    void mcqKeyedByOptionTextIsComparedAsText() {
+        CompiledAnswerKey key = key("5", 2);
+
+        assertThat(TestSubmissionService.awardedMarks(key, 0, " 5 ", SEED)).isEqualTo(2);
+        assertThat(TestSubmissionService.awardedMarks(key, 0, "9", SEED)).isZero();
+        assertThat(TestSubmissionService.awardedMarks(key, 0, "C", SEED)).isZero();
+    }
+}
@@ -6,7 +6,7 @@ export default function ManageExams() {
   const [exams, setExams] = useState([]);
   const [isModalOpen, setIsModalOpen] = useState(false);
   const [isDeleteModalOpen, setIsDeleteModalOpen] = useState(false);
-  const [formData, setFormData] = useState({ title: "", duration: "" });
+  const [formData, setFormData] = useState({ title: "", duration: "", numberOfSets: 5 });
   const [editingExam, setEditingExam] = useState(null);
   const [examToDelete, setExamToDelete] = useState(null);
   const [notification, setNotification] = useState({ message: "", type: "" });
@@ -30,9 +30,9 @@ export default function ManageExams() {
   // Update formData when editingExam changes
   useEffect(() => {
     if (editingExam) {
-      setFormData({ title: editingExam.title, duration: editingExam.duration });
+      setFormData({ title: editingExam.title, duration: editingExam.duration, numberOfSets: editingExam.numberOfSets || 5 });
     } else {
-      setFormData({ title: "", duration: "" });
+      setFormData({ title: "", duration: "", numberOfSets: 5 });
     }
   }, [editingExam]);
 
@@ -59,7 +59,11 @@ export default function ManageExams() {
 
   // Add or Update exam
   const handleSaveExam = async () => {
-    const payload = { title: formData.title, duration: Number(formData.duration) };
+    const payload = {
+      title: formData.title,
+      duration: Number(formData.duration),
+      numberOfSets: Number(formData.numberOfSets),
+    };
     try {
       if (editingExam) {
         await axios.put(`${API_URL}/${editingExam.id}`, payload);
@@ -190,6 +194,21 @@ export default function ManageExams() {
                   required
                 />
               </div>
+              <div>
+                <label htmlFor="numberOfSets" className="block text-gray-700 font-medium mb-1">
+                  Question Sets
+                </label>
+                <input
+                  type="number"
+                  id="numberOfSets"
+                  min="1"
+                  max="500"
+                  value={formData.numberOfSets}
+                  onChange={(e) => setFormData({ ...formData, numberOfSets: e.target.value })}
+                  className="w-full px-4 py-2 border border-gray-300 rounded-lg focus:outline-none focus:ring-2 focus:ring-blue-500 transition-shadow"
+                  required
+                />
+              </div>
               <div className="flex justify-end space-x-3 mt-6">
                 <button
                   type="button"
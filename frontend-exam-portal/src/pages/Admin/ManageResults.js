@@ -1,4 +1,4 @@
-import React, { useState, useEffect, useMemo } from "react";
+import React, { useState, useEffect, useCallback } from "react";
 import axios from "axios";
 
 const Notification = ({ message, type, onClose }) => {
@@ -169,10 +169,13 @@ const EditModal = ({ selectedData, onClose, onSave }) => {
   );
 };
 
+const PAGE_SIZE = 5;
+
 export default function Results() {
   const [results, setResults] = useState([]);
   const [notification, setNotification] = useState({ message: "", type: "" });
   const [searchTerm, setSearchTerm] = useState("");
+  const [debouncedSearch, setDebouncedSearch] = useState("");
   const [examFilter, setExamFilter] = useState("All");
   const [statusFilter, setStatusFilter] = useState("All");
   const [sortConfig, setSortConfig] = useState({
@@ -181,64 +184,93 @@ export default function Results() {
   });
   const [selectedResults, setSelectedResults] = useState([]);
   const [currentPage, setCurrentPage] = useState(1);
+  // pageCursors[i] is the "after" cursor that loads page i + 1
+  const [pageCursors, setPageCursors] = useState([null]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [total, setTotal] = useState({ count: 0, exact: true });
+  const [examOptions, setExamOptions] = useState(["All"]);
+  // Rows seen on any page, so a selection can be edited after paging away
+  const [loadedResults, setLoadedResults] = useState({});
   const [isDetailsModalOpen, setIsDetailsModalOpen] = useState(false);
   const [selectedResultDetails, setSelectedResultDetails] = useState(null);
   const [isEditModalOpen, setIsEditModalOpen] = useState(false);
 
-  const fetchResults = async () => {
+  // Any change to the filters or sort starts again from the first page
+  const resetPaging = () => {
+    setCurrentPage(1);
+    setPageCursors([null]);
+  };
+
+  useEffect(() => {
+    const timer = setTimeout(() => {
+      const term = searchTerm.trim();
+      if (term === debouncedSearch) return;
+      setDebouncedSearch(term);
+      resetPaging();
+    }, 300);
+    return () => clearTimeout(timer);
+  }, [searchTerm, debouncedSearch]);
+
+  const fetchResults = useCallback(async () => {
+    const params = {
+      sort: sortConfig.key,
+      direction: sortConfig.direction === "descending" ? "desc" : "asc",
+      size: PAGE_SIZE,
+    };
+    if (debouncedSearch) params.q = debouncedSearch;
+    if (examFilter !== "All") params.exam = examFilter;
+    if (statusFilter !== "All") params.status = statusFilter;
+    const after = pageCursors[currentPage - 1];
+    if (after) params.after = after;
+
     try {
-      const res = await axios.get("http://localhost:8080/api/admin/results/all");
-      setResults(res.data);
+      const res = await axios.get("http://localhost:8080/api/admin/results", { params });
+      setResults(res.data.items);
+      setLoadedResults((prev) => {
+        const next = { ...prev };
+        res.data.items.forEach((r) => (next[r.id] = r));
+        return next;
+      });
+      setNextCursor(res.data.nextCursor);
+      setTotal({ count: res.data.total, exact: res.data.totalExact });
     } catch (err) {
       console.error("Error fetching results:", err);
       setNotification({ 
-        message: "Failed to fetch results: " + (err.response?.data || err.message), 
+        message: "Failed to fetch results: " + (err.response?.data?.error || err.message), 
         type: "error" 
       });
     }
-  };
+  }, [debouncedSearch, examFilter, statusFilter, sortConfig, pageCursors, currentPage]);
 
   useEffect(() => {
     fetchResults();
+  }, [fetchResults]);
+
+  useEffect(() => {
+    axios
+      .get("http://localhost:8080/api/admin/results/exams")
+      .then((res) => setExamOptions(["All", ...res.data]))
+      .catch((err) => console.error("Error fetching exams:", err));
   }, []);
 
-  const sortedAndFilteredResults = useMemo(() => {
-    let processedResults = [...results].filter(
-      (result) =>
-        (result.name?.toLowerCase().includes(searchTerm.toLowerCase()) ||
-          result.email?.toLowerCase().includes(searchTerm.toLowerCase()) ||
-          result.collegeName?.toLowerCase().includes(searchTerm.toLowerCase())) &&
-        (examFilter === "All" || result.exam === examFilter) &&
-        (statusFilter === "All" || result.status === statusFilter)
-    );
-    if (sortConfig.key) {
-      processedResults.sort((a, b) => {
-        if (a[sortConfig.key] < b[sortConfig.key])
-          return sortConfig.direction === "ascending" ? -1 : 1;
-        if (a[sortConfig.key] > b[sortConfig.key])
-          return sortConfig.direction === "ascending" ? 1 : -1;
-        return 0;
-      });
-    }
-    return processedResults;
-  }, [results, searchTerm, examFilter, statusFilter, sortConfig]);
-
-  const totalPages = Math.ceil(sortedAndFilteredResults.length / 5);
-  const paginatedResults = useMemo(() => {
-    const start = (currentPage - 1) * 5;
-    return sortedAndFilteredResults.slice(start, start + 5);
-  }, [currentPage, sortedAndFilteredResults]);
-
-  const examOptions = useMemo(
-    () => ["All", ...new Set(results.map((r) => r.exam))],
-    [results]
-  );
+  // Plain links, so the browser streams the file to disk instead of holding it in memory
+  const exportUrl = (format) => {
+    const params = new URLSearchParams({ format });
+    if (debouncedSearch) params.set("q", debouncedSearch);
+    if (examFilter !== "All") params.set("exam", examFilter);
+    if (statusFilter !== "All") params.set("status", statusFilter);
+    return `http://localhost:8080/api/admin/results/export?${params}`;
+  };
+
+  const paginatedResults = results;
+  const totalPages = Math.max(1, Math.ceil(total.count / PAGE_SIZE));
 
   const requestSort = (key) => {
     let direction = "ascending";
     if (sortConfig.key === key && sortConfig.direction === "ascending")
       direction = "descending";
     setSortConfig({ key, direction });
+    resetPaging();
   };
 
   const getSortIndicator = (key) =>
@@ -407,8 +439,13 @@ export default function Results() {
     paginatedResults.length > 0 &&
     paginatedResults.every((r) => selectedResults.includes(r.id));
 
-  const goToPage = (page) =>
-    setCurrentPage(Math.max(1, Math.min(page, totalPages)));
+  const goToNextPage = () => {
+    if (!nextCursor) return;
+    setPageCursors((prev) => [...prev.slice(0, currentPage), nextCursor]);
+    setCurrentPage(currentPage + 1);
+  };
+
+  const goToPreviousPage = () => setCurrentPage(Math.max(1, currentPage - 1));
 
   const handleViewDetails = (result) => {
     setSelectedResultDetails(result);
@@ -416,7 +453,10 @@ export default function Results() {
   };
 
   const handleEditSelected = () => {
-    const selectedData = results.filter((r) => selectedResults.includes(r.id));
+    const selectedData = selectedResults
+      .map((id) => loadedResults[id])
+      .filter(Boolean)
+      .map((r) => ({ ...r }));
     setSelectedResultDetails(selectedData);
     setIsEditModalOpen(true);
   };
@@ -445,12 +485,26 @@ export default function Results() {
 
       <div className="flex justify-between items-center mb-6">
         <h1 className="text-4xl font-bold text-gray-800">Candidate Results</h1>
-        <button
-          onClick={handleAutoMailSend}
-          className="bg-indigo-600 text-white font-bold py-2 px-6 rounded-lg hover:bg-indigo-700 shadow-md transition"
-        >
-          📧 Send Mails Automatically
-        </button>
+        <div className="flex space-x-2">
+          <a
+            href={exportUrl("csv")}
+            className="bg-white text-gray-800 font-bold py-2 px-4 rounded-lg border hover:bg-gray-100 shadow-md transition"
+          >
+            ⬇ CSV
+          </a>
+          <a
+            href={exportUrl("xlsx")}
+            className="bg-white text-gray-800 font-bold py-2 px-4 rounded-lg border hover:bg-gray-100 shadow-md transition"
+          >
+            ⬇ Excel
+          </a>
+          <button
+            onClick={handleAutoMailSend}
+            className="bg-indigo-600 text-white font-bold py-2 px-6 rounded-lg hover:bg-indigo-700 shadow-md transition"
+          >
+            📧 Send Mails Automatically
+          </button>
+        </div>
       </div>
 
       {/* Filters */}
@@ -464,7 +518,10 @@ export default function Results() {
         />
         <select
           value={examFilter}
-          onChange={(e) => setExamFilter(e.target.value)}
+          onChange={(e) => {
+            setExamFilter(e.target.value);
+            resetPaging();
+          }}
           className="w-full px-4 py-2 border rounded-lg bg-white focus:outline-none focus:ring-2 focus:ring-blue-500"
         >
           {examOptions.map((e) => (
@@ -475,7 +532,10 @@ export default function Results() {
         </select>
         <select
           value={statusFilter}
-          onChange={(e) => setStatusFilter(e.target.value)}
+          onChange={(e) => {
+            setStatusFilter(e.target.value);
+            resetPaging();
+          }}
           className="w-full px-4 py-2 border rounded-lg bg-white focus:outline-none focus:ring-2 focus:ring-blue-500"
         >
           <option value="All">All Statuses</option>
@@ -617,24 +677,24 @@ export default function Results() {
         <div className="flex justify-between items-center p-4">
           <span className="text-sm text-gray-700">
             Page <strong>{currentPage}</strong> of{" "}
-            <strong>{totalPages || 1}</strong>
-            {sortedAndFilteredResults.length > 0 && (
+            <strong>{totalPages}{total.exact ? "" : "+"}</strong>
+            {total.count > 0 && (
               <span className="ml-2">
-                ({sortedAndFilteredResults.length} result{sortedAndFilteredResults.length !== 1 ? 's' : ''})
+                ({total.count}{total.exact ? "" : "+"} result{total.count !== 1 ? 's' : ''})
               </span>
             )}
           </span>
           <div className="flex items-center space-x-2">
             <button
-              onClick={() => goToPage(currentPage - 1)}
+              onClick={goToPreviousPage}
               disabled={currentPage === 1}
               className="px-3 py-1 bg-gray-200 text-gray-800 rounded-md hover:bg-gray-300 disabled:bg-gray-100 disabled:text-gray-400 disabled:cursor-not-allowed"
             >
               Previous
             </button>
             <button
-              onClick={() => goToPage(currentPage + 1)}
-              disabled={currentPage === totalPages || totalPages === 0}
+              onClick={goToNextPage}
+              disabled={!nextCursor}
               className="px-3 py-1 bg-gray-200 text-gray-800 rounded-md hover:bg-gray-300 disabled:bg-gray-100 disabled:text-gray-400 disabled:cursor-not-allowed"
             >
               Next
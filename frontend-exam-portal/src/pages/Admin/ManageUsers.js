@@ -128,7 +128,12 @@ const handleSubmit = async (e) => {
         examId: Number(examId),
         userIds: selectedUsers.map(id => Number(id))
       };
-      await axios.post(`http://localhost:8080/api/admin/users/assign-exam`, payload);
+      const { data } = await axios.post(`http://localhost:8080/api/admin/users/assign-exam`, payload);
+      if (data.success === false) {
+        setNotification({ message: data.message, type:'error' });
+        fetchUsers();
+        return;
+      }
       setNotification({ message: `Exam assigned to ${selectedUsers.length} user(s).`, type:'success' });
       setSelectedUsers([]);
       fetchUsers();
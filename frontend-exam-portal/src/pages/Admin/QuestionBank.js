@@ -62,6 +62,7 @@ export default function QuestionBank() {
     options: ["", "", "", ""],
     answer: "",
     marks: 1,
+    difficulty: "",
     qNo: null,
   };
   const [formData, setFormData] = useState(initialFormData);
@@ -308,6 +309,7 @@ export default function QuestionBank() {
         type: formData.type,
         questionText: formData.questionText,
         marks: formData.marks,
+        difficulty: formData.difficulty || null,
         qNo: editingQuestion 
             ? formData.qNo 
             : questions.filter(q => q.section === formData.section).length + 1,
@@ -766,6 +768,21 @@ const QuestionModal = ({ formData, setFormData, closeModal, handleSubmit, sectio
                 required
               />
             </div>
+
+            <div>
+              <label className="block text-gray-700 font-medium mb-1">Difficulty</label>
+              <select
+                name="difficulty"
+                value={formData.difficulty || ""}
+                onChange={handleInputChange}
+                className="w-full p-2 border rounded-lg"
+              >
+                <option value="">Not set</option>
+                <option value="EASY">Easy</option>
+                <option value="MEDIUM">Medium</option>
+                <option value="HARD">Hard</option>
+              </select>
+            </div>
             
             <div>
               <label className="block text-gray-700 font-medium mb-1">Question Text</label>
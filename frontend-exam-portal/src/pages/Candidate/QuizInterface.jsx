@@ -38,6 +38,11 @@ const QuizInterface = () => {
   const MAX_TAB_SWITCHES = 2;
   const isAutoSubmittingRef = useRef(false);
 
+  // --- Autosave: answer deltas are sent one at a time with an increasing seq ---
+  const autosaveSeqRef = useRef(0);
+  const autosaveChainRef = useRef(Promise.resolve());
+  const autosaveFailedRef = useRef(false);
+
   // --- Video Recording ---
   const [isRecording, setIsRecording] = useState(false);
   const [recordedVideoUrl, setRecordedVideoUrl] = useState(null);
@@ -320,15 +325,24 @@ const QuizInterface = () => {
       const payload = {
         user: { id: Number(studentId) },
         exam: { id: Number(liveExamId) },
-        answersJson: JSON.stringify(payloadAnswers),
         videoUrl: videoUrl
       };
 
-      await axios.post(
-        "http://localhost:8080/api/candidate/submit-exam",
-        payload,
-        { withCredentials: true }
-      );
+      // With a complete autosave log only the last sequence number is sent
+      await autosaveChainRef.current;
+      const submitUrl = "http://localhost:8080/api/candidate/submit";
+      const fullPayload = { ...payload, answersJson: JSON.stringify(payloadAnswers) };
+
+      if (autosaveFailedRef.current) {
+        await axios.post(submitUrl, fullPayload, { withCredentials: true });
+      } else {
+        try {
+          await axios.post(submitUrl, { ...payload, lastSeq: autosaveSeqRef.current }, { withCredentials: true });
+        } catch (submitErr) {
+          if (submitErr.response?.status !== 409) throw submitErr;
+          await axios.post(submitUrl, fullPayload, { withCredentials: true });
+        }
+      }
 
       // Clear exam-specific session storage
       clearExamSession();
@@ -436,28 +450,16 @@ const QuizInterface = () => {
         setLoading(true);
         setError(null);
 
-        let isAssigned = false;
-        let currentSetNumber = null;
+        const bootstrapUrl = `http://localhost:8080/api/candidate/exams/${liveExamId}/bootstrap`;
 
+        let res;
         try {
-          const assignmentRes = await axios.get(
-            `http://localhost:8080/api/examset/assignment`,
-            {
-              params: { userId: studentId, examId: liveExamId },
-              withCredentials: true
-            }
-          );
-
-          if (assignmentRes.data && assignmentRes.data.assignedSetNumber) {
-            isAssigned = true;
-            currentSetNumber = assignmentRes.data.assignedSetNumber;
-            setAssignedSetNumber(currentSetNumber);
+          res = await axios.post(bootstrapUrl, null, { withCredentials: true });
+        } catch (bootErr) {
+          if (bootErr.response?.status !== 403 || !/not assigned/i.test(bootErr.response?.data?.error || "")) {
+            throw bootErr;
           }
-        } catch (assignErr) {
-          console.log("ℹ️ No existing assignment");
-        }
 
-        if (!isAssigned) {
           const assignSuccess = await autoAssignStudent(studentId, liveExamId);
 
           if (!assignSuccess) {
@@ -467,26 +469,12 @@ const QuizInterface = () => {
             return;
           }
 
-          const newAssignmentRes = await axios.get(
-            `http://localhost:8080/api/examset/assignment`,
-            {
-              params: { userId: studentId, examId: liveExamId },
-              withCredentials: true
-            }
-          );
-
-          if (newAssignmentRes.data) {
-            currentSetNumber = newAssignmentRes.data.assignedSetNumber;
-            setAssignedSetNumber(currentSetNumber);
-          }
+          res = await axios.post(bootstrapUrl, null, { withCredentials: true });
         }
 
-        const res = await axios.get(
-          `http://localhost:8080/api/candidate/exams/${liveExamId}/shuffled-questions`,
-          { withCredentials: true }
-        );
-
-        const questionsArray = res.data;
+        const boot = res.data;
+        const questionsArray = boot.questions;
+        setAssignedSetNumber(boot.assignment?.assignedSetNumber);
 
         if (!questionsArray || questionsArray.length === 0) {
           setError("No questions found.");
@@ -495,8 +483,8 @@ const QuizInterface = () => {
         }
 
         setExamData({
-          title: `Exam ID ${liveExamId}`,
-          duration: 60,
+          title: boot.examTitle || `Exam ID ${liveExamId}`,
+          duration: boot.durationMinutes || 60,
           studentName: userName,
           studentId: studentId || "CD001",
           totalQuestions: questionsArray.length,
@@ -504,9 +492,14 @@ const QuizInterface = () => {
 
         setQuestions(questionsArray);
 
+        // Server-side remaining time wins over any locally saved countdown
+        if (typeof boot.remainingSeconds === "number") {
+          setTimeLeft(boot.remainingSeconds);
+        }
+
         // Check if there's saved time, otherwise set default
         const savedTime = sessionStorage.getItem(getStorageKey('timeLeft'));
-        if (!savedTime) {
+        if (!savedTime && typeof boot.remainingSeconds !== "number") {
           setTimeLeft(60 * 60);
         }
 
@@ -515,6 +508,23 @@ const QuizInterface = () => {
         // Load saved answers and progress AFTER questions are loaded
         loadSavedData();
 
+        // Server-side autosave survives a browser crash; use it when this tab has nothing saved
+        try {
+          const saved = await axios.get(
+            `http://localhost:8080/api/candidate/exams/${liveExamId}/answers`,
+            { withCredentials: true }
+          );
+          autosaveSeqRef.current = Math.max(autosaveSeqRef.current, saved.data.lastSeq || 0);
+          if (!sessionStorage.getItem(getStorageKey('answers')) && saved.data.answers) {
+            setAnswers(saved.data.answers);
+          } else if (sessionStorage.getItem(getStorageKey('answers'))) {
+            // The locally restored sheet may be ahead of the server log; submit it in full
+            autosaveFailedRef.current = true;
+          }
+        } catch (resumeErr) {
+          console.warn("Could not load autosaved answers:", resumeErr);
+        }
+
         startCamera();
 
       } catch (err) {
@@ -561,8 +571,24 @@ const QuizInterface = () => {
   const totalQuestions = questions.length;
   const answeredCount = Object.keys(answers).length;
 
+  const autosaveAnswer = (questionId, value) => {
+    const seq = ++autosaveSeqRef.current;
+    autosaveChainRef.current = autosaveChainRef.current.then(() =>
+      axios.patch(
+        `http://localhost:8080/api/candidate/exams/${liveExamId}/answers`,
+        { seq, questionId, answer: value ?? null },
+        { withCredentials: true }
+      ).catch((err) => {
+        // Final submit falls back to sending the full answer sheet
+        autosaveFailedRef.current = true;
+        console.warn("Autosave failed:", err);
+      })
+    );
+  };
+
   const handleAnswerChange = (questionId, value) => {
     setAnswers((prev) => ({ ...prev, [questionId]: value }));
+    autosaveAnswer(questionId, value);
   };
 
   const handleNext = () => {
@@ -635,6 +661,7 @@ const QuizInterface = () => {
       delete newAnswers[questionId];
       return newAnswers;
     });
+    autosaveAnswer(questionId, null);
   };
 
   const getQuestionStatus = (questionIndex) => {
@@ -823,7 +850,7 @@ const QuizInterface = () => {
                 </div>
               </div>
 
-              {currentQ.type === "mcq" && currentQ.options && currentQ.options.length > 0 && (
+              {["mcq", "single", "multiple"].includes(currentQ.type) && currentQ.options && currentQ.options.length > 0 && (
                 <div className="space-y-3 mb-8">
                   {currentQ.options.map((option, index) => {
                     const optionValue = String.fromCharCode(65 + index);
@@ -51,12 +51,17 @@ const Run = () => {
                 source: code,
                 language: language.toLowerCase(), 
                 testCases,
-            });
+            }, { withCredentials: true });
             setResults(res.data.results);
             setStatus("Finished ✅");
         } catch (err) {
             console.error(err);
-            setStatus("Error ❌: " + err.response?.data?.message || err.message);
+            if (err.response?.status === 429) {
+                const retryAfter = err.response.headers["retry-after"] || 1;
+                setStatus(`Busy ⏳: ${err.response.data?.message} (retry in ${retryAfter}s)`);
+                return;
+            }
+            setStatus("Error ❌: " + (err.response?.data?.message || err.message));
         }
     };
 